@@ -0,0 +1,53 @@
+package com.example.customer_api.benchmarks;
+
+import com.example.customer_api.CustomerApiApplication;
+import com.example.customer_api.entity.Customer;
+import com.example.customer_api.repository.CustomerRepository;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Starts the real application against a private in-memory H2 database, so benchmarks need
+ * nothing but the JVM.
+ */
+final class BenchmarkContexts {
+
+    private BenchmarkContexts() {
+    }
+
+    static ConfigurableApplicationContext start(WebApplicationType webApplicationType) {
+        return new SpringApplicationBuilder(CustomerApiApplication.class)
+                .web(webApplicationType)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:bench-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                        "server.port=0",
+                        "spring.main.banner-mode=off",
+                        "spring.jpa.show-sql=false",
+                        "logging.level.root=WARN",
+                        "logging.level.com.example.customer_api=WARN")
+                .run();
+    }
+
+    static List<Customer> seed(CustomerRepository repository, int count) {
+        List<Customer> customers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            customers.add(customer("seed-" + i + "@example.com"));
+        }
+        return repository.saveAll(customers);
+    }
+
+    static Customer customer(String email) {
+        return Customer.builder()
+                .firstName("Bench")
+                .middleName("M")
+                .lastName("Marker")
+                .email(email)
+                .phoneNumber("555-010-0000")
+                .build();
+    }
+}
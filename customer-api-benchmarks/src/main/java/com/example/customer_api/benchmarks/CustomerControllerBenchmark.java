@@ -0,0 +1,80 @@
+package com.example.customer_api.benchmarks;
+
+import com.example.customer_api.entity.Customer;
+import com.example.customer_api.repository.CustomerRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Full {@code CustomerController} round trip through the DispatcherServlet with MockMvc:
+ * argument resolution, validation, repository (and lookup cache) and JSON rendering.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CustomerControllerBenchmark {
+    private static final int ROWS = 10_000;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private ConfigurableApplicationContext context;
+    private MockMvc mockMvc;
+    private List<Customer> seeded;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContexts.start(WebApplicationType.SERVLET);
+        mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context).build();
+        seeded = BenchmarkContexts.seed(context.getBean(CustomerRepository.class), ROWS);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public MvcResult getById() throws Exception {
+        Customer customer = seeded.get(ThreadLocalRandom.current().nextInt(seeded.size()));
+        return mockMvc.perform(get("/customers/{id}", customer.getId())).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult getByEmail() throws Exception {
+        Customer customer = seeded.get(ThreadLocalRandom.current().nextInt(seeded.size()));
+        return mockMvc.perform(get("/customers").param("email", customer.getEmail())).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult create() throws Exception {
+        String body = "{\"firstName\":\"Bench\",\"lastName\":\"Marker\",\"email\":\"post-"
+                + sequence.incrementAndGet() + "@example.com\",\"phoneNumber\":\"555-010-0000\"}";
+        return mockMvc.perform(post("/customers").contentType(MediaType.APPLICATION_JSON).content(body)).andReturn();
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.customer_api.benchmarks;
+
+import com.example.customer_api.entity.Customer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson (de)serialization of a single {@link Customer}, configured like the application's
+ * ObjectMapper.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CustomerJsonBenchmark {
+    private ObjectMapper objectMapper;
+    private Customer customer;
+    private byte[] json;
+
+    @Setup
+    public void setUp() throws Exception {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        customer = BenchmarkContexts.customer("json@example.com");
+        customer.setId(UUID.randomUUID());
+        json = objectMapper.writeValueAsBytes(customer);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws Exception {
+        return objectMapper.writeValueAsBytes(customer);
+    }
+
+    @Benchmark
+    public Customer deserialize() throws Exception {
+        return objectMapper.readValue(json, Customer.class);
+    }
+}
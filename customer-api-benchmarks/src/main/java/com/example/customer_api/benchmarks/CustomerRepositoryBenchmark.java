@@ -0,0 +1,75 @@
+package com.example.customer_api.benchmarks;
+
+import com.example.customer_api.entity.Customer;
+import com.example.customer_api.repository.CustomerRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link CustomerRepository} point lookups and inserts against embedded H2, through the real
+ * Spring Data proxy and Hibernate session.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CustomerRepositoryBenchmark {
+    @Param({"10000"})
+    public int rows;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private ConfigurableApplicationContext context;
+    private CustomerRepository repository;
+    private List<Customer> seeded;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContexts.start(WebApplicationType.NONE);
+        repository = context.getBean(CustomerRepository.class);
+        seeded = BenchmarkContexts.seed(repository, rows);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<Customer> findById() {
+        return repository.findById(randomSeeded().getId());
+    }
+
+    @Benchmark
+    public Optional<Customer> findByEmail() {
+        return repository.findByEmail(randomSeeded().getEmail());
+    }
+
+    @Benchmark
+    public Customer save() {
+        return repository.save(BenchmarkContexts.customer("save-" + sequence.incrementAndGet() + "@example.com"));
+    }
+
+    private Customer randomSeeded() {
+        return seeded.get(ThreadLocalRandom.current().nextInt(seeded.size()));
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.client;
+
+import java.util.Optional;
+import java.util.Scanner;
+import java.util.UUID;
+
+/**
+ * Interactive command-line front end for {@link CustomerApiClient}.
+ */
+public class CustomerApiCli {
+    private final CustomerApiClient client;
+
+    public CustomerApiCli(CustomerApiClient client) {
+        this.client = client;
+    }
+
+    public static void main(String[] args) throws Exception {
+        CustomerApiClientConfig.Builder config = CustomerApiClientConfig.builder();
+        for (String arg : args) {
+            if (arg.startsWith("--url=")) {
+                config.baseUrl(arg.substring("--url=".length()));
+            } else if (arg.startsWith("--format=")) {
+                config.format(WireFormat.parse(arg.substring("--format=".length())));
+            } else {
+                throw new IllegalArgumentException("Unknown option " + arg + "; expected --url= or --format=");
+            }
+        }
+        try (CustomerApiClient client = new CustomerApiClient(config.build())) {
+            new CustomerApiCli(client).run(new Scanner(System.in));
+        }
+    }
+
+    public void run(Scanner scanner) {
+        System.out.println("Customer API Client");
+        while (true) {
+            System.out.println("\nChoose an operation: list, get, create, update, delete, exit");
+            if (!scanner.hasNextLine()) {
+                return;
+            }
+            String op = scanner.nextLine().trim().toLowerCase();
+            switch (op) {
+                case "list":
+                    listCustomers();
+                    break;
+                case "get":
+                    System.out.print("Enter customer ID: ");
+                    String id = scanner.nextLine();
+                    getCustomer(id);
+                    break;
+                case "create":
+                    Customer c = new Customer();
+                    System.out.print("First name: "); c.setFirstName(scanner.nextLine());
+                    System.out.print("Middle name (optional): "); c.setMiddleName(scanner.nextLine());
+                    System.out.print("Last name: "); c.setLastName(scanner.nextLine());
+                    System.out.print("Email: "); c.setEmail(scanner.nextLine());
+                    System.out.print("Phone number: "); c.setPhoneNumber(scanner.nextLine());
+                    createCustomer(c);
+                    break;
+                case "update":
+                    System.out.print("Enter customer ID: ");
+                    String uid = scanner.nextLine();
+                    Customer uc = new Customer();
+                    System.out.print("First name: "); uc.setFirstName(scanner.nextLine());
+                    System.out.print("Middle name (optional): "); uc.setMiddleName(scanner.nextLine());
+                    System.out.print("Last name: "); uc.setLastName(scanner.nextLine());
+                    System.out.print("Email: "); uc.setEmail(scanner.nextLine());
+                    System.out.print("Phone number: "); uc.setPhoneNumber(scanner.nextLine());
+                    updateCustomer(uid, uc);
+                    break;
+                case "delete":
+                    System.out.print("Enter customer ID: ");
+                    String did = scanner.nextLine();
+                    deleteCustomer(did);
+                    break;
+                case "exit":
+                    return;
+                default:
+                    System.out.println("Unknown operation.");
+            }
+        }
+    }
+
+    private void listCustomers() {
+        try {
+            client.listCustomers().forEach(this::printCustomer);
+        } catch (Exception e) {
+            System.out.println("Failed to list customers: " + e.getMessage());
+        }
+    }
+
+    private void getCustomer(String id) {
+        try {
+            Optional<Customer> customer = client.getCustomer(UUID.fromString(id.trim()));
+            if (customer.isPresent()) {
+                printCustomer(customer.get());
+            } else {
+                System.out.println("Customer not found: " + id);
+            }
+        } catch (Exception e) {
+            System.out.println("Error: " + e.getMessage());
+        }
+    }
+
+    private void createCustomer(Customer customer) {
+        try {
+            System.out.println("Created:");
+            printCustomer(client.createCustomer(customer));
+        } catch (Exception e) {
+            System.out.println("Error: " + e.getMessage());
+        }
+    }
+
+    private void updateCustomer(String id, Customer customer) {
+        try {
+            Optional<Customer> updated = client.updateCustomer(UUID.fromString(id.trim()), customer);
+            if (updated.isPresent()) {
+                System.out.println("Updated:");
+                printCustomer(updated.get());
+            } else {
+                System.out.println("Customer not found: " + id);
+            }
+        } catch (Exception e) {
+            System.out.println("Error: " + e.getMessage());
+        }
+    }
+
+    private void deleteCustomer(String id) {
+        try {
+            if (client.deleteCustomer(UUID.fromString(id.trim()))) {
+                System.out.println("Deleted customer " + id);
+            } else {
+                System.out.println("Customer not found: " + id);
+            }
+        } catch (Exception e) {
+            System.out.println("Error: " + e.getMessage());
+        }
+    }
+
+    private void printCustomer(Customer c) {
+        System.out.printf("ID: %s\nFirst: %s\nMiddle: %s\nLast: %s\nEmail: %s\nPhone: %s\n---\n",
+                c.getId(), c.getFirstName(), c.getMiddleName(), c.getLastName(), c.getEmail(), c.getPhoneNumber());
+    }
+}
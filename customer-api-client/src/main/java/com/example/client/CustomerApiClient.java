@@ -1,135 +1,284 @@
 package com.example.client;
 
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.util.Arrays;
-import java.util.Scanner;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
-public class CustomerApiClient {
-    private static final String BASE_URL = "http://localhost:8080/customers";
-    private final RestTemplate restTemplate = new RestTemplate();
-
-    public static void main(String[] args) {
-        CustomerApiClient client = new CustomerApiClient();
-        Scanner scanner = new Scanner(System.in);
-        System.out.println("Customer API Client");
-        while (true) {
-            System.out.println("\nChoose an operation: list, get, create, update, delete, exit");
-            String op = scanner.nextLine().trim().toLowerCase();
-            switch (op) {
-                case "list":
-                    client.listCustomers();
-                    break;
-                case "get":
-                    System.out.print("Enter customer ID: ");
-                    String id = scanner.nextLine();
-                    client.getCustomer(id);
-                    break;
-                case "create":
-                    Customer c = new Customer();
-                    System.out.print("First name: "); c.setFirstName(scanner.nextLine());
-                    System.out.print("Middle name (optional): "); c.setMiddleName(scanner.nextLine());
-                    System.out.print("Last name: "); c.setLastName(scanner.nextLine());
-                    System.out.print("Email: "); c.setEmail(scanner.nextLine());
-                    System.out.print("Phone number: "); c.setPhoneNumber(scanner.nextLine());
-                    client.createCustomer(c);
-                    break;
-                case "update":
-                    System.out.print("Enter customer ID: ");
-                    String uid = scanner.nextLine();
-                    Customer uc = new Customer();
-                    System.out.print("First name: "); uc.setFirstName(scanner.nextLine());
-                    System.out.print("Middle name (optional): "); uc.setMiddleName(scanner.nextLine());
-                    System.out.print("Last name: "); uc.setLastName(scanner.nextLine());
-                    System.out.print("Email: "); uc.setEmail(scanner.nextLine());
-                    System.out.print("Phone number: "); uc.setPhoneNumber(scanner.nextLine());
-                    client.updateCustomer(uid, uc);
-                    break;
-                case "delete":
-                    System.out.print("Enter customer ID: ");
-                    String did = scanner.nextLine();
-                    client.deleteCustomer(did);
-                    break;
-                case "exit":
-                    System.exit(0);
-                default:
-                    System.out.println("Unknown operation.");
-            }
-        }
+/**
+ * Thread-safe client for the Customer API, meant to be created once and shared.
+ *
+ * <p>Calls go over a pool of keep-alive connections ({@link CustomerApiClientConfig#getMaxConnections()}).
+ * Calls are retried with jittered exponential backoff when the connection fails, times out, or the
+ * server answers 429, 502, 503 or 504, waiting at least as long as any {@code Retry-After} asks.
+ * Creates carry an {@code Idempotency-Key}, so a retried create returns the customer the first
+ * attempt made instead of a duplicate; while that attempt is still running the server answers 409
+ * with {@code Retry-After}, which is retried too. Every operation has an
+ * {@code *Async} variant returning a {@link CompletableFuture}, which is how batch jobs get
+ * concurrency out of a single client. Close the client to release the pool.
+ */
+public class CustomerApiClient implements Closeable {
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    private final CustomerApiClientConfig config;
+    private final CloseableHttpClient httpClient;
+    private final RestTemplate restTemplate;
+    private final Executor asyncExecutor;
+    private final ExecutorService ownedExecutor;
+
+    public CustomerApiClient() {
+        this(CustomerApiClientConfig.builder().build());
     }
 
-    public void listCustomers() {
-        ResponseEntity<Customer[]> resp = restTemplate.getForEntity(BASE_URL, Customer[].class);
-        if (resp.getStatusCode().is2xxSuccessful() && resp.getBody() != null) {
-            Arrays.stream(resp.getBody()).forEach(this::printCustomer);
+    public CustomerApiClient(CustomerApiClientConfig config) {
+        this.config = config;
+
+        PoolingHttpClientConnectionManager pool = new PoolingHttpClientConnectionManager();
+        pool.setMaxTotal(config.getMaxConnections());
+        pool.setDefaultMaxPerRoute(config.getMaxConnections());
+        // Re-check connections that sat idle, so a connection the server closed is not handed out
+        pool.setValidateAfterInactivity(1000);
+        this.httpClient = HttpClients.custom()
+                .setConnectionManager(pool)
+                .setKeepAliveStrategy(DefaultConnectionKeepAliveStrategy.INSTANCE)
+                .evictExpiredConnections()
+                .evictIdleConnections(config.getIdleConnectionTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectTimeout((int) config.getConnectTimeout().toMillis())
+                        .setSocketTimeout((int) config.getReadTimeout().toMillis())
+                        .setConnectionRequestTimeout((int) config.getPoolAcquireTimeout().toMillis())
+                        .build())
+                // Retries are decided here, with backoff, rather than by HttpClient
+                .disableAutomaticRetries()
+                .build();
+
+        // RestTemplate registers the Smile and CBOR converters itself when they are on the classpath.
+        // HttpClient sends Accept-Encoding: gzip and inflates responses transparently.
+        this.restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+        WireFormat format = config.getFormat();
+        List<MediaType> accept = format == WireFormat.JSON
+                ? List.of(MediaType.APPLICATION_JSON)
+                : List.of(format.getMediaType(), MediaType.APPLICATION_JSON);
+        restTemplate.getInterceptors().add((request, body, execution) -> {
+            request.getHeaders().setAccept(accept);
+            return execution.execute(request, body);
+        });
+
+        if (config.getAsyncExecutor() != null) {
+            this.asyncExecutor = config.getAsyncExecutor();
+            this.ownedExecutor = null;
         } else {
-            System.out.println("Failed to list customers: " + resp.getStatusCode());
+            AtomicInteger threads = new AtomicInteger();
+            this.ownedExecutor = Executors.newFixedThreadPool(config.getMaxConnections(), runnable -> {
+                Thread thread = new Thread(runnable, "customer-api-client-" + threads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.asyncExecutor = ownedExecutor;
         }
     }
 
-    public void getCustomer(String id) {
-        try {
-            ResponseEntity<Customer> resp = restTemplate.getForEntity(BASE_URL + "/" + id, Customer.class);
-            if (resp.getStatusCode().is2xxSuccessful() && resp.getBody() != null) {
-                printCustomer(resp.getBody());
-            } else {
-                System.out.println("Customer not found: " + resp.getStatusCode());
-            }
-        } catch (Exception e) {
-            System.out.println("Error: " + e.getMessage());
+    public CustomerApiClientConfig getConfig() {
+        return config;
+    }
+
+    /** The first page of customers in the server's default page size. */
+    public List<Customer> listCustomers() {
+        return listCustomers(null, null).getItems();
+    }
+
+    /**
+     * One page of customers ordered by id.
+     *
+     * @param limit  page size, or {@code null} for the server default
+     * @param cursor the previous page's {@link CustomerPage#getNextCursor()}, or {@code null} for the first page
+     */
+    public CustomerPage listCustomers(Integer limit, String cursor) {
+        UriComponentsBuilder uri = UriComponentsBuilder.fromHttpUrl(config.getBaseUrl());
+        if (limit != null) {
+            uri.queryParam("limit", limit);
+        }
+        if (cursor != null) {
+            uri.queryParam("cursor", cursor);
         }
+        String url = uri.toUriString();
+        ResponseEntity<Customer[]> response = withRetries(() -> restTemplate.getForEntity(url, Customer[].class));
+        Customer[] body = response.getBody();
+        return new CustomerPage(body == null ? List.of() : Arrays.asList(body),
+                response.getHeaders().getFirst(NEXT_CURSOR_HEADER));
     }
 
-    public void createCustomer(Customer customer) {
-        try {
-            ResponseEntity<Customer> resp = restTemplate.postForEntity(BASE_URL, customer, Customer.class);
-            if (resp.getStatusCode() == HttpStatus.CREATED && resp.getBody() != null) {
-                System.out.println("Created:");
-                printCustomer(resp.getBody());
-            } else {
-                System.out.println("Failed to create: " + resp.getStatusCode());
-            }
-        } catch (Exception e) {
-            System.out.println("Error: " + e.getMessage());
+    public Optional<Customer> getCustomer(UUID id) {
+        return withRetries(() -> notFoundAsEmpty(() -> restTemplate.getForObject(customerUrl(id), Customer.class)));
+    }
+
+    /** Creates a customer. Every attempt sends the same {@code Idempotency-Key}, so retries are safe. */
+    public Customer createCustomer(Customer customer) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set(IDEMPOTENCY_KEY_HEADER, UUID.randomUUID().toString());
+        HttpEntity<Customer> entity = new HttpEntity<>(customer, headers);
+        return withRetries(() -> restTemplate.postForObject(config.getBaseUrl(), entity, Customer.class));
+    }
+
+    /** Overwrites a customer; empty if the id does not exist. */
+    public Optional<Customer> updateCustomer(UUID id, Customer customer) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        HttpEntity<Customer> entity = new HttpEntity<>(customer, headers);
+        return withRetries(() -> notFoundAsEmpty(() ->
+                restTemplate.exchange(customerUrl(id), HttpMethod.PUT, entity, Customer.class).getBody()));
+    }
+
+    /**
+     * @return {@code false} if the customer did not exist. A delete retried after a lost response
+     *         may also report {@code false}, because the first attempt already removed it.
+     */
+    public boolean deleteCustomer(UUID id) {
+        return withRetries(() -> notFoundAsEmpty(() -> {
+            restTemplate.delete(customerUrl(id));
+            return Boolean.TRUE;
+        })).orElse(false);
+    }
+
+    public CompletableFuture<CustomerPage> listCustomersAsync(Integer limit, String cursor) {
+        return async(() -> listCustomers(limit, cursor));
+    }
+
+    public CompletableFuture<Optional<Customer>> getCustomerAsync(UUID id) {
+        return async(() -> getCustomer(id));
+    }
+
+    public CompletableFuture<Customer> createCustomerAsync(Customer customer) {
+        return async(() -> createCustomer(customer));
+    }
+
+    public CompletableFuture<Optional<Customer>> updateCustomerAsync(UUID id, Customer customer) {
+        return async(() -> updateCustomer(id, customer));
+    }
+
+    public CompletableFuture<Boolean> deleteCustomerAsync(UUID id) {
+        return async(() -> deleteCustomer(id));
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
         }
+        httpClient.close();
     }
 
-    public void updateCustomer(String id, Customer customer) {
+    private String customerUrl(UUID id) {
+        return config.getBaseUrl() + "/" + id;
+    }
+
+    private <T> CompletableFuture<T> async(Supplier<T> call) {
+        return CompletableFuture.supplyAsync(call, asyncExecutor);
+    }
+
+    private static <T> Optional<T> notFoundAsEmpty(Supplier<T> call) {
         try {
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            HttpEntity<Customer> entity = new HttpEntity<>(customer, headers);
-            ResponseEntity<Customer> resp = restTemplate.exchange(BASE_URL + "/" + id, HttpMethod.PUT, entity, Customer.class);
-            if (resp.getStatusCode().is2xxSuccessful() && resp.getBody() != null) {
-                System.out.println("Updated:");
-                printCustomer(resp.getBody());
-            } else {
-                System.out.println("Failed to update: " + resp.getStatusCode());
+            return Optional.ofNullable(call.get());
+        } catch (HttpClientErrorException.NotFound e) {
+            return Optional.empty();
+        }
+    }
+
+    private <T> T withRetries(Supplier<T> call) {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return call.get();
+            } catch (RestClientException e) {
+                if (attempt >= config.getMaxRetries() || !isRetryable(e)) {
+                    throw e;
+                }
+                sleep(Math.max(backoff(attempt), retryAfterMillis(e)));
             }
-        } catch (Exception e) {
-            System.out.println("Error: " + e.getMessage());
         }
     }
 
-    public void deleteCustomer(String id) {
+    private static boolean isRetryable(RestClientException e) {
+        if (e instanceof ResourceAccessException) {
+            return true;
+        }
+        if (e instanceof HttpStatusCodeException) {
+            int status = ((HttpStatusCodeException) e).getRawStatusCode();
+            return status == HttpStatus.TOO_MANY_REQUESTS.value()
+                    || status == HttpStatus.BAD_GATEWAY.value()
+                    || status == HttpStatus.SERVICE_UNAVAILABLE.value()
+                    || status == HttpStatus.GATEWAY_TIMEOUT.value()
+                    // An idempotent create still in progress, unlike a plain conflict such as a taken email
+                    || status == HttpStatus.CONFLICT.value() && retryAfter(e) != null;
+        }
+        return false;
+    }
+
+    private static String retryAfter(RestClientException e) {
+        if (!(e instanceof HttpStatusCodeException)) {
+            return null;
+        }
+        HttpHeaders headers = ((HttpStatusCodeException) e).getResponseHeaders();
+        return headers == null ? null : headers.getFirst(HttpHeaders.RETRY_AFTER);
+    }
+
+    /** The delay a {@code Retry-After: <seconds>} header asks for, or 0 if there is none. */
+    private static long retryAfterMillis(RestClientException e) {
+        String retryAfter = retryAfter(e);
+        if (retryAfter == null) {
+            return 0;
+        }
         try {
-            restTemplate.delete(BASE_URL + "/" + id);
-            System.out.println("Deleted customer " + id);
-        } catch (Exception e) {
-            System.out.println("Error: " + e.getMessage());
+            return TimeUnit.SECONDS.toMillis(Math.max(0, Long.parseLong(retryAfter.trim())));
+        } catch (NumberFormatException ex) {
+            // An HTTP-date; fall back to the backoff
+            return 0;
         }
     }
 
-    private void printCustomer(Customer c) {
-        System.out.printf("ID: %s\nFirst: %s\nMiddle: %s\nLast: %s\nEmail: %s\nPhone: %s\n---\n",
-                c.getId(), c.getFirstName(), c.getMiddleName(), c.getLastName(), c.getEmail(), c.getPhoneNumber());
+    // Full jitter: spreads the retries of many concurrent callers instead of synchronising them
+    private long backoff(int attempt) {
+        long ceiling = Math.min(config.getRetryMaxDelay().toMillis(),
+                config.getRetryBaseDelay().toMillis() << Math.min(attempt, 20));
+        return ceiling <= 0 ? 0 : ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResourceAccessException("Interrupted while waiting to retry");
+        }
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,156 @@
+package com.example.client;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+
+/**
+ * Settings for {@link CustomerApiClient}. Build with {@link #builder()}; every setting has a
+ * default suitable for a batch job talking to a nearby API.
+ */
+public final class CustomerApiClientConfig {
+    private final String baseUrl;
+    private final WireFormat format;
+    private final Duration connectTimeout;
+    private final Duration readTimeout;
+    private final Duration poolAcquireTimeout;
+    private final int maxConnections;
+    private final Duration idleConnectionTimeout;
+    private final int maxRetries;
+    private final Duration retryBaseDelay;
+    private final Duration retryMaxDelay;
+    private final Executor asyncExecutor;
+
+    private CustomerApiClientConfig(Builder builder) {
+        this.baseUrl = builder.baseUrl.endsWith("/")
+                ? builder.baseUrl.substring(0, builder.baseUrl.length() - 1)
+                : builder.baseUrl;
+        this.format = builder.format;
+        this.connectTimeout = builder.connectTimeout;
+        this.readTimeout = builder.readTimeout;
+        this.poolAcquireTimeout = builder.poolAcquireTimeout;
+        this.maxConnections = builder.maxConnections;
+        this.idleConnectionTimeout = builder.idleConnectionTimeout;
+        this.maxRetries = builder.maxRetries;
+        this.retryBaseDelay = builder.retryBaseDelay;
+        this.retryMaxDelay = builder.retryMaxDelay;
+        this.asyncExecutor = builder.asyncExecutor;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public String getBaseUrl() { return baseUrl; }
+
+    public WireFormat getFormat() { return format; }
+
+    public Duration getConnectTimeout() { return connectTimeout; }
+
+    public Duration getReadTimeout() { return readTimeout; }
+
+    public Duration getPoolAcquireTimeout() { return poolAcquireTimeout; }
+
+    public int getMaxConnections() { return maxConnections; }
+
+    public Duration getIdleConnectionTimeout() { return idleConnectionTimeout; }
+
+    public int getMaxRetries() { return maxRetries; }
+
+    public Duration getRetryBaseDelay() { return retryBaseDelay; }
+
+    public Duration getRetryMaxDelay() { return retryMaxDelay; }
+
+    /**
+     * Executor for the {@code *Async} methods, or {@code null} to let the client own a pool of
+     * {@link #getMaxConnections()} threads.
+     */
+    public Executor getAsyncExecutor() { return asyncExecutor; }
+
+    public static final class Builder {
+        private String baseUrl = "http://localhost:8080/customers";
+        private WireFormat format = WireFormat.JSON;
+        private Duration connectTimeout = Duration.ofSeconds(2);
+        private Duration readTimeout = Duration.ofSeconds(10);
+        private Duration poolAcquireTimeout = Duration.ofSeconds(5);
+        private int maxConnections = 20;
+        private Duration idleConnectionTimeout = Duration.ofSeconds(30);
+        private int maxRetries = 3;
+        private Duration retryBaseDelay = Duration.ofMillis(100);
+        private Duration retryMaxDelay = Duration.ofSeconds(2);
+        private Executor asyncExecutor;
+
+        private Builder() {
+        }
+
+        /** URL of the customers collection, e.g. {@code http://customer-api:8080/customers}. */
+        public Builder baseUrl(String baseUrl) {
+            this.baseUrl = Objects.requireNonNull(baseUrl, "baseUrl");
+            return this;
+        }
+
+        public Builder format(WireFormat format) {
+            this.format = Objects.requireNonNull(format, "format");
+            return this;
+        }
+
+        public Builder connectTimeout(Duration connectTimeout) {
+            this.connectTimeout = Objects.requireNonNull(connectTimeout, "connectTimeout");
+            return this;
+        }
+
+        public Builder readTimeout(Duration readTimeout) {
+            this.readTimeout = Objects.requireNonNull(readTimeout, "readTimeout");
+            return this;
+        }
+
+        /** How long a call waits for a free pooled connection when all are in use. */
+        public Builder poolAcquireTimeout(Duration poolAcquireTimeout) {
+            this.poolAcquireTimeout = Objects.requireNonNull(poolAcquireTimeout, "poolAcquireTimeout");
+            return this;
+        }
+
+        /** Size of the keep-alive connection pool; the API is a single route, so this is also the per-route limit. */
+        public Builder maxConnections(int maxConnections) {
+            if (maxConnections < 1) {
+                throw new IllegalArgumentException("maxConnections must be at least 1");
+            }
+            this.maxConnections = maxConnections;
+            return this;
+        }
+
+        /** Pooled connections unused for this long are closed before the server drops them. */
+        public Builder idleConnectionTimeout(Duration idleConnectionTimeout) {
+            this.idleConnectionTimeout = Objects.requireNonNull(idleConnectionTimeout, "idleConnectionTimeout");
+            return this;
+        }
+
+        /** Retries after the first attempt of an idempotent call; 0 disables retries. */
+        public Builder maxRetries(int maxRetries) {
+            if (maxRetries < 0) {
+                throw new IllegalArgumentException("maxRetries must not be negative");
+            }
+            this.maxRetries = maxRetries;
+            return this;
+        }
+
+        /**
+         * Backoff before retry {@code n} is a random delay between zero and
+         * {@code min(retryMaxDelay, retryBaseDelay * 2^n)} ("full jitter").
+         */
+        public Builder retryBackoff(Duration retryBaseDelay, Duration retryMaxDelay) {
+            this.retryBaseDelay = Objects.requireNonNull(retryBaseDelay, "retryBaseDelay");
+            this.retryMaxDelay = Objects.requireNonNull(retryMaxDelay, "retryMaxDelay");
+            return this;
+        }
+
+        public Builder asyncExecutor(Executor asyncExecutor) {
+            this.asyncExecutor = asyncExecutor;
+            return this;
+        }
+
+        public CustomerApiClientConfig build() {
+            return new CustomerApiClientConfig(this);
+        }
+    }
+}
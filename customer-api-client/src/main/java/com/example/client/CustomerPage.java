@@ -0,0 +1,23 @@
+package com.example.client;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated listing. Pass {@link #getNextCursor()} to the next call; it is
+ * {@code null} on the last page.
+ */
+public final class CustomerPage {
+    private final List<Customer> items;
+    private final String nextCursor;
+
+    public CustomerPage(List<Customer> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Customer> getItems() { return items; }
+
+    public String getNextCursor() { return nextCursor; }
+
+    public boolean hasNext() { return nextCursor != null; }
+}
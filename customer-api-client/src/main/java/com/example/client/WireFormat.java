@@ -0,0 +1,33 @@
+package com.example.client;
+
+import org.springframework.http.MediaType;
+
+import java.util.Locale;
+
+/**
+ * Representation the client asks the API for in list and lookup responses. The binary formats
+ * carry the same fields as JSON but are smaller and faster to parse.
+ */
+public enum WireFormat {
+    JSON(MediaType.APPLICATION_JSON),
+    SMILE(new MediaType("application", "x-jackson-smile")),
+    CBOR(new MediaType("application", "cbor"));
+
+    private final MediaType mediaType;
+
+    WireFormat(MediaType mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    public static WireFormat parse(String name) {
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown format " + name + "; expected json, smile or cbor");
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.client.load;
+
+import org.apache.http.HttpHeaders;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.RequestBuilder;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load generator: requests are scheduled at a fixed rate and {@code concurrency}
+ * workers send them over a shared keep-alive pool. A request's response time is measured from
+ * when it was scheduled, not when a worker got round to sending it, so a stalled server shows up
+ * in the percentiles instead of silently lowering the request rate (coordinated omission).
+ *
+ * <p>Every request scheduled before the end of the run is sent, so an overloaded server stretches
+ * the run and lowers the achieved rate rather than dropping the backlog from the results.
+ */
+public class LoadGenerator implements Closeable {
+    private final String serverUrl;
+    private final String accept;
+    private final int concurrency;
+    private final CloseableHttpClient httpClient;
+
+    /**
+     * @param serverUrl   scheme, host and port the request paths are appended to, e.g. {@code http://localhost:8080}
+     * @param accept      {@code Accept} header sent with every request
+     * @param concurrency worker threads, and pooled connections
+     * @param timeout     connect and read timeout; a timed-out request counts as an error
+     */
+    public LoadGenerator(String serverUrl, String accept, int concurrency, Duration timeout) {
+        this.serverUrl = serverUrl.endsWith("/") ? serverUrl.substring(0, serverUrl.length() - 1) : serverUrl;
+        this.accept = accept;
+        this.concurrency = concurrency;
+        PoolingHttpClientConnectionManager pool = new PoolingHttpClientConnectionManager();
+        pool.setMaxTotal(concurrency);
+        pool.setDefaultMaxPerRoute(concurrency);
+        this.httpClient = HttpClients.custom()
+                .setConnectionManager(pool)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectTimeout((int) timeout.toMillis())
+                        .setSocketTimeout((int) timeout.toMillis())
+                        .build())
+                .disableAutomaticRetries()
+                .build();
+    }
+
+    /**
+     * Sends one request outside any measured run, e.g. to seed data.
+     *
+     * @return the status, or {@code -1} if no response arrived
+     */
+    public int send(RequestSource source, LoadRequest request) {
+        return execute(source, request);
+    }
+
+    /**
+     * Runs {@code warmup} followed by {@code duration} at {@code rps} requests per second. Only
+     * requests scheduled after the warmup are recorded.
+     */
+    public LoadReport run(RequestSource source, double rps, Duration duration, Duration warmup) throws InterruptedException {
+        if (rps <= 0) {
+            throw new IllegalArgumentException("rps must be positive");
+        }
+        LoadReport report = new LoadReport();
+        double intervalNanos = 1e9 / rps;
+        long start = System.nanoTime() + Duration.ofMillis(50).toNanos();
+        long measureFrom = start + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+        AtomicLong nextSlot = new AtomicLong();
+
+        List<Thread> workers = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            Thread worker = new Thread(() -> {
+                while (true) {
+                    long scheduled = start + (long) (nextSlot.getAndIncrement() * intervalNanos);
+                    if (scheduled >= end) {
+                        return;
+                    }
+                    for (long wait = scheduled - System.nanoTime(); wait > 0; wait = scheduled - System.nanoTime()) {
+                        LockSupport.parkNanos(wait);
+                    }
+                    LoadRequest request = source.next();
+                    long sent = System.nanoTime();
+                    int status = execute(source, request);
+                    long done = System.nanoTime();
+                    if (scheduled >= measureFrom) {
+                        report.record(request.getName(), done - scheduled, done - sent, status);
+                    }
+                }
+            }, "load-worker-" + i);
+            worker.start();
+            workers.add(worker);
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        report.finish(Duration.ofNanos(Math.max(System.nanoTime(), end) - measureFrom), rps);
+        return report;
+    }
+
+    private int execute(RequestSource source, LoadRequest request) {
+        RequestBuilder builder = RequestBuilder.create(request.getMethod())
+                .setUri(serverUrl + request.getPath())
+                .setHeader(HttpHeaders.ACCEPT, accept);
+        if (request.getBody() != null) {
+            builder.setEntity(new StringEntity(request.getBody(), ContentType.APPLICATION_JSON));
+        }
+        try (CloseableHttpResponse response = httpClient.execute(builder.build())) {
+            int status = response.getStatusLine().getStatusCode();
+            // Reading the body fully returns the connection to the pool
+            byte[] body = response.getEntity() == null ? null : EntityUtils.toByteArray(response.getEntity());
+            source.completed(request, status, body);
+            return status;
+        } catch (IOException e) {
+            source.completed(request, -1, null);
+            return -1;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        httpClient.close();
+    }
+}
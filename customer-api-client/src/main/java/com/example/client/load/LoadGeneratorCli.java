@@ -0,0 +1,78 @@
+package com.example.client.load;
+
+import com.example.client.WireFormat;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Non-interactive load mode: replays a JSONL request log ({@code --replay=file}) or a synthetic CRUD
+ * mix ({@code --mix=...}) at a fixed rate and prints latency percentiles, error rate and achieved
+ * throughput. See the module README for the options.
+ */
+public class LoadGeneratorCli {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        String url = options.getOrDefault("url", "http://localhost:8080");
+        double rps = Double.parseDouble(options.getOrDefault("rps", "100"));
+        Duration duration = Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration", "30")));
+        Duration warmup = Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmup", "5")));
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "32"));
+        Duration timeout = Duration.ofMillis(Long.parseLong(options.getOrDefault("timeout-ms", "5000")));
+        WireFormat format = WireFormat.parse(options.getOrDefault("format", "json"));
+        int seed = Integer.parseInt(options.getOrDefault("seed-customers", "100"));
+
+        RequestSource source;
+        try (LoadGenerator generator = new LoadGenerator(url, format.getMediaType().toString(), concurrency, timeout)) {
+            if (options.containsKey("replay")) {
+                source = ReplayRequestSource.read(Path.of(options.get("replay")));
+            } else {
+                SyntheticCrudSource synthetic = new SyntheticCrudSource("/customers",
+                        options.getOrDefault("mix", SyntheticCrudSource.DEFAULT_MIX), mapperFor(format));
+                for (int i = 0; i < seed; i++) {
+                    generator.send(synthetic, synthetic.create());
+                }
+                if (seed > 0 && synthetic.knownCustomers() == 0) {
+                    throw new IllegalStateException("Could not create any customers at " + url);
+                }
+                source = synthetic;
+            }
+            System.out.printf("Running %s at %.1f req/s for %ds (+%ds warmup) with %d workers against %s%n",
+                    options.containsKey("replay") ? "replay of " + options.get("replay") : "synthetic mix",
+                    rps, duration.getSeconds(), warmup.getSeconds(), concurrency, url);
+            LoadReport report = generator.run(source, rps, duration, warmup);
+            report.print(System.out);
+            if (options.containsKey("hgrm")) {
+                try (PrintStream out = new PrintStream(Files.newOutputStream(Path.of(options.get("hgrm"))))) {
+                    report.printPercentileDistribution(out);
+                }
+            }
+        }
+    }
+
+    private static ObjectMapper mapperFor(WireFormat format) {
+        switch (format) {
+            case SMILE:
+                return new ObjectMapper(new SmileFactory());
+            case CBOR:
+                return new ObjectMapper(new CBORFactory());
+            default:
+                return new ObjectMapper();
+        }
+    }
+}
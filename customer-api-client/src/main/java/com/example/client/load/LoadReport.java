@@ -0,0 +1,136 @@
+package com.example.client.load;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Results of a load run. Latencies are recorded in microseconds, twice per request:
+ * <ul>
+ *     <li><b>response time</b> runs from the moment the request was <em>scheduled</em> to be sent,
+ *     so time spent waiting behind a slow response counts (coordinated-omission corrected);</li>
+ *     <li><b>service time</b> runs from the moment it was actually sent, which is what a closed-loop
+ *     tool would report and understates latency whenever the server falls behind.</li>
+ * </ul>
+ */
+public class LoadReport {
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+
+    private final Map<String, Operation> operations = new ConcurrentHashMap<>();
+    private final Operation total = new Operation();
+    private volatile long measuredNanos;
+    private volatile double targetRps;
+
+    void record(String name, long responseTimeNanos, long serviceTimeNanos, int status) {
+        operations.computeIfAbsent(name, n -> new Operation()).record(responseTimeNanos, serviceTimeNanos, status);
+        total.record(responseTimeNanos, serviceTimeNanos, status);
+    }
+
+    void finish(Duration measured, double targetRps) {
+        this.measuredNanos = measured.toNanos();
+        this.targetRps = targetRps;
+        total.snapshot();
+        operations.values().forEach(Operation::snapshot);
+    }
+
+    public long getRequests() {
+        return total.requests.sum();
+    }
+
+    /** Failed requests: no response (connection error, timeout) or a 5xx. */
+    public long getErrors() {
+        return total.errors.sum();
+    }
+
+    public double getErrorRate() {
+        long requests = getRequests();
+        return requests == 0 ? 0 : (double) getErrors() / requests;
+    }
+
+    public double getAchievedRps() {
+        return measuredNanos == 0 ? 0 : getRequests() * 1e9 / measuredNanos;
+    }
+
+    /** Coordinated-omission corrected response times, in microseconds. */
+    public Histogram getResponseTimes() {
+        return total.responseTimes;
+    }
+
+    /** Uncorrected service times, in microseconds. */
+    public Histogram getServiceTimes() {
+        return total.serviceTimes;
+    }
+
+    public Map<Integer, Long> getStatusCounts() {
+        return total.statusCounts();
+    }
+
+    public void print(PrintStream out) {
+        out.printf("Target %.1f req/s, achieved %.1f req/s over %.1fs%n", targetRps, getAchievedRps(), measuredNanos / 1e9);
+        out.printf("Requests %d, errors %d (%.3f%%), statuses %s%n",
+                getRequests(), getErrors(), getErrorRate() * 100, getStatusCounts());
+        out.println();
+        out.printf("%-10s %9s %8s | %-50s | %s%n", "operation", "requests", "errors",
+                "response time ms (p50 p90 p99 p99.9 p99.99 max)", "service time ms (p50 p99 max)");
+        new TreeMap<>(operations).forEach((name, operation) -> print(out, name, operation));
+        print(out, "total", total);
+    }
+
+    /**
+     * Writes the corrected response-time distribution in HdrHistogram's percentile format
+     * (plottable with HdrHistogram's online plotter), in milliseconds.
+     */
+    public void printPercentileDistribution(PrintStream out) {
+        total.responseTimes.outputPercentileDistribution(out, 1000.0);
+    }
+
+    private static void print(PrintStream out, String name, Operation operation) {
+        StringBuilder response = new StringBuilder();
+        for (double percentile : PERCENTILES) {
+            response.append(String.format("%8.2f", operation.responseTimes.getValueAtPercentile(percentile) / 1000.0));
+        }
+        response.append(String.format("%8.2f", operation.responseTimes.getMaxValue() / 1000.0));
+        out.printf("%-10s %9d %8d | %-50s | %8.2f%8.2f%8.2f%n", name, operation.requests.sum(), operation.errors.sum(),
+                response.toString().trim(),
+                operation.serviceTimes.getValueAtPercentile(50) / 1000.0,
+                operation.serviceTimes.getValueAtPercentile(99) / 1000.0,
+                operation.serviceTimes.getMaxValue() / 1000.0);
+    }
+
+    private static final class Operation {
+        private final Recorder responseRecorder = new Recorder(3);
+        private final Recorder serviceRecorder = new Recorder(3);
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        private Histogram responseTimes = new Histogram(3);
+        private Histogram serviceTimes = new Histogram(3);
+
+        void record(long responseTimeNanos, long serviceTimeNanos, int status) {
+            responseRecorder.recordValue(Math.max(1, responseTimeNanos / 1000));
+            serviceRecorder.recordValue(Math.max(1, serviceTimeNanos / 1000));
+            requests.increment();
+            if (status < 0 || status >= 500) {
+                errors.increment();
+            }
+            statuses.computeIfAbsent(status, s -> new LongAdder()).increment();
+        }
+
+        void snapshot() {
+            responseTimes = responseRecorder.getIntervalHistogram();
+            serviceTimes = serviceRecorder.getIntervalHistogram();
+        }
+
+        Map<Integer, Long> statusCounts() {
+            Map<Integer, Long> counts = new TreeMap<>();
+            statuses.forEach((status, count) -> counts.put(status, count.sum()));
+            return counts;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.client.load;
+
+/**
+ * One HTTP call issued by the load generator. {@code path} is relative to the API's base URL
+ * (e.g. {@code /customers?limit=50}); {@code body} is JSON or {@code null}.
+ */
+public final class LoadRequest {
+    private final String name;
+    private final String method;
+    private final String path;
+    private final String body;
+
+    public LoadRequest(String name, String method, String path, String body) {
+        this.name = name;
+        this.method = method;
+        this.path = path;
+        this.body = body;
+    }
+
+    /** Operation name the report groups results by. */
+    public String getName() { return name; }
+
+    public String getMethod() { return method; }
+
+    public String getPath() { return path; }
+
+    public String getBody() { return body; }
+}
@@ -0,0 +1,69 @@
+package com.example.client.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Replays a JSONL request log, one request per line, cycling back to the first line when the log
+ * is exhausted:
+ *
+ * <pre>{"method":"GET","path":"/customers/3f2c...","name":"get"}
+ * {"method":"POST","path":"/customers","body":{"firstName":"Ann","lastName":"Lee","email":"ann@example.com","phoneNumber":"5550100"}}</pre>
+ *
+ * {@code name} is optional and defaults to the method. Blank lines and lines starting with
+ * {@code #} are skipped. The log's own timing is ignored: the generator paces requests at the
+ * target rate.
+ */
+public class ReplayRequestSource implements RequestSource {
+    private final List<LoadRequest> requests;
+    private final AtomicLong position = new AtomicLong();
+
+    public ReplayRequestSource(List<LoadRequest> requests) {
+        if (requests.isEmpty()) {
+            throw new IllegalArgumentException("The request log is empty");
+        }
+        this.requests = List.copyOf(requests);
+    }
+
+    public static ReplayRequestSource read(Path log) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        List<LoadRequest> requests = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(log, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank() || line.trim().startsWith("#")) {
+                    continue;
+                }
+                JsonNode node = mapper.readTree(line);
+                if (!node.hasNonNull("method") || !node.hasNonNull("path")) {
+                    throw new IllegalArgumentException(log + ":" + lineNumber + ": method and path are required");
+                }
+                String method = node.get("method").asText().toUpperCase(Locale.ROOT);
+                JsonNode body = node.get("body");
+                requests.add(new LoadRequest(
+                        node.hasNonNull("name") ? node.get("name").asText() : method,
+                        method,
+                        node.get("path").asText(),
+                        body == null || body.isNull() ? null : mapper.writeValueAsString(body)));
+            }
+        }
+        return new ReplayRequestSource(requests);
+    }
+
+    @Override
+    public LoadRequest next() {
+        return requests.get((int) (position.getAndIncrement() % requests.size()));
+    }
+}
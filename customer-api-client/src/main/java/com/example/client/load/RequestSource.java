@@ -0,0 +1,16 @@
+package com.example.client.load;
+
+/**
+ * Supplies the requests a load run issues. Called concurrently from all workers.
+ */
+public interface RequestSource {
+
+    LoadRequest next();
+
+    /**
+     * Told about every completed request, so a source can reuse what the server created. Status
+     * is {@code -1} if the request failed without a response.
+     */
+    default void completed(LoadRequest request, int status, byte[] body) {
+    }
+}
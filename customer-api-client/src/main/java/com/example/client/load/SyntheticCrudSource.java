@@ -0,0 +1,155 @@
+package com.example.client.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A weighted mix of CRUD calls against {@code /customers}. Lookups, updates and deletes pick a
+ * random customer created earlier in the run (or seeded before it); until one exists they fall
+ * back to a create.
+ *
+ * <p>The mix is given as {@code name:weight} pairs, e.g. {@code get:60,list:15,create:10,update:10,delete:5};
+ * the operations are {@code get}, {@code list}, {@code search}, {@code create}, {@code update} and {@code delete}.
+ */
+public class SyntheticCrudSource implements RequestSource {
+    public static final String DEFAULT_MIX = "get:60,list:15,search:5,create:10,update:8,delete:2";
+
+    private static final List<String> OPERATIONS = List.of("get", "list", "search", "create", "update", "delete");
+
+    private final String basePath;
+    private final String[] operations;
+    private final int[] cumulativeWeights;
+    private final List<UUID> ids = Collections.synchronizedList(new ArrayList<>());
+    private final ObjectMapper responseMapper;
+    private final String runId = Long.toString(System.nanoTime(), 36);
+
+    /**
+     * @param basePath       path of the customers collection, e.g. {@code /customers}
+     * @param mix            weights per operation, see the class comment
+     * @param responseMapper mapper for the response format the server is asked for
+     */
+    public SyntheticCrudSource(String basePath, String mix, ObjectMapper responseMapper) {
+        this.basePath = basePath;
+        this.responseMapper = responseMapper;
+        Map<String, Integer> weights = parseMix(mix);
+        this.operations = new String[weights.size()];
+        this.cumulativeWeights = new int[weights.size()];
+        int i = 0;
+        int total = 0;
+        for (Map.Entry<String, Integer> weight : weights.entrySet()) {
+            total += weight.getValue();
+            operations[i] = weight.getKey();
+            cumulativeWeights[i] = total;
+            i++;
+        }
+        if (total == 0) {
+            throw new IllegalArgumentException("The mix must give at least one operation a positive weight");
+        }
+    }
+
+    static Map<String, Integer> parseMix(String mix) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String entry : mix.split(",")) {
+            String[] pair = entry.trim().split(":");
+            if (pair.length != 2 || !OPERATIONS.contains(pair[0].trim())) {
+                throw new IllegalArgumentException("Invalid mix entry '" + entry + "'; expected one of "
+                        + OPERATIONS + " followed by :weight");
+            }
+            int weight = Integer.parseInt(pair[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Negative weight in mix entry '" + entry + "'");
+            }
+            weights.merge(pair[0].trim(), weight, Integer::sum);
+        }
+        return weights;
+    }
+
+    /** A create request, used to seed customers before the measured run. */
+    public LoadRequest create() {
+        long n = ThreadLocalRandom.current().nextLong(Long.MAX_VALUE);
+        String body = "{\"firstName\":\"Load\",\"lastName\":\"Test" + (n % 1000) + "\","
+                + "\"email\":\"load-" + runId + "-" + Long.toString(n, 36) + "@example.com\","
+                + "\"phoneNumber\":\"555" + String.format("%07d", n % 10_000_000) + "\"}";
+        return new LoadRequest("create", "POST", basePath, body);
+    }
+
+    @Override
+    public LoadRequest next() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int pick = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        String operation = operations[0];
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (pick < cumulativeWeights[i]) {
+                operation = operations[i];
+                break;
+            }
+        }
+        switch (operation) {
+            case "list":
+                return new LoadRequest("list", "GET", basePath + "?limit=50", null);
+            case "search":
+                return new LoadRequest("search", "GET", basePath + "/search?q=test" + random.nextInt(10), null);
+            case "create":
+                return create();
+            default:
+                break;
+        }
+        UUID id = randomId(operation.equals("delete"));
+        if (id == null) {
+            return create();
+        }
+        switch (operation) {
+            case "get":
+                return new LoadRequest("get", "GET", basePath + "/" + id, null);
+            case "update":
+                return new LoadRequest("update", "PUT", basePath + "/" + id, create().getBody());
+            default:
+                return new LoadRequest("delete", "DELETE", basePath + "/" + id, null);
+        }
+    }
+
+    @Override
+    public void completed(LoadRequest request, int status, byte[] body) {
+        if (!"create".equals(request.getName()) || status != 201 || body == null) {
+            return;
+        }
+        try {
+            JsonNode id = responseMapper.readTree(body).get("id");
+            if (id != null) {
+                ids.add(UUID.fromString(id.asText()));
+            }
+        } catch (IOException | IllegalArgumentException ignored) {
+            // Not a customer; nothing to remember
+        }
+    }
+
+    public int knownCustomers() {
+        return ids.size();
+    }
+
+    private UUID randomId(boolean remove) {
+        synchronized (ids) {
+            if (ids.isEmpty()) {
+                return null;
+            }
+            int index = ThreadLocalRandom.current().nextInt(ids.size());
+            if (!remove) {
+                return ids.get(index);
+            }
+            // Swap-remove so later lookups do not target deleted customers
+            UUID id = ids.get(index);
+            ids.set(index, ids.get(ids.size() - 1));
+            ids.remove(ids.size() - 1);
+            return id;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.client;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CustomerApiClientTest {
+    private HttpServer server;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger failuresLeft = new AtomicInteger();
+    private final AtomicInteger conflictsLeft = new AtomicInteger();
+    private volatile String conflictRetryAfter;
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private final Set<String> idempotencyKeys = ConcurrentHashMap.newKeySet();
+    private CustomerApiClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newFixedThreadPool(8));
+        server.createContext("/customers", this::handle);
+        server.start();
+        client = new CustomerApiClient(CustomerApiClientConfig.builder()
+                .baseUrl("http://127.0.0.1:" + server.getAddress().getPort() + "/customers")
+                .maxConnections(4)
+                .retryBackoff(Duration.ofMillis(1), Duration.ofMillis(5))
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        client.close();
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        clientPorts.add(exchange.getRemoteAddress().getPort());
+        exchange.getRequestBody().readAllBytes();
+        String idempotencyKey = exchange.getRequestHeaders().getFirst("Idempotency-Key");
+        if (idempotencyKey != null) {
+            idempotencyKeys.add(idempotencyKey);
+        }
+        if (failuresLeft.getAndDecrement() > 0) {
+            exchange.sendResponseHeaders(503, -1);
+            exchange.close();
+            return;
+        }
+        if (conflictsLeft.getAndDecrement() > 0) {
+            if (conflictRetryAfter != null) {
+                exchange.getResponseHeaders().add("Retry-After", conflictRetryAfter);
+            }
+            exchange.sendResponseHeaders(409, -1);
+            exchange.close();
+            return;
+        }
+        String path = exchange.getRequestURI().getPath();
+        String id = path.substring(path.lastIndexOf('/') + 1);
+        if (id.equals(new UUID(0, 0).toString())) {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+            return;
+        }
+        byte[] body = ("{\"id\":\"" + (id.equals("customers") ? UUID.randomUUID() : id) + "\",\"email\":\"a@example.com\"}")
+                .getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders("POST".equals(exchange.getRequestMethod()) ? 201 : 200, body.length);
+        exchange.getResponseBody().write(body);
+        exchange.close();
+    }
+
+    @Test
+    void getRetriesUnavailableServer() {
+        failuresLeft.set(2);
+        UUID id = UUID.randomUUID();
+
+        Optional<Customer> customer = client.getCustomer(id);
+
+        assertEquals(id, customer.orElseThrow().getId());
+        assertEquals(3, requests.get());
+    }
+
+    @Test
+    void getGivesUpAfterMaxRetries() {
+        failuresLeft.set(10);
+
+        assertThrows(HttpServerErrorException.ServiceUnavailable.class, () -> client.getCustomer(UUID.randomUUID()));
+        assertEquals(4, requests.get());
+    }
+
+    @Test
+    void createRetriesWithTheSameIdempotencyKey() {
+        failuresLeft.set(2);
+
+        client.createCustomer(new Customer());
+
+        assertEquals(3, requests.get());
+        assertEquals(1, idempotencyKeys.size());
+        client.createCustomer(new Customer());
+        assertEquals(2, idempotencyKeys.size());
+    }
+
+    @Test
+    void createWaitsOutAnInProgressConflict() {
+        conflictsLeft.set(1);
+        conflictRetryAfter = "1";
+        long start = System.nanoTime();
+
+        client.createCustomer(new Customer());
+
+        assertEquals(2, requests.get());
+        assertEquals(1, idempotencyKeys.size());
+        assertTrue(System.nanoTime() - start >= TimeUnit.SECONDS.toNanos(1), "did not honour Retry-After");
+    }
+
+    @Test
+    void plainConflictIsNotRetried() {
+        conflictsLeft.set(1);
+
+        assertThrows(HttpClientErrorException.Conflict.class, () -> client.createCustomer(new Customer()));
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    void missingCustomerIsEmpty() {
+        assertFalse(client.getCustomer(new UUID(0, 0)).isPresent());
+        assertFalse(client.deleteCustomer(new UUID(0, 0)));
+        assertTrue(client.deleteCustomer(UUID.randomUUID()));
+    }
+
+    @Test
+    void asyncCallsShareThePooledConnections() {
+        List<CompletableFuture<Optional<Customer>>> calls = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            calls.add(client.getCustomerAsync(UUID.randomUUID()));
+        }
+        CompletableFuture.allOf(calls.toArray(new CompletableFuture[0])).join();
+
+        assertTrue(calls.stream().allMatch(call -> call.join().isPresent()));
+        assertEquals(200, requests.get());
+        assertTrue(clientPorts.size() <= 4, "opened " + clientPorts.size() + " connections");
+    }
+
+    @Test
+    void wireFormatNamesParseUnderAnyDefaultLocale() {
+        Locale previous = Locale.getDefault();
+        Locale.setDefault(Locale.forLanguageTag("tr-TR"));
+        try {
+            // Upper-casing "smile" in Turkish gives a dotted capital I
+            assertEquals(WireFormat.SMILE, WireFormat.parse("smile"));
+        } finally {
+            Locale.setDefault(previous);
+        }
+    }
+}
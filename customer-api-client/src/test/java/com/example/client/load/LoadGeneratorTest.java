@@ -0,0 +1,93 @@
+package com.example.client.load;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LoadGeneratorTest {
+    private HttpServer server;
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile int stallAt = -1;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newFixedThreadPool(4));
+        server.createContext("/", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            if (requests.incrementAndGet() == stallAt) {
+                try {
+                    Thread.sleep(500);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            int status = exchange.getRequestURI().getPath().startsWith("/fail") ? 503 : 200;
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    private LoadGenerator generator(int concurrency) {
+        return new LoadGenerator("http://127.0.0.1:" + server.getAddress().getPort(), "application/json",
+                concurrency, Duration.ofSeconds(5));
+    }
+
+    @Test
+    void stallCountsAgainstEveryRequestQueuedBehindIt() throws Exception {
+        stallAt = 50;
+        RequestSource source = () -> new LoadRequest("get", "GET", "/customers/1", null);
+        LoadReport report;
+        try (LoadGenerator generator = generator(1)) {
+            report = generator.run(source, 100, Duration.ofSeconds(2), Duration.ZERO);
+        }
+
+        assertEquals(200, report.getRequests());
+        assertEquals(0, report.getErrors());
+        // The requests scheduled during the stall waited for it; a closed-loop measurement would not show that
+        assertTrue(report.getResponseTimes().getValueAtPercentile(90) > 100_000,
+                "corrected p90 " + report.getResponseTimes().getValueAtPercentile(90) + "us");
+        assertTrue(report.getServiceTimes().getValueAtPercentile(90) < 50_000,
+                "service p90 " + report.getServiceTimes().getValueAtPercentile(90) + "us");
+    }
+
+    @Test
+    void replaysLogAndCountsServerErrors(@TempDir Path dir) throws Exception {
+        Path log = dir.resolve("requests.jsonl");
+        Files.write(log, List.of(
+                "# comment",
+                "{\"method\":\"get\",\"path\":\"/customers/1\",\"name\":\"get\"}",
+                "",
+                "{\"method\":\"POST\",\"path\":\"/fail\",\"body\":{\"email\":\"a@example.com\"}}"));
+        LoadReport report;
+        try (LoadGenerator generator = generator(4)) {
+            report = generator.run(ReplayRequestSource.read(log), 200, Duration.ofSeconds(1), Duration.ofMillis(200));
+        }
+
+        assertEquals(200, report.getRequests());
+        assertEquals(100, report.getErrors());
+        assertEquals(0.5, report.getErrorRate());
+        assertEquals(100L, report.getStatusCounts().get(503));
+        assertTrue(report.getAchievedRps() > 150, "achieved " + report.getAchievedRps());
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.customer_api.changes;
+
+import com.example.customer_api.dto.CustomerChange;
+
+import java.util.List;
+
+/**
+ * Where {@link OutboxRelay} delivers committed changes: a message broker in a full deployment,
+ * or one of the stand-ins here. Delivery is at least once; consumers deduplicate by sequence.
+ */
+public interface ChangePublisher {
+
+    /** Publishes a batch in sequence order; throwing makes the relay retry the batch later. */
+    void publish(List<CustomerChange> changes) throws Exception;
+}
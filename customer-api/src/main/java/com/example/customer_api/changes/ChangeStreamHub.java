@@ -0,0 +1,232 @@
+package com.example.customer_api.changes;
+
+import com.example.customer_api.dto.CustomerChange;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Server-sent event streams of the change feed. One scheduled task polls the outbox for all subscribers
+ * of this instance, so the database sees one query per poll interval however many clients are
+ * connected. Subscribers that start behind (a {@code since} or {@code Last-Event-ID} in the past)
+ * catch up from the outbox a batch per poll and then join the shared reads.
+ *
+ * <p>The poll only queues events: each subscriber has a queue of {@code bufferSize} events that
+ * is written to its connection by the hub's own sender threads, so a slow client holds up neither
+ * the other subscribers nor the shared scheduler. A subscriber catching up is only given a batch
+ * when its queue has room for it. A subscriber at the head whose queue cannot take the next shared
+ * batch has fallen behind; its stream is completed and the client resumes from the outbox when it
+ * reconnects.
+ *
+ * <p>Each event's id is the change's sequence, so a client that reconnects with
+ * {@code Last-Event-ID} resumes exactly where it stopped. Idle streams get a comment every
+ * heartbeat interval so proxies do not close them.
+ */
+public class ChangeStreamHub implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(ChangeStreamHub.class);
+
+    private final CustomerChangeLog changeLog;
+    private final int batchSize;
+    private final int bufferSize;
+    private final Duration timeout;
+    private final long heartbeatNanos;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ExecutorService senders;
+    private final ScheduledFuture<?> poller;
+    private long head = -1;
+
+    public ChangeStreamHub(CustomerChangeLog changeLog, TaskScheduler scheduler, int batchSize, int bufferSize,
+                           int senderThreads, Duration pollInterval, Duration heartbeat, Duration timeout) {
+        this.changeLog = changeLog;
+        this.batchSize = batchSize;
+        // A subscriber catching up must be able to take a whole batch
+        this.bufferSize = Math.max(bufferSize, batchSize);
+        this.timeout = timeout;
+        this.heartbeatNanos = heartbeat.toNanos();
+        AtomicInteger count = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(senderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "change-stream-sender-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.poller = scheduler.scheduleWithFixedDelay(this::pollQuietly, Instant.now().plus(pollInterval), pollInterval);
+    }
+
+    /** Opens a stream of the changes after {@code since}. */
+    public SseEmitter subscribe(long since) {
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        subscribe(emitter, since);
+        return emitter;
+    }
+
+    void subscribe(SseEmitter emitter, long since) {
+        Subscriber subscriber = new Subscriber(emitter, since);
+        emitter.onCompletion(subscriber::stop);
+        emitter.onTimeout(subscriber::stop);
+        emitter.onError(error -> subscriber.stop());
+        subscribers.add(subscriber);
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    private void pollQuietly() {
+        try {
+            poll();
+        } catch (RuntimeException e) {
+            logger.warn("Polling the change feed failed", e);
+        }
+    }
+
+    private void poll() {
+        if (subscribers.isEmpty()) {
+            // Nobody to share with; the next subscriber decides where reads resume
+            head = -1;
+            return;
+        }
+        long previousHead = head;
+        List<CustomerChange> shared = List.of();
+        if (previousHead >= 0) {
+            shared = changeLog.read(previousHead, batchSize);
+            if (!shared.isEmpty()) {
+                head = shared.get(shared.size() - 1).getSequence();
+            }
+        }
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            if (previousHead >= 0 && subscriber.position == previousHead) {
+                if (!subscriber.offer(shared, now)) {
+                    subscriber.fellBehind();
+                }
+                continue;
+            }
+            if (subscriber.queue.remainingCapacity() < batchSize) {
+                // Still sending an earlier catch-up batch
+                continue;
+            }
+            List<CustomerChange> changes = changeLog.read(subscriber.position, batchSize);
+            if (previousHead < 0 && changes.size() < batchSize) {
+                // Caught up: this subscriber's position seeds the shared reads
+                head = changes.isEmpty() ? subscriber.position : changes.get(changes.size() - 1).getSequence();
+                previousHead = head;
+                shared = List.of();
+            }
+            subscriber.offer(changes, now);
+        }
+    }
+
+    /** Stops polling and sending and completes every open stream. */
+    @Override
+    public void close() {
+        poller.cancel(true);
+        senders.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        subscribers.clear();
+    }
+
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private final BlockingQueue<SseEmitter.SseEventBuilder> queue = new ArrayBlockingQueue<>(bufferSize);
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private volatile boolean stopped;
+        // The last sequence queued and when something was last queued; only touched by the poll
+        private long position;
+        private long lastQueuedNanos = System.nanoTime();
+
+        private Subscriber(SseEmitter emitter, long position) {
+            this.emitter = emitter;
+            this.position = position;
+        }
+
+        /** Queues the changes after {@code position}, or nothing if they do not all fit. */
+        private boolean offer(List<CustomerChange> changes, long now) {
+            int fresh = 0;
+            for (CustomerChange change : changes) {
+                if (change.getSequence() > position) {
+                    fresh++;
+                }
+            }
+            if (queue.remainingCapacity() < fresh) {
+                return false;
+            }
+            for (CustomerChange change : changes) {
+                if (change.getSequence() <= position) {
+                    continue;
+                }
+                queue.add(SseEmitter.event()
+                        .id(String.valueOf(change.getSequence()))
+                        .name(change.getType().name())
+                        .data(change, MediaType.APPLICATION_JSON));
+                position = change.getSequence();
+                lastQueuedNanos = now;
+            }
+            if (now - lastQueuedNanos >= heartbeatNanos && queue.isEmpty()) {
+                queue.add(SseEmitter.event().comment("heartbeat"));
+                lastQueuedNanos = now;
+            }
+            if (!queue.isEmpty()) {
+                send();
+            }
+            return true;
+        }
+
+        private void fellBehind() {
+            logger.info("Change stream subscriber at sequence {} fell {} events behind; closing its stream",
+                    position, bufferSize);
+            stop();
+            queue.clear();
+            // On a sender thread: completing waits for a send that is still writing to the client
+            send();
+        }
+
+        private void stop() {
+            stopped = true;
+            subscribers.remove(this);
+        }
+
+        private void send() {
+            if (sending.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        // Runs on one sender thread at a time per subscriber
+        private void drain() {
+            try {
+                SseEmitter.SseEventBuilder event;
+                while (!stopped && (event = queue.poll()) != null) {
+                    emitter.send(event);
+                }
+                if (stopped) {
+                    emitter.complete();
+                }
+            } catch (IOException | IllegalStateException e) {
+                // The client went away; the container completes the emitter
+                stop();
+            } finally {
+                sending.set(false);
+            }
+            if (!stopped && !queue.isEmpty()) {
+                send();
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.customer_api.changes;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * The customer change feed. Writes always append to the outbox; {@code customer.changes.publisher}
+ * selects where the relay delivers them: {@code memory} (default, a bounded in-process broker) or
+ * {@code file} (NDJSON appended to {@code customer.changes.file}). No external broker is needed.
+ */
+@Configuration(proxyBeanMethods = false)
+public class ChangesConfiguration {
+
+    @Bean
+    @ConditionalOnProperty(name = "customer.changes.publisher", havingValue = "memory", matchIfMissing = true)
+    public InMemoryChangeBroker inMemoryChangeBroker(@Value("${customer.changes.memory.capacity:10000}") int capacity) {
+        return new InMemoryChangeBroker(capacity);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "customer.changes.publisher", havingValue = "file")
+    public FileChangePublisher fileChangePublisher(@Value("${customer.changes.file:customer-changes.ndjson}") Path file,
+                                                   ObjectMapper objectMapper) throws IOException {
+        return new FileChangePublisher(file, objectMapper);
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "customer.changes.relay.enabled", havingValue = "true", matchIfMissing = true)
+    public OutboxRelay outboxRelay(CustomerChangeLog changeLog, ChangePublisher publisher, DataSource dataSource,
+                                   PlatformTransactionManager transactionManager, MeterRegistry registry,
+                                   TaskScheduler taskScheduler,
+                                   @Value("${customer.changes.relay.name:default}") String name,
+                                   @Value("${customer.changes.relay.batch-size:500}") int batchSize,
+                                   @Value("${customer.changes.relay.poll-interval:200ms}") Duration pollInterval,
+                                   @Value("${customer.changes.retention:7d}") Duration retention) {
+        OutboxRelay relay = new OutboxRelay(name, changeLog, publisher, dataSource, transactionManager, batchSize,
+                retention, registry, Clock.systemUTC());
+        relay.start(taskScheduler, pollInterval);
+        return relay;
+    }
+
+    @Bean(destroyMethod = "close")
+    public ChangeStreamHub changeStreamHub(CustomerChangeLog changeLog, TaskScheduler taskScheduler,
+                                           @Value("${customer.changes.stream.batch-size:500}") int batchSize,
+                                           @Value("${customer.changes.stream.buffer:1000}") int bufferSize,
+                                           @Value("${customer.changes.stream.sender-threads:4}") int senderThreads,
+                                           @Value("${customer.changes.stream.poll-interval:500ms}") Duration pollInterval,
+                                           @Value("${customer.changes.stream.heartbeat:15s}") Duration heartbeat,
+                                           @Value("${customer.changes.stream.timeout:30m}") Duration timeout) {
+        return new ChangeStreamHub(changeLog, taskScheduler, batchSize, bufferSize, senderThreads, pollInterval,
+                heartbeat, timeout);
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.customer_api.changes;
+
+import com.example.customer_api.dto.CustomerChange;
+import com.example.customer_api.entity.Customer;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * The {@code customer_changes} outbox. Writers call {@link #record} inside the transaction that
+ * changes the customer, so a change is in the log if and only if it committed.
+ *
+ * <p>Recorded changes are held until the transaction is about to commit and only then numbered
+ * from the {@code customer_change_sequence} row and inserted. The row stays locked until the
+ * commit, so sequences are handed out in commit order: once a reader sees a sequence, every
+ * earlier one has committed too, however long its transaction was open, and a rollback takes its
+ * sequences back with it. Readers that resume from the last sequence they saw never skip a change.
+ */
+@Component
+public class CustomerChangeLog {
+    private static final String INSERT = "insert into customer_changes (change_type, customer_id, version, payload, changed_at, sequence) "
+            + "values (?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbc;
+    private final ObjectMapper objectMapper;
+    private final Clock clock;
+
+    @Autowired
+    public CustomerChangeLog(DataSource dataSource, ObjectMapper objectMapper) {
+        this(dataSource, objectMapper, Clock.systemUTC());
+    }
+
+    CustomerChangeLog(DataSource dataSource, ObjectMapper objectMapper, Clock clock) {
+        this.jdbc = new JdbcTemplate(dataSource);
+        this.objectMapper = objectMapper;
+        this.clock = clock;
+    }
+
+    /** Appends a change; {@code customer} is the state after it, or just carries the id for a delete. */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(CustomerChange.Type type, Customer customer) {
+        pending().add(params(type, customer));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordAll(List<CustomerChange> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = pending();
+        for (CustomerChange change : changes) {
+            rows.add(params(change.getType(), change.getCustomer()));
+        }
+    }
+
+    // The changes recorded in the current transaction, inserted by its PendingChanges before it commits
+    @SuppressWarnings("unchecked")
+    private List<Object[]> pending() {
+        List<Object[]> rows = (List<Object[]>) TransactionSynchronizationManager.getResource(this);
+        if (rows == null) {
+            rows = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, rows);
+            TransactionSynchronizationManager.registerSynchronization(new PendingChanges(rows));
+        }
+        return rows;
+    }
+
+    private void insert(List<Object[]> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        // Locks the counter until this transaction commits, so later writers get later sequences
+        jdbc.update("update customer_change_sequence set last_sequence = last_sequence + ? where id = 1", rows.size());
+        long last = jdbc.queryForObject("select last_sequence from customer_change_sequence where id = 1", Long.class);
+        long sequence = last - rows.size();
+        List<Object[]> numbered = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            Object[] values = Arrays.copyOf(row, row.length + 1);
+            values[row.length] = ++sequence;
+            numbered.add(values);
+        }
+        jdbc.batchUpdate(INSERT, numbered);
+    }
+
+    /** Up to {@code limit} changes after {@code since}, in sequence order. */
+    public List<CustomerChange> read(long since, int limit) {
+        return jdbc.query(
+                "select sequence, change_type, customer_id, version, payload, changed_at from customer_changes "
+                        + "where sequence > ? order by sequence limit ?",
+                (rs, rowNum) -> CustomerChange.builder()
+                        .sequence(rs.getLong("sequence"))
+                        .type(CustomerChange.Type.valueOf(rs.getString("change_type")))
+                        .customerId(UUID.fromString(rs.getString("customer_id")))
+                        .version(rs.getObject("version") == null ? null : rs.getLong("version"))
+                        .customer(parse(rs.getString("payload")))
+                        .changedAt(Instant.ofEpochMilli(rs.getLong("changed_at")))
+                        .build(),
+                since, limit);
+    }
+
+    /** Drops changes older than {@code before} up to and including {@code upToSequence}. */
+    public int purge(Instant before, long upToSequence) {
+        return jdbc.update("delete from customer_changes where changed_at < ? and sequence <= ?",
+                before.toEpochMilli(), upToSequence);
+    }
+
+    private Object[] params(CustomerChange.Type type, Customer customer) {
+        String payload = null;
+        if (type != CustomerChange.Type.DELETED) {
+            try {
+                payload = objectMapper.writeValueAsString(customer);
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Cannot serialize customer " + customer.getId(), e);
+            }
+        }
+        return new Object[]{type.name(), customer.getId().toString(),
+                type == CustomerChange.Type.DELETED ? null : customer.getVersion(), payload, clock.millis()};
+    }
+
+    private Customer parse(String payload) {
+        if (payload == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(payload, Customer.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable change payload", e);
+        }
+    }
+
+    private final class PendingChanges implements TransactionSynchronization {
+        private final List<Object[]> rows;
+
+        private PendingChanges(List<Object[]> rows) {
+            this.rows = rows;
+        }
+
+        // A transaction started while this one is suspended records its own changes
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResource(CustomerChangeLog.this);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(CustomerChangeLog.this, rows);
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            insert(rows);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(CustomerChangeLog.this);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.customer_api.changes;
+
+import com.example.customer_api.dto.CustomerChange;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Broker stand-in that appends each change as one JSON line to a file, forcing it to disk per
+ * batch. Downstream tools can tail the file.
+ */
+public class FileChangePublisher implements ChangePublisher {
+    private final Path file;
+    private final ObjectWriter writer;
+
+    public FileChangePublisher(Path file, ObjectMapper objectMapper) throws IOException {
+        this.file = file;
+        this.writer = objectMapper.writerFor(CustomerChange.class);
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+    }
+
+    @Override
+    public synchronized void publish(List<CustomerChange> changes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            OutputStream out = Channels.newOutputStream(channel);
+            for (CustomerChange change : changes) {
+                out.write(writer.writeValueAsBytes(change));
+                out.write('\n');
+            }
+            out.flush();
+            channel.force(false);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.customer_api.changes;
+
+import com.example.customer_api.dto.CustomerChange;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Broker stand-in inside the application: keeps the most recent {@code capacity} changes and
+ * passes each published change to in-process subscribers.
+ */
+public class InMemoryChangeBroker implements ChangePublisher {
+    private final int capacity;
+    private final Deque<CustomerChange> recent = new ArrayDeque<>();
+    private final List<Consumer<CustomerChange>> subscribers = new CopyOnWriteArrayList<>();
+
+    public InMemoryChangeBroker(int capacity) {
+        this.capacity = capacity;
+    }
+
+    @Override
+    public void publish(List<CustomerChange> changes) {
+        synchronized (recent) {
+            for (CustomerChange change : changes) {
+                if (recent.size() == capacity) {
+                    recent.removeFirst();
+                }
+                recent.addLast(change);
+            }
+        }
+        for (CustomerChange change : changes) {
+            subscribers.forEach(subscriber -> subscriber.accept(change));
+        }
+    }
+
+    public void subscribe(Consumer<CustomerChange> subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    public List<CustomerChange> recent() {
+        synchronized (recent) {
+            return new ArrayList<>(recent);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.customer_api.changes;
+
+import com.example.customer_api.dto.CustomerChange;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Moves committed changes from the outbox to a {@link ChangePublisher} in batches. Its position is
+ * the {@code customer_change_relay} row named after the relay; each pass locks that row, publishes
+ * the next batch and advances it in one transaction, so every instance can run a relay and only
+ * one publishes any given batch. A publish that fails is retried from the same position on the
+ * next pass, and a crash between publishing and committing republishes the batch: consumers see
+ * each change at least once, in sequence order.
+ *
+ * <p>Changes older than the retention that the relay has already published are purged once a
+ * minute; {@code GET /customers/changes} cannot serve sequences from before that point.
+ */
+public class OutboxRelay implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(OutboxRelay.class);
+    private static final Duration PURGE_INTERVAL = Duration.ofMinutes(1);
+
+    private final String name;
+    private final CustomerChangeLog changeLog;
+    private final ChangePublisher publisher;
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate transactions;
+    private final int batchSize;
+    private final Duration retention;
+    private final Clock clock;
+    private final Counter published;
+    private final AtomicLong position = new AtomicLong();
+    private final List<ScheduledFuture<?>> tasks = new CopyOnWriteArrayList<>();
+
+    public OutboxRelay(String name, CustomerChangeLog changeLog, ChangePublisher publisher, DataSource dataSource,
+                       PlatformTransactionManager transactionManager, int batchSize, Duration retention,
+                       MeterRegistry registry, Clock clock) {
+        this.name = name;
+        this.changeLog = changeLog;
+        this.publisher = publisher;
+        this.jdbc = new JdbcTemplate(dataSource);
+        this.transactions = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.retention = retention;
+        this.clock = clock;
+        this.published = Counter.builder("customer.changes.published")
+                .description("Changes delivered from the outbox to the publisher")
+                .tag("relay", name)
+                .register(registry);
+        Gauge.builder("customer.changes.relay.position", position, AtomicLong::get)
+                .description("Sequence of the last change the relay published")
+                .tag("relay", name)
+                .register(registry);
+    }
+
+    /** Starts relaying every {@code pollInterval} and purging once a minute on {@code scheduler}. */
+    public void start(TaskScheduler scheduler, Duration pollInterval) {
+        tasks.add(scheduler.scheduleWithFixedDelay(this::drainQuietly, pollInterval));
+        tasks.add(scheduler.scheduleWithFixedDelay(this::purgeQuietly, Instant.now().plus(PURGE_INTERVAL),
+                PURGE_INTERVAL));
+    }
+
+    /** Publishes batches until the outbox has nothing more to relay; returns the number published. */
+    public int drain() {
+        int total = 0;
+        int relayed;
+        do {
+            relayed = relayBatch();
+            total += relayed;
+        } while (relayed == batchSize);
+        return total;
+    }
+
+    int relayBatch() {
+        Integer relayed = transactions.execute(status -> {
+            long from = lockPosition();
+            List<CustomerChange> batch = changeLog.read(from, batchSize);
+            if (batch.isEmpty()) {
+                position.set(from);
+                return 0;
+            }
+            try {
+                publisher.publish(batch);
+            } catch (Exception e) {
+                throw new IllegalStateException("Publishing changes after sequence " + from + " failed", e);
+            }
+            long to = batch.get(batch.size() - 1).getSequence();
+            jdbc.update("update customer_change_relay set last_sequence = ? where relay_name = ?", to, name);
+            position.set(to);
+            return batch.size();
+        });
+        published.increment(relayed);
+        return relayed;
+    }
+
+    public long getPosition() {
+        return position.get();
+    }
+
+    // Blocks other instances' relays until this transaction ends
+    private long lockPosition() {
+        List<Long> current = jdbc.queryForList(
+                "select last_sequence from customer_change_relay where relay_name = ? for update", Long.class, name);
+        if (!current.isEmpty()) {
+            return current.get(0);
+        }
+        jdbc.update("insert into customer_change_relay (relay_name, last_sequence) values (?, 0)", name);
+        return 0;
+    }
+
+    private void drainQuietly() {
+        try {
+            drain();
+        } catch (RuntimeException e) {
+            // Includes losing the insert race for a new relay row; the next pass finds it
+            logger.warn("Outbox relay {} failed, retrying on the next pass", name, e);
+        }
+    }
+
+    private void purgeQuietly() {
+        try {
+            int purged = changeLog.purge(clock.instant().minus(retention), position.get());
+            if (purged > 0) {
+                logger.info("Purged {} relayed changes older than {}", purged, retention);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Purging relayed changes failed", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        tasks.forEach(task -> task.cancel(true));
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.customer_api.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Binary alternatives to JSON, chosen by the {@code Accept} and {@code Content-Type} headers:
+ * Smile ({@code application/x-jackson-smile}) and CBOR ({@code application/cbor}). Both carry
+ * the same fields as the JSON representation but are smaller and cheaper to parse, which
+ * matters for service-to-service list calls. The mappers are built from Boot's
+ * {@link Jackson2ObjectMapperBuilder} so they share the JSON mapper's settings and modules.
+ */
+@Configuration(proxyBeanMethods = false)
+public class BinaryFormatConfiguration {
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.customer_api.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.Executors;
+
+/**
+ * {@code customer.execution.mode=virtual}: Tomcat runs every request on its own virtual thread
+ * instead of the fixed worker pool, and async handlers (the NDJSON export) do too. Blocking JPA
+ * calls then park a cheap virtual thread, so in-flight requests are bounded by
+ * {@code server.tomcat.max-connections} and the connection pool rather than by
+ * {@code server.tomcat.threads.max}.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "customer.execution.mode", havingValue = "virtual")
+public class VirtualThreadConfiguration {
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> protocolHandler.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    @Bean
+    public WebMvcConfigurer virtualThreadAsyncSupport() {
+        return new WebMvcConfigurer() {
+            @Override
+            public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+                configurer.setTaskExecutor(new TaskExecutorAdapter(Executors.newVirtualThreadPerTaskExecutor()));
+            }
+        };
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.customer_api.controller;
+
+import com.example.customer_api.changes.ChangeStreamHub;
+import com.example.customer_api.changes.CustomerChangeLog;
+import com.example.customer_api.dto.CustomerChange;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+
+/**
+ * Incremental change feed. Clients keep the sequence of the last change they processed and pass
+ * it as {@code since}; an empty page means they are caught up.
+ */
+@RestController
+@RequestMapping("/customers/changes")
+public class CustomerChangesController {
+    static final String LAST_EVENT_ID_HEADER = "Last-Event-ID";
+
+    private final CustomerChangeLog changeLog;
+    private final ChangeStreamHub streamHub;
+    private final int defaultLimit;
+    private final int maxLimit;
+
+    public CustomerChangesController(CustomerChangeLog changeLog,
+                                     ChangeStreamHub streamHub,
+                                     @Value("${customer.list.default-limit:100}") int defaultLimit,
+                                     @Value("${customer.list.max-limit:1000}") int maxLimit) {
+        this.changeLog = changeLog;
+        this.streamHub = streamHub;
+        this.defaultLimit = defaultLimit;
+        this.maxLimit = maxLimit;
+    }
+
+    @GetMapping
+    public ResponseEntity<List<CustomerChange>> getChanges(@RequestParam(value = "since", defaultValue = "0") long since,
+                                                           @RequestParam(value = "limit", required = false) Integer limit) {
+        if (since < 0) {
+            throw new IllegalArgumentException("since must not be negative");
+        }
+        int size = limit == null ? defaultLimit : limit;
+        if (size < 1 || size > maxLimit) {
+            throw new IllegalArgumentException("limit must be between 1 and " + maxLimit);
+        }
+        return ResponseEntity.ok(changeLog.read(since, size));
+    }
+
+    // Last-Event-ID, sent by reconnecting EventSource clients, wins over the since the stream was opened with
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(@RequestParam(value = "since", defaultValue = "0") long since,
+                                    @RequestHeader(value = LAST_EVENT_ID_HEADER, required = false) Long lastEventId) {
+        long from = lastEventId != null ? lastEventId : since;
+        if (from < 0) {
+            throw new IllegalArgumentException("since must not be negative");
+        }
+        return streamHub.subscribe(from);
+    }
+}
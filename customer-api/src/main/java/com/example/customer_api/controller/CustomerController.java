@@ -1,55 +1,307 @@
 package com.example.customer_api.controller;
 
+import com.example.customer_api.dto.CustomerBatchResult;
+import com.example.customer_api.dto.CustomerLookupRequest;
+import com.example.customer_api.dto.CustomerSyncItem;
 import com.example.customer_api.entity.Customer;
 import com.example.customer_api.repository.CustomerRepository;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import com.example.customer_api.repository.CustomerScans;
+import com.example.customer_api.service.CustomerBatchService;
+import com.example.customer_api.service.CustomerExportService;
+import com.example.customer_api.service.CustomerLookupService;
+import com.example.customer_api.service.CustomerSearchService;
+import com.example.customer_api.service.CustomerService;
+import com.example.customer_api.service.CustomerSyncService;
+import com.example.customer_api.sharding.ShardedCustomerRepository;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import javax.validation.Valid;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/customers")
 public class CustomerController {
-    private static final Logger logger = LoggerFactory.getLogger(CustomerController.class);
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+    static final String MERGE_PATCH_JSON_VALUE = "application/merge-patch+json";
+    private static final String SORT_BY_ID = "id";
+    private static final String SORT_BY_EMAIL = "email";
+    private static final String SORT_BY_MODIFIED = "modified";
+
     private final CustomerRepository customerRepository;
+    private final CustomerScans customerScans;
+    private final boolean sharded;
+    private final CustomerService customerService;
+    private final CustomerExportService customerExportService;
+    private final CustomerBatchService customerBatchService;
+    private final CustomerSearchService customerSearchService;
+    private final CustomerSyncService customerSyncService;
+    private final CustomerLookupService customerLookupService;
+    private final int defaultPageSize;
+    private final int maxPageSize;
 
     @Autowired
-    public CustomerController(CustomerRepository customerRepository) {
+    public CustomerController(CustomerRepository customerRepository,
+                              ObjectProvider<ShardedCustomerRepository> shards,
+                              CustomerService customerService,
+                              CustomerExportService customerExportService,
+                              CustomerBatchService customerBatchService,
+                              CustomerSearchService customerSearchService,
+                              CustomerSyncService customerSyncService,
+                              CustomerLookupService customerLookupService,
+                              @Value("${customer.list.default-limit:100}") int defaultPageSize,
+                              @Value("${customer.list.max-limit:1000}") int maxPageSize) {
         this.customerRepository = customerRepository;
+        ShardedCustomerRepository sharded = shards.getIfAvailable();
+        this.customerScans = sharded != null ? sharded : customerRepository;
+        this.sharded = sharded != null;
+        this.customerService = customerService;
+        this.customerExportService = customerExportService;
+        this.customerBatchService = customerBatchService;
+        this.customerSearchService = customerSearchService;
+        this.customerSyncService = customerSyncService;
+        this.customerLookupService = customerLookupService;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
     }
 
     @GetMapping
-    public List<Customer> getAllCustomers() {
-        return customerRepository.findAll();
+    public ResponseEntity<List<Customer>> getAllCustomers(@RequestParam(value = "limit", required = false) Integer limit,
+                                                          @RequestParam(value = "sort", defaultValue = SORT_BY_ID) String sort,
+                                                          @RequestParam(value = "cursor", required = false) String cursor,
+                                                          @RequestParam(value = "page", required = false) Integer page) {
+        int size = resolveLimit(limit);
+        if (!SORT_BY_ID.equals(sort) && !SORT_BY_EMAIL.equals(sort)) {
+            throw new IllegalArgumentException("sort must be one of: id, email");
+        }
+        // Shards are merged in id order only; email order depends on each database's collation
+        if (sharded && (page != null || !SORT_BY_ID.equals(sort))) {
+            throw new IllegalArgumentException("Sharded customers can only be listed by cursor with sort=id");
+        }
+        if (page != null) {
+            return getCustomerPage(page, size, sort);
+        }
+
+        CustomerCursor after = cursor == null ? null : CustomerCursor.decode(cursor);
+        if (after != null && !after.getSort().equals(sort)) {
+            throw new IllegalArgumentException("cursor was issued for sort=" + after.getSort());
+        }
+
+        // Fetch one extra row to learn whether another page exists without a COUNT query
+        Pageable window = PageRequest.of(0, size + 1);
+        List<Customer> rows;
+        if (SORT_BY_EMAIL.equals(sort)) {
+            rows = after == null
+                    ? customerRepository.findAllByOrderByEmailAsc(window)
+                    : customerRepository.findByEmailGreaterThanOrderByEmailAsc(after.getValue(), window);
+        } else {
+            rows = after == null
+                    ? customerScans.findAllByOrderByIdAsc(window)
+                    : customerScans.findByIdGreaterThanOrderByIdAsc(parseCursorId(after.getValue()), window);
+        }
+
+        if (rows.size() <= size) {
+            return ResponseEntity.ok(rows);
+        }
+        List<Customer> items = rows.subList(0, size);
+        Customer last = items.get(size - 1);
+        String next = new CustomerCursor(sort,
+                SORT_BY_EMAIL.equals(sort) ? last.getEmail() : last.getId().toString()).encode();
+        String nextLink = ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam("cursor", next)
+                .toUriString();
+        return ResponseEntity.ok()
+                .header(NEXT_CURSOR_HEADER, next)
+                .header(HttpHeaders.LINK, "<" + nextLink + ">; rel=\"next\"")
+                .body(items);
+    }
+
+    /**
+     * Incremental sync: customers created, updated or deleted at or after {@code modifiedSince},
+     * oldest first. {@code X-Next-Cursor} is always set to the position after the last item; a
+     * {@code Link: rel="next"} header means more items are ready now. Clients store the cursor and
+     * send it (with any {@code modifiedSince}, even empty) on their next poll.
+     */
+    @GetMapping(params = "modifiedSince")
+    public ResponseEntity<List<CustomerSyncItem>> getModifiedCustomers(
+            @RequestParam(value = "modifiedSince", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant modifiedSince,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", required = false) Integer limit) {
+        int size = resolveLimit(limit);
+        Instant since = modifiedSince;
+        UUID afterId = CustomerSyncService.FIRST_ID;
+        if (cursor != null) {
+            CustomerCursor after = CustomerCursor.decode(cursor);
+            if (!after.getSort().equals(SORT_BY_MODIFIED)) {
+                throw new IllegalArgumentException("cursor was issued for sort=" + after.getSort());
+            }
+            int comma = after.getValue().indexOf(',');
+            try {
+                since = Instant.parse(after.getValue().substring(0, comma));
+                afterId = UUID.fromString(after.getValue().substring(comma + 1));
+            } catch (DateTimeParseException | IllegalArgumentException | IndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        } else if (since == null) {
+            throw new IllegalArgumentException("modifiedSince must be an ISO-8601 timestamp");
+        }
+
+        CustomerSyncService.SyncPage page = customerSyncService.findModifiedAfter(since, afterId, size);
+        List<CustomerSyncItem> items = page.getItems();
+        if (!items.isEmpty()) {
+            CustomerSyncItem last = items.get(items.size() - 1);
+            since = last.getModifiedAt();
+            afterId = last.getId();
+        }
+        String next = new CustomerCursor(SORT_BY_MODIFIED, since + "," + afterId).encode();
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().header(NEXT_CURSOR_HEADER, next);
+        if (page.hasMore()) {
+            String nextLink = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("cursor", next)
+                    .toUriString();
+            response.header(HttpHeaders.LINK, "<" + nextLink + ">; rel=\"next\"");
+        }
+        return response.body(items);
+    }
+
+    private ResponseEntity<List<Customer>> getCustomerPage(int page, int size, String sort) {
+        if (page < 0) {
+            throw new IllegalArgumentException("page must not be negative");
+        }
+        Page<Customer> result = customerRepository.findAll(PageRequest.of(page, size, Sort.by(sort)));
+        return ResponseEntity.ok()
+                .header(TOTAL_COUNT_HEADER, String.valueOf(result.getTotalElements()))
+                .body(result.getContent());
+    }
+
+    // Spring answers If-None-Match with 304 when it matches the ETag set here
+    private ResponseEntity<Customer> withETag(Customer customer) {
+        return ResponseEntity.ok()
+                .eTag(String.valueOf(customer.getVersion()))
+                .body(customer);
+    }
+
+    /**
+     * Reads the expected version from an If-Match header. A missing header or {@code *} means an
+     * unconditional write; anything that is not one of our strong ETags can never match.
+     */
+    private static Long parseIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            try {
+                return Long.parseLong(tag.substring(1, tag.length() - 1));
+            } catch (NumberFormatException ignored) {
+                // fall through
+            }
+        }
+        return -1L;
+    }
+
+    private int resolveLimit(Integer limit) {
+        if (limit == null) {
+            return defaultPageSize;
+        }
+        if (limit < 1 || limit > maxPageSize) {
+            throw new IllegalArgumentException("limit must be between 1 and " + maxPageSize);
+        }
+        return limit;
+    }
+
+    private static UUID parseCursorId(String value) {
+        try {
+            return UUID.fromString(value);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportCustomers() {
+        StreamingResponseBody body = customerExportService::exportTo;
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<List<Customer>> searchCustomers(@RequestParam("q") String query,
+                                                          @RequestParam(value = "page", defaultValue = "0") int page,
+                                                          @RequestParam(value = "size", required = false) Integer size) {
+        return ResponseEntity.ok(customerSearchService.search(query, page, resolveLimit(size)));
     }
 
     @PostMapping
     public ResponseEntity<Customer> createCustomer(@Valid @RequestBody Customer customer) {
-        Customer saved = customerRepository.save(customer);
-        return new ResponseEntity<>(saved, HttpStatus.CREATED);
+        Customer saved = customerService.create(customer);
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .eTag(String.valueOf(saved.getVersion()))
+                .body(saved);
+    }
+
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<CustomerBatchResult>> createCustomersBatch(@RequestBody List<Customer> customers) {
+        return ResponseEntity.ok(customerBatchService.upsert(customers));
+    }
+
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<List<CustomerBatchResult>> createCustomersBatchNdjson(InputStream body) throws IOException {
+        return ResponseEntity.ok(customerBatchService.upsert(customerBatchService.readNdjson(body)));
+    }
+
+    /**
+     * Multi-get: the customers with any of the given ids or emails, ids first in request order.
+     * Unknown keys are left out. The keys are resolved in batched {@code IN} queries.
+     */
+    @PostMapping(value = "/lookup", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<Customer>> lookUpCustomers(@RequestBody CustomerLookupRequest request) {
+        List<UUID> ids = request.getIds() == null ? List.of() : request.getIds();
+        List<String> emails = request.getEmails() == null ? List.of() : request.getEmails();
+        if (ids.stream().anyMatch(Objects::isNull) || emails.stream().anyMatch(Objects::isNull)) {
+            throw new IllegalArgumentException("ids and emails must not contain null");
+        }
+        return ResponseEntity.ok(customerLookupService.findAll(ids, emails));
     }
 
     @GetMapping("/{id}")
     public ResponseEntity<Customer> getCustomerById(@PathVariable("id") UUID id) {
-        logger.info("Requested ID: {}", id);
-        logger.info("All IDs in DB: {}", customerRepository.findAll().stream().map(Customer::getId).collect(Collectors.toList()));
-        return customerRepository.findById(id)
-                .map(ResponseEntity::ok)
+        return customerService.findById(id)
+                .map(this::withETag)
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
@@ -58,63 +310,36 @@ public class CustomerController {
         if (email == null || email.isBlank()) {
             return ResponseEntity.badRequest().build();
         }
-        return customerRepository.findByEmail(email)
-                .map(ResponseEntity::ok)
+        return customerService.findByEmail(email)
+                .map(this::withETag)
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<Customer> updateCustomer(@PathVariable("id") UUID id, @Valid @RequestBody Customer updatedCustomer) {
-        logger.info("Update requested for ID: {}", id);
-        logger.info("Update data: firstName={}, lastName={}, email={}", 
-                   updatedCustomer.getFirstName(), updatedCustomer.getLastName(), updatedCustomer.getEmail());
-        
-        try {
-            // Try to find the existing customer
-            Customer existing = customerRepository.findById(id).orElse(null);
-            
-            if (existing != null) {
-                logger.info("Found existing customer: firstName={}, lastName={}, email={}", 
-                           existing.getFirstName(), existing.getLastName(), existing.getEmail());
-                
-                // Update the existing customer's fields
-                existing.setFirstName(updatedCustomer.getFirstName());
-                existing.setMiddleName(updatedCustomer.getMiddleName());
-                existing.setLastName(updatedCustomer.getLastName());
-                existing.setEmail(updatedCustomer.getEmail());
-                existing.setPhoneNumber(updatedCustomer.getPhoneNumber());
-                
-                // Save the updated customer
-                Customer saved = customerRepository.save(existing);
-                logger.info("Successfully updated customer with ID: {}, firstName={}, lastName={}, email={}", 
-                           saved.getId(), saved.getFirstName(), saved.getLastName(), saved.getEmail());
-                
-                return ResponseEntity.ok(saved);
-            } else {
-                logger.info("Customer not found for ID: {}", id);
-                return ResponseEntity.notFound().build();
-            }
-        } catch (Exception e) {
-            logger.error("Error updating customer: {}", e.getMessage(), e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+    public ResponseEntity<Customer> updateCustomer(@PathVariable("id") UUID id,
+                                                   @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                   @Valid @RequestBody Customer updatedCustomer) {
+        Optional<Customer> saved = customerService.update(id, updatedCustomer, parseIfMatch(ifMatch));
+        if (saved.isEmpty()) {
+            return ResponseEntity.notFound().build();
         }
+        return withETag(saved.get());
+    }
+
+    @PatchMapping(value = "/{id}", consumes = {MERGE_PATCH_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<Customer> patchCustomer(@PathVariable("id") UUID id,
+                                                  @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                  @RequestBody Map<String, Object> patch) {
+        return customerService.patch(id, patch, parseIfMatch(ifMatch))
+                .map(this::withETag)
+                .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteCustomer(@PathVariable("id") UUID id) {
-        logger.info("Delete requested for ID: {}", id);
-        logger.info("All IDs in DB: {}", customerRepository.findAll().stream().map(Customer::getId).collect(Collectors.toList()));
-        
-        boolean exists = customerRepository.existsById(id);
-        logger.info("Customer exists: {}", exists);
-        
-        if (exists) {
-            customerRepository.deleteById(id);
-            logger.info("Customer deleted successfully");
-            return ResponseEntity.noContent().build();
-        } else {
-            logger.info("Customer not found for deletion");
+        if (!customerService.delete(id)) {
             return ResponseEntity.notFound().build();
         }
+        return ResponseEntity.noContent().build();
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,47 @@
+package com.example.customer_api.controller;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque keyset cursor for the customer listing. The token encodes the sort key and the
+ * last value returned so the next page can seek past it instead of using an OFFSET.
+ */
+final class CustomerCursor {
+    private static final char SEPARATOR = ':';
+
+    private final String sort;
+    private final String value;
+
+    CustomerCursor(String sort, String value) {
+        this.sort = sort;
+        this.value = value;
+    }
+
+    String getSort() {
+        return sort;
+    }
+
+    String getValue() {
+        return value;
+    }
+
+    String encode() {
+        String raw = sort + SEPARATOR + value;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static CustomerCursor decode(String token) {
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        int idx = raw.indexOf(SEPARATOR);
+        if (idx <= 0 || idx == raw.length() - 1) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        return new CustomerCursor(raw.substring(0, idx), raw.substring(idx + 1));
+    }
+}
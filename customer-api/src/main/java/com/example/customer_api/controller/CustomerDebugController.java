@@ -0,0 +1,36 @@
+package com.example.customer_api.controller;
+
+import com.example.customer_api.repository.CustomerRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Diagnostic endpoints, off unless {@code customer.debug.endpoints.enabled=true}.
+ */
+@RestController
+@RequestMapping("/customers/debug")
+@ConditionalOnProperty(name = "customer.debug.endpoints.enabled", havingValue = "true")
+public class CustomerDebugController {
+    private final CustomerRepository customerRepository;
+    private final int maxIds;
+
+    public CustomerDebugController(CustomerRepository customerRepository,
+                                   @Value("${customer.debug.max-ids:100}") int maxIds) {
+        this.customerRepository = customerRepository;
+        this.maxIds = maxIds;
+    }
+
+    @GetMapping("/ids")
+    public List<UUID> getCustomerIds(@RequestParam(value = "limit", required = false) Integer limit) {
+        int size = limit == null ? maxIds : Math.max(1, Math.min(limit, maxIds));
+        return customerRepository.findIds(PageRequest.of(0, size));
+    }
+}
@@ -1,6 +1,10 @@
 package com.example.customer_api.controller;
 
+import com.example.customer_api.service.SyncWindowExpiredException;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -10,19 +14,41 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 
+import javax.validation.ConstraintViolationException;
 import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
 
 @ControllerAdvice
 public class CustomerErrorHandler extends ResponseEntityExceptionHandler {
+    static final String VALIDATION_FAILURES_METRIC = "customer.validation.failures";
+
+    private final MeterRegistry meterRegistry;
+
+    public CustomerErrorHandler(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
     @Override
     protected ResponseEntity<Object> handleMethodArgumentNotValid(MethodArgumentNotValidException ex,
                                                                   HttpHeaders headers,
                                                                   HttpStatus status,
                                                                   WebRequest request) {
         Map<String, String> errors = new HashMap<>();
-        ex.getBindingResult().getFieldErrors().forEach(error ->
-                errors.put(error.getField(), error.getDefaultMessage()));
+        ex.getBindingResult().getFieldErrors().forEach(error -> {
+            errors.put(error.getField(), error.getDefaultMessage());
+            countValidationFailure(error.getField());
+        });
+        return new ResponseEntity<>(errors, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(ConstraintViolationException.class)
+    public ResponseEntity<Object> handleConstraintViolation(ConstraintViolationException ex) {
+        Map<String, String> errors = new HashMap<>();
+        ex.getConstraintViolations().forEach(violation -> {
+            errors.put(violation.getPropertyPath().toString(), violation.getMessage());
+            countValidationFailure(violation.getPropertyPath().toString());
+        });
         return new ResponseEntity<>(errors, HttpStatus.BAD_REQUEST);
     }
 
@@ -36,8 +62,35 @@ public class CustomerErrorHandler extends ResponseEntityExceptionHandler {
         return new ResponseEntity<>("Resource not found", HttpStatus.NOT_FOUND);
     }
 
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<Object> handleVersionConflict(OptimisticLockingFailureException ex) {
+        return new ResponseEntity<>("Customer was modified by another request", HttpStatus.PRECONDITION_FAILED);
+    }
+
+    // The unique email constraint (sharded: the email directory's key) is the only one a valid
+    // request can violate
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity<Object> handleDataIntegrityViolation(DataIntegrityViolationException ex) {
+        String cause = String.valueOf(ex.getMostSpecificCause().getMessage()).toLowerCase(Locale.ROOT);
+        String message = cause.contains("uk_customers_email") || cause.contains("customer_email_directory")
+                ? "A customer with this email already exists"
+                : "The request conflicts with existing data";
+        return new ResponseEntity<>(message, HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(SyncWindowExpiredException.class)
+    public ResponseEntity<Object> handleSyncWindowExpired(SyncWindowExpiredException ex) {
+        return new ResponseEntity<>(ex.getMessage(), HttpStatus.GONE);
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<Object> handleOtherExceptions(Exception ex) {
+        logger.error("Unhandled exception", ex);
         return new ResponseEntity<>("Internal server error", HttpStatus.INTERNAL_SERVER_ERROR);
     }
-} 
\ No newline at end of file
+
+    // Tagged by field only; customer fields are a small fixed set, so cardinality stays bounded
+    private void countValidationFailure(String field) {
+        meterRegistry.counter(VALIDATION_FAILURES_METRIC, "field", field).increment();
+    }
+}
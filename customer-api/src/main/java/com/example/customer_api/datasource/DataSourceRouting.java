@@ -0,0 +1,36 @@
+package com.example.customer_api.datasource;
+
+import java.util.function.Supplier;
+
+/**
+ * Per-thread override that pins reads to the primary database even inside read-only
+ * transactions. Has no effect unless read replicas are enabled.
+ */
+public final class DataSourceRouting {
+    private static final ThreadLocal<Boolean> PRIMARY_REQUIRED = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    private DataSourceRouting() {
+    }
+
+    public static boolean isPrimaryRequired() {
+        return PRIMARY_REQUIRED.get();
+    }
+
+    /**
+     * Runs {@code action} with every transaction it starts routed to the primary.
+     */
+    public static <T> T onPrimary(Supplier<T> action) {
+        boolean previous = requirePrimary(true);
+        try {
+            return action.get();
+        } finally {
+            requirePrimary(previous);
+        }
+    }
+
+    static boolean requirePrimary(boolean required) {
+        boolean previous = PRIMARY_REQUIRED.get();
+        PRIMARY_REQUIRED.set(required);
+        return previous;
+    }
+}
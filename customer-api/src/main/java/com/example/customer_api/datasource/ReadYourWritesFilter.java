@@ -0,0 +1,72 @@
+package com.example.customer_api.datasource;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Read-your-writes for clients of a replicated database: a write marks the client with a cookie,
+ * and until it expires all of that client's reads go to the primary, so replica lag never hides
+ * the client's own changes. The cookie carries its deadline, so this works across API replicas.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+    static final String COOKIE_NAME = "customer-primary-until";
+    private static final Set<String> READ_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+    // Queries that take their parameters in a POST body
+    private static final Set<String> READ_PATHS = Set.of("/customers/lookup");
+
+    private final Duration window;
+
+    public ReadYourWritesFilter(Duration window) {
+        this.window = window;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long now = System.currentTimeMillis();
+        boolean write = !READ_METHODS.contains(request.getMethod()) && !READ_PATHS.contains(request.getServletPath());
+        if (write && !window.isZero()) {
+            // Set before the handler runs: the response may be committed by the time it returns
+            Cookie cookie = new Cookie(COOKIE_NAME, String.valueOf(now + window.toMillis()));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge((int) Math.max(1, window.toSeconds()));
+            response.addCookie(cookie);
+        }
+        if (!write && stickyUntil(request) <= now) {
+            chain.doFilter(request, response);
+            return;
+        }
+        boolean previous = DataSourceRouting.requirePrimary(true);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            DataSourceRouting.requirePrimary(previous);
+        }
+    }
+
+    private static long stickyUntil(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return 0;
+        }
+        for (Cookie cookie : cookies) {
+            if (COOKIE_NAME.equals(cookie.getName())) {
+                try {
+                    return Long.parseLong(cookie.getValue());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+}
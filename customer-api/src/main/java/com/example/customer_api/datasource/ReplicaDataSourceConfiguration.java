@@ -0,0 +1,78 @@
+package com.example.customer_api.datasource;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.TaskScheduler;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code customer.datasource.replicas.enabled=true}: the application's DataSource becomes a
+ * {@link ReplicaRoutingDataSource} over the primary ({@code spring.datasource.*}) and one pool per
+ * URL in {@code customer.datasource.replicas.urls}. Replicas are expected to be kept in sync by
+ * the database; Flyway only migrates the primary.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "customer.datasource.replicas.enabled", havingValue = "true")
+public class ReplicaDataSourceConfiguration {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(
+            HikariDataSource primaryDataSource,
+            TaskScheduler taskScheduler,
+            @Value("${customer.datasource.replicas.urls}") List<String> urls,
+            @Value("${customer.datasource.replicas.username:${spring.datasource.username:}}") String username,
+            @Value("${customer.datasource.replicas.password:${spring.datasource.password:}}") String password,
+            @Value("${customer.datasource.replicas.pool-size:10}") int poolSize,
+            @Value("${customer.datasource.replicas.connection-timeout:1s}") Duration connectionTimeout,
+            @Value("${customer.datasource.replicas.health-check-interval:5s}") Duration healthCheckInterval) {
+        if (urls.isEmpty()) {
+            throw new IllegalStateException("customer.datasource.replicas.urls must list at least one replica");
+        }
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (int i = 0; i < urls.size(); i++) {
+            HikariConfig config = new HikariConfig();
+            config.setPoolName("customer-replica-" + i);
+            config.setJdbcUrl(urls.get(i));
+            config.setUsername(username);
+            config.setPassword(password);
+            config.setMaximumPoolSize(poolSize);
+            config.setConnectionTimeout(connectionTimeout.toMillis());
+            config.setReadOnly(true);
+            // Start even when a replica is down; the health check brings it in later
+            config.setInitializationFailTimeout(-1);
+            replicas.put(config.getPoolName(), new HikariDataSource(config));
+        }
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas, taskScheduler, healthCheckInterval);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    @Bean
+    public ReadYourWritesFilter readYourWritesFilter(
+            @Value("${customer.datasource.replicas.read-your-writes:5s}") Duration window) {
+        return new ReadYourWritesFilter(window);
+    }
+}
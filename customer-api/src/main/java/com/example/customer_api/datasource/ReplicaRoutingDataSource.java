@@ -0,0 +1,186 @@
+package com.example.customer_api.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToIntFunction;
+
+/**
+ * Sends read-only transactions round-robin to healthy read replicas and everything else to the
+ * primary. Must sit behind a {@code LazyConnectionDataSourceProxy}: the transaction's read-only
+ * flag is only known once the physical connection is first used.
+ *
+ * <p>A replica that fails to hand out a connection, or fails the periodic health check, is taken
+ * out of rotation and the read falls back to the primary; it rejoins once a health check passes.
+ * Replica health and pool usage are published as metrics tagged with the replica's pool name.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements MeterBinder, Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+    private static final String PRIMARY = "primary";
+    private static final int VALIDATION_TIMEOUT_SECONDS = 1;
+
+    private final DataSource primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final AtomicInteger next = new AtomicInteger();
+    private final ScheduledFuture<?> healthChecks;
+
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, TaskScheduler scheduler,
+                                    Duration healthCheckInterval) {
+        this.primary = primary;
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        replicas.forEach((name, dataSource) -> {
+            Replica replica = new Replica(name, dataSource);
+            this.replicas.add(replica);
+            targets.put(replica, dataSource);
+        });
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+
+        healthChecks = scheduler.scheduleWithFixedDelay(this::checkReplicas, Instant.now().plus(healthCheckInterval),
+                healthCheckInterval);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (DataSourceRouting.isPrimaryRequired() || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return PRIMARY;
+        }
+        int count = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), count);
+        for (int i = 0; i < count; i++) {
+            Replica replica = replicas.get((start + i) % count);
+            if (replica.healthy) {
+                return replica;
+            }
+        }
+        return PRIMARY;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Object key = determineCurrentLookupKey();
+        if (key instanceof Replica) {
+            Replica replica = (Replica) key;
+            try {
+                return replica.dataSource.getConnection();
+            } catch (SQLException e) {
+                markDown(replica, e);
+            }
+        }
+        return primary.getConnection();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (Replica replica : replicas) {
+            Gauge.builder("customer.datasource.replica.healthy", replica, r -> r.healthy ? 1 : 0)
+                    .description("Whether the read replica is in rotation")
+                    .tag("pool", replica.name)
+                    .register(registry);
+            if (replica.dataSource instanceof HikariDataSource) {
+                HikariDataSource pool = (HikariDataSource) replica.dataSource;
+                poolGauge(registry, "hikaricp.connections.active", replica.name, pool, HikariPoolMXBean::getActiveConnections);
+                poolGauge(registry, "hikaricp.connections.idle", replica.name, pool, HikariPoolMXBean::getIdleConnections);
+                poolGauge(registry, "hikaricp.connections.pending", replica.name, pool, HikariPoolMXBean::getThreadsAwaitingConnection);
+            }
+        }
+    }
+
+    private static void poolGauge(MeterRegistry registry, String name, String poolName, HikariDataSource pool,
+                                  ToIntFunction<HikariPoolMXBean> value) {
+        Gauge.builder(name, pool, p -> p.getHikariPoolMXBean() == null ? 0 : value.applyAsInt(p.getHikariPoolMXBean()))
+                .tag("pool", poolName)
+                .register(registry);
+    }
+
+    private void checkReplicas() {
+        for (Replica replica : replicas) {
+            try {
+                if (validate(replica.dataSource)) {
+                    if (!replica.healthy) {
+                        replica.healthy = true;
+                        logger.info("Read replica {} is back in rotation", replica.name);
+                    }
+                } else {
+                    markDown(replica, null);
+                }
+            } catch (SQLException | RuntimeException e) {
+                markDown(replica, e);
+            }
+        }
+    }
+
+    // A dead connection is evicted rather than returned, otherwise the pool hands the same broken
+    // connection to every following check without revalidating it
+    private static boolean validate(DataSource dataSource) throws SQLException {
+        Connection connection = dataSource.getConnection();
+        boolean valid = false;
+        try {
+            valid = connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+            return valid;
+        } finally {
+            if (!valid && dataSource instanceof HikariDataSource) {
+                ((HikariDataSource) dataSource).evictConnection(connection);
+            } else {
+                connection.close();
+            }
+        }
+    }
+
+    private static void markDown(Replica replica, Exception cause) {
+        if (replica.healthy) {
+            replica.healthy = false;
+            logger.warn("Read replica {} is unavailable, reading from the primary: {}", replica.name,
+                    cause == null ? "connection is not valid" : cause.getMessage());
+        }
+    }
+
+    /**
+     * Stops health checks and closes the replica pools; the primary is owned by its bean.
+     */
+    @Override
+    public void close() {
+        healthChecks.cancel(true);
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof Closeable) {
+                try {
+                    ((Closeable) replica.dataSource).close();
+                } catch (Exception e) {
+                    logger.warn("Failed to close read replica {}", replica.name, e);
+                }
+            }
+        }
+    }
+
+    private static final class Replica {
+        private final String name;
+        private final DataSource dataSource;
+        private volatile boolean healthy = true;
+
+        private Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.customer_api.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Outcome of one item of a {@code POST /customers/batch} request, reported at the item's
+ * position in the request body.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CustomerBatchResult {
+    public enum Status { CREATED, UPDATED, INVALID }
+
+    private int index;
+    private Status status;
+    private UUID id;
+    private Map<String, String> errors;
+}
@@ -0,0 +1,31 @@
+package com.example.customer_api.dto;
+
+import com.example.customer_api.entity.Customer;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * One entry of the customer change feed ({@code GET /customers/changes}). {@code customer} is the
+ * state after the change and is absent for deletes; {@code version} is the customer's new ETag.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CustomerChange {
+    public enum Type { CREATED, UPDATED, DELETED }
+
+    private long sequence;
+    private Type type;
+    private UUID customerId;
+    private Long version;
+    private Instant changedAt;
+    private Customer customer;
+}
@@ -0,0 +1,22 @@
+package com.example.customer_api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Body of {@code POST /customers/lookup}: the ids and emails to resolve in one request. Either
+ * list may be omitted.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CustomerLookupRequest {
+    private List<UUID> ids;
+    private List<String> emails;
+}
@@ -0,0 +1,27 @@
+package com.example.customer_api.dto;
+
+import com.example.customer_api.entity.Customer;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * One entry of {@code GET /customers?modifiedSince=}: the current state of a created or updated
+ * customer, or a tombstone ({@code deleted}, no {@code customer}) for a deleted one.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CustomerSyncItem {
+    private UUID id;
+    private Instant modifiedAt;
+    private boolean deleted;
+    private Customer customer;
+}
@@ -1,11 +1,17 @@
 package com.example.customer_api.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
 import javax.persistence.Table;
 import javax.persistence.UniqueConstraint;
+import javax.persistence.Version;
 import javax.validation.constraints.Email;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
@@ -13,12 +19,23 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.annotations.GenericGenerator;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Locale;
 import java.util.UUID;
 
 @Entity
+@DynamicUpdate
 @Table(name = "customers", uniqueConstraints = {
         @UniqueConstraint(columnNames = "email")
+}, indexes = {
+        @Index(name = "idx_customers_last_name_norm", columnList = "last_name_norm, id"),
+        @Index(name = "idx_customers_first_name_norm", columnList = "first_name_norm, id"),
+        @Index(name = "idx_customers_phone_number_norm", columnList = "phone_number_norm, id"),
+        @Index(name = "idx_customers_email_norm", columnList = "email_norm, id"),
+        @Index(name = "idx_customers_updated_at", columnList = "updated_at, id")
 })
 @Data
 @NoArgsConstructor
@@ -28,7 +45,7 @@ public class Customer {
     @Id
     @GeneratedValue(generator = "UUID")
     @GenericGenerator(name = "UUID", strategy = "org.hibernate.id.UUIDGenerator")
-    @Column(name = "id", updatable = false, nullable = false)
+    @Column(name = "id", length = 16, updatable = false, nullable = false)
     private UUID id;
 
     @NotBlank(message = "First name is required")
@@ -50,4 +67,85 @@ public class Customer {
     @NotBlank(message = "Phone number is required")
     @Column(name = "phone_number", nullable = false)
     private String phoneNumber;
+
+    // Exposed to clients as the ETag rather than in the body
+    @Version
+    @JsonIgnore
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    // Search keys derived from the columns above: lower-cased names and email, and the phone
+    // number's digits reversed so a suffix match becomes an indexable prefix match.
+    @JsonIgnore
+    @Column(name = "first_name_norm")
+    private String firstNameNorm;
+
+    @JsonIgnore
+    @Column(name = "last_name_norm")
+    private String lastNameNorm;
+
+    @JsonIgnore
+    @Column(name = "phone_number_norm")
+    private String phoneNumberNorm;
+
+    @JsonIgnore
+    @Column(name = "email_norm")
+    private String emailNorm;
+
+    // Stamped by the server on every write (UTC, microsecond precision like the columns); values sent
+    // by clients are overwritten
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    @PrePersist
+    void onCreate() {
+        createdAt = now();
+        updatedAt = createdAt;
+        normalizeSearchColumns();
+    }
+
+    @PreUpdate
+    void onUpdate() {
+        updatedAt = now();
+        normalizeSearchColumns();
+    }
+
+    /** Stamps a write that bypasses the entity callbacks, such as a bulk UPDATE. */
+    public void touch() {
+        updatedAt = now();
+    }
+
+    public static Instant now() {
+        return Instant.now().truncatedTo(ChronoUnit.MICROS);
+    }
+
+    public void normalizeSearchColumns() {
+        firstNameNorm = normalizeName(firstName);
+        lastNameNorm = normalizeName(lastName);
+        phoneNumberNorm = normalizePhoneNumber(phoneNumber);
+        emailNorm = normalizeName(email);
+    }
+
+    public static String normalizeName(String name) {
+        return name == null ? null : name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    public static String normalizePhoneNumber(String phoneNumber) {
+        if (phoneNumber == null) {
+            return null;
+        }
+        StringBuilder digits = new StringBuilder(phoneNumber.length());
+        for (int i = phoneNumber.length() - 1; i >= 0; i--) {
+            char c = phoneNumber.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            }
+        }
+        return digits.toString();
+    }
 } 
\ No newline at end of file
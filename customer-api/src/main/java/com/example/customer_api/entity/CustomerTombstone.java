@@ -0,0 +1,33 @@
+package com.example.customer_api.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Marker left by a deleted customer so incremental sync clients learn about the delete. Kept
+ * for {@code customer.sync.tombstone-retention}.
+ */
+@Entity
+@Table(name = "customer_tombstones", indexes = {
+        @Index(name = "idx_customer_tombstones_deleted_at", columnList = "deleted_at, id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CustomerTombstone {
+    @Id
+    @Column(name = "id", length = 16, updatable = false, nullable = false)
+    private UUID id;
+
+    @Column(name = "deleted_at", nullable = false)
+    private Instant deletedAt;
+}
@@ -0,0 +1,49 @@
+package com.example.customer_api.idempotency;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.scheduling.TaskScheduler;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * {@code Idempotency-Key} support for {@code POST /customers}. {@code customer.idempotency.store}
+ * selects where responses are kept: {@code memory} (default, per instance) or {@code jdbc} (the
+ * {@code idempotency_keys} table, shared by all replicas).
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "customer.idempotency.enabled", havingValue = "true", matchIfMissing = true)
+public class IdempotencyConfiguration {
+
+    @Bean
+    @ConditionalOnProperty(name = "customer.idempotency.store", havingValue = "jdbc")
+    public JdbcIdempotencyStore jdbcIdempotencyStore(DataSource dataSource, TaskScheduler taskScheduler,
+                                                     @Value("${customer.idempotency.ttl:24h}") Duration ttl,
+                                                     @Value("${customer.idempotency.claim-timeout:30s}") Duration claimTimeout) {
+        JdbcIdempotencyStore store = new JdbcIdempotencyStore(dataSource, ttl, claimTimeout);
+        store.start(taskScheduler);
+        return store;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "customer.idempotency.store", havingValue = "memory", matchIfMissing = true)
+    public InMemoryIdempotencyStore inMemoryIdempotencyStore(@Value("${customer.idempotency.ttl:24h}") Duration ttl,
+                                                             @Value("${customer.idempotency.max-entries:100000}") long maxEntries,
+                                                             @Value("${customer.idempotency.claim-timeout:30s}") Duration claimTimeout) {
+        return new InMemoryIdempotencyStore(ttl, maxEntries, claimTimeout);
+    }
+
+    // After rate limiting, so replays still cost the client tokens
+    @Bean
+    public FilterRegistrationBean<IdempotencyFilter> idempotencyFilter(IdempotencyStore store) {
+        FilterRegistrationBean<IdempotencyFilter> registration = new FilterRegistrationBean<>(new IdempotencyFilter(store));
+        registration.addUrlPatterns("/customers");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 20);
+        return registration;
+    }
+}
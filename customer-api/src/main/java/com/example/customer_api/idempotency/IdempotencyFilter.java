@@ -0,0 +1,177 @@
+package com.example.customer_api.idempotency;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Makes POSTs sent with an {@code Idempotency-Key} header safe to retry. The first request with a
+ * key runs normally and its response is stored. A retry with the same key and body gets the stored
+ * response, marked {@code Idempotent-Replayed: true}, without reaching the controller or the
+ * database.
+ *
+ * <p>A retry that arrives while the first request is still running gets 409. Reusing a key for a
+ * different body gets 422. Server errors are not stored, so the request can be retried for real.
+ * Keys are namespaced by the caller's {@code X-API-Key} so independent clients' keys cannot
+ * collide. That header is not authenticated, so this is not access control. A stored response
+ * is only replayed for the same key and the same body, so keys must be unguessable, such as
+ * random UUIDs.
+ */
+public class IdempotencyFilter extends OncePerRequestFilter {
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    public static final String API_KEY_HEADER = "X-API-Key";
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyStore store;
+
+    public IdempotencyFilter(IdempotencyStore store) {
+        this.store = store;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod()) || request.getHeader(IDEMPOTENCY_KEY_HEADER) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String idempotencyKey = request.getHeader(IDEMPOTENCY_KEY_HEADER);
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            response.sendError(HttpStatus.BAD_REQUEST.value(),
+                    IDEMPOTENCY_KEY_HEADER + " must be 1 to " + MAX_KEY_LENGTH + " characters");
+            return;
+        }
+        byte[] body = StreamUtils.copyToByteArray(request.getInputStream());
+        String apiKey = request.getHeader(API_KEY_HEADER);
+        String key = sha256((apiKey == null ? "" : apiKey) + "\n" + idempotencyKey);
+        String fingerprint = sha256(request.getMethod() + " " + request.getRequestURI() + "\n"
+                + new String(body, StandardCharsets.UTF_8));
+
+        IdempotencyStore.Claim claim = store.claim(key, fingerprint);
+        switch (claim.getOutcome()) {
+            case COMPLETED:
+                replay(claim.getResponse(), response);
+                return;
+            case IN_PROGRESS:
+                response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+                response.sendError(HttpStatus.CONFLICT.value(), "A request with this " + IDEMPOTENCY_KEY_HEADER
+                        + " is still being processed");
+                return;
+            case MISMATCH:
+                response.sendError(HttpStatus.UNPROCESSABLE_ENTITY.value(), IDEMPOTENCY_KEY_HEADER
+                        + " was already used for a different request");
+                return;
+            default:
+                break;
+        }
+
+        ContentCachingResponseWrapper recorded = new ContentCachingResponseWrapper(response);
+        boolean stored = false;
+        try {
+            chain.doFilter(new CachedBodyRequest(request, body), recorded);
+            if (recorded.getStatus() < 500) {
+                store.complete(key, new StoredResponse(recorded.getStatus(), recorded.getContentType(),
+                        recorded.getHeader(HttpHeaders.ETAG), recorded.getContentAsByteArray()));
+                stored = true;
+            }
+        } finally {
+            if (!stored) {
+                store.release(key);
+            }
+            recorded.copyBodyToResponse();
+        }
+    }
+
+    private static void replay(StoredResponse stored, HttpServletResponse response) throws IOException {
+        response.setStatus(stored.getStatus());
+        response.setHeader(REPLAYED_HEADER, "true");
+        if (stored.getContentType() != null) {
+            response.setContentType(stored.getContentType());
+        }
+        if (stored.getETag() != null) {
+            response.setHeader(HttpHeaders.ETAG, stored.getETag());
+        }
+        if (stored.getBody() != null) {
+            response.setContentLength(stored.getBody().length);
+            response.getOutputStream().write(stored.getBody());
+        }
+    }
+
+    private static String sha256(String value) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                    .digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** The request with its body already read, so it can be fingerprinted and still be parsed. */
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+        private final byte[] body;
+
+        private CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        @Override
+        public int getContentLength() {
+            return body.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return body.length;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.customer_api.idempotency;
+
+/**
+ * Remembers the response to each request sent with an {@code Idempotency-Key}, so a retry
+ * receives the original response instead of being executed again.
+ *
+ * <p>A key is first {@link #claim claimed}, which only one request can do at a time, then either
+ * {@link #complete completed} with the response or {@link #release released} so a retry may run
+ * again. A claim that is neither completed nor released (the instance died) lapses after a
+ * timeout.
+ */
+public interface IdempotencyStore {
+
+    Claim claim(String key, String fingerprint);
+
+    void complete(String key, StoredResponse response);
+
+    void release(String key);
+
+    enum Outcome {
+        /** The caller owns the key and must complete or release it. */
+        ACQUIRED,
+        /** Another request with this key is still running. */
+        IN_PROGRESS,
+        /** The key was used for a request with a different fingerprint. */
+        MISMATCH,
+        /** The key already has a response; see {@link Claim#getResponse()}. */
+        COMPLETED
+    }
+
+    final class Claim {
+        private static final Claim ACQUIRED = new Claim(Outcome.ACQUIRED, null);
+        private static final Claim IN_PROGRESS = new Claim(Outcome.IN_PROGRESS, null);
+        private static final Claim MISMATCH = new Claim(Outcome.MISMATCH, null);
+
+        private final Outcome outcome;
+        private final StoredResponse response;
+
+        private Claim(Outcome outcome, StoredResponse response) {
+            this.outcome = outcome;
+            this.response = response;
+        }
+
+        static Claim acquired() {
+            return ACQUIRED;
+        }
+
+        static Claim inProgress() {
+            return IN_PROGRESS;
+        }
+
+        static Claim mismatch() {
+            return MISMATCH;
+        }
+
+        static Claim completed(StoredResponse response) {
+            return new Claim(Outcome.COMPLETED, response);
+        }
+
+        public Outcome getOutcome() {
+            return outcome;
+        }
+
+        public StoredResponse getResponse() {
+            return response;
+        }
+    }
+}
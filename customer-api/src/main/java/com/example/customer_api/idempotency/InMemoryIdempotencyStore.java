@@ -0,0 +1,67 @@
+package com.example.customer_api.idempotency;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+
+/**
+ * Idempotency store local to one instance: a Caffeine cache bounded to {@code maxEntries} and
+ * evicting responses {@code ttl} after they were stored. Only suitable when all retries of a
+ * request reach the same instance; use {@link JdbcIdempotencyStore} behind a load balancer.
+ */
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+    private final Cache<String, Entry> entries;
+    private final long claimTimeoutNanos;
+
+    public InMemoryIdempotencyStore(Duration ttl, long maxEntries, Duration claimTimeout) {
+        this.entries = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxEntries)
+                .build();
+        this.claimTimeoutNanos = claimTimeout.toNanos();
+    }
+
+    @Override
+    public Claim claim(String key, String fingerprint) {
+        long now = System.nanoTime();
+        Claim[] result = new Claim[1];
+        entries.asMap().compute(key, (k, existing) -> {
+            if (existing == null || (existing.response == null && now - existing.claimedAt > claimTimeoutNanos)) {
+                result[0] = Claim.acquired();
+                return new Entry(fingerprint, now, null);
+            }
+            if (!existing.fingerprint.equals(fingerprint)) {
+                result[0] = Claim.mismatch();
+            } else if (existing.response == null) {
+                result[0] = Claim.inProgress();
+            } else {
+                result[0] = Claim.completed(existing.response);
+            }
+            return existing;
+        });
+        return result[0];
+    }
+
+    @Override
+    public void complete(String key, StoredResponse response) {
+        entries.asMap().computeIfPresent(key, (k, existing) -> new Entry(existing.fingerprint, existing.claimedAt, response));
+    }
+
+    @Override
+    public void release(String key) {
+        entries.invalidate(key);
+    }
+
+    private static final class Entry {
+        private final String fingerprint;
+        private final long claimedAt;
+        private final StoredResponse response;
+
+        private Entry(String fingerprint, long claimedAt, StoredResponse response) {
+            this.fingerprint = fingerprint;
+            this.claimedAt = claimedAt;
+            this.response = response;
+        }
+    }
+}
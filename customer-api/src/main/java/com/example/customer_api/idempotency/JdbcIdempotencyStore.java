@@ -0,0 +1,106 @@
+package com.example.customer_api.idempotency;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.TaskScheduler;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Idempotency store in the {@code idempotency_keys} table, shared by all instances. A claim is a
+ * row without a status, expiring after the claim timeout; completing it stores the response and
+ * moves its expiry out to the TTL. The primary key makes concurrent claims of one key exclusive.
+ * Once started, expired rows are purged once a minute.
+ */
+public class JdbcIdempotencyStore implements IdempotencyStore, Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(JdbcIdempotencyStore.class);
+    private static final Duration PURGE_INTERVAL = Duration.ofMinutes(1);
+
+    private final JdbcTemplate jdbc;
+    private final Clock clock;
+    private final long ttlMillis;
+    private final long claimTimeoutMillis;
+    private volatile ScheduledFuture<?> purger;
+
+    public JdbcIdempotencyStore(DataSource dataSource, Duration ttl, Duration claimTimeout) {
+        this(dataSource, ttl, claimTimeout, Clock.systemUTC());
+    }
+
+    JdbcIdempotencyStore(DataSource dataSource, Duration ttl, Duration claimTimeout, Clock clock) {
+        this.jdbc = new JdbcTemplate(dataSource);
+        this.clock = clock;
+        this.ttlMillis = ttl.toMillis();
+        this.claimTimeoutMillis = claimTimeout.toMillis();
+    }
+
+    /** Starts purging expired rows on {@code scheduler}. */
+    public void start(TaskScheduler scheduler) {
+        purger = scheduler.scheduleWithFixedDelay(this::purgeExpired, Instant.now().plus(PURGE_INTERVAL), PURGE_INTERVAL);
+    }
+
+    @Override
+    public Claim claim(String key, String fingerprint) {
+        long now = clock.millis();
+        // A lapsed claim or an expired response no longer counts
+        jdbc.update("delete from idempotency_keys where request_key = ? and expires_at <= ?", key, now);
+        try {
+            jdbc.update("insert into idempotency_keys (request_key, fingerprint, expires_at) values (?, ?, ?)",
+                    key, fingerprint, now + claimTimeoutMillis);
+            return Claim.acquired();
+        } catch (DuplicateKeyException e) {
+            List<Claim> existing = jdbc.query(
+                    "select fingerprint, status, content_type, etag, body from idempotency_keys where request_key = ?",
+                    (rs, rowNum) -> {
+                        if (!fingerprint.equals(rs.getString("fingerprint"))) {
+                            return Claim.mismatch();
+                        }
+                        int status = rs.getInt("status");
+                        if (rs.wasNull()) {
+                            return Claim.inProgress();
+                        }
+                        return Claim.completed(new StoredResponse(status, rs.getString("content_type"),
+                                rs.getString("etag"), rs.getBytes("body")));
+                    }, key);
+            // Released between our insert and select: treat as still contended, the client retries
+            return existing.isEmpty() ? Claim.inProgress() : existing.get(0);
+        }
+    }
+
+    @Override
+    public void complete(String key, StoredResponse response) {
+        jdbc.update("update idempotency_keys set status = ?, content_type = ?, etag = ?, body = ?, expires_at = ? "
+                        + "where request_key = ?",
+                response.getStatus(), response.getContentType(), response.getETag(), response.getBody(),
+                clock.millis() + ttlMillis, key);
+    }
+
+    @Override
+    public void release(String key) {
+        jdbc.update("delete from idempotency_keys where request_key = ? and status is null", key);
+    }
+
+    void purgeExpired() {
+        try {
+            jdbc.update("delete from idempotency_keys where expires_at <= ?", clock.millis());
+        } catch (DataAccessException e) {
+            logger.warn("Could not purge expired idempotency keys", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        ScheduledFuture<?> purger = this.purger;
+        if (purger != null) {
+            purger.cancel(true);
+        }
+    }
+}
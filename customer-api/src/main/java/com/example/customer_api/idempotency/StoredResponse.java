@@ -0,0 +1,34 @@
+package com.example.customer_api.idempotency;
+
+/**
+ * The parts of a response that are replayed for a repeated request.
+ */
+public final class StoredResponse {
+    private final int status;
+    private final String contentType;
+    private final String eTag;
+    private final byte[] body;
+
+    public StoredResponse(int status, String contentType, String eTag, byte[] body) {
+        this.status = status;
+        this.contentType = contentType;
+        this.eTag = eTag;
+        this.body = body;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getETag() {
+        return eTag;
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.customer_api.logging;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Async appender that never makes a caller wait for INFO and below: once the queue is down to its
+ * discarding threshold (or full) such events are dropped and counted. WARN and ERROR events are
+ * never dropped; they block until there is room. Use with {@code neverBlock=false}.
+ *
+ * <p>Drop counts are kept per appender name and survive logging reconfiguration, so
+ * {@link LoggingMetrics} can publish them.
+ */
+public class CountingAsyncAppender extends AsyncAppender {
+    private static final Map<String, LongAdder> DROPPED = new ConcurrentHashMap<>();
+
+    private LongAdder dropped;
+
+    @Override
+    public void start() {
+        dropped = DROPPED.computeIfAbsent(getName(), name -> new LongAdder());
+        super.start();
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        if (isDiscardable(event)) {
+            int remaining = getRemainingCapacity();
+            if (remaining == 0 || remaining < getDiscardingThreshold()) {
+                dropped.increment();
+                return;
+            }
+        }
+        super.append(event);
+    }
+
+    static long droppedEvents(String appenderName) {
+        LongAdder counter = DROPPED.get(appenderName);
+        return counter == null ? 0 : counter.sum();
+    }
+}
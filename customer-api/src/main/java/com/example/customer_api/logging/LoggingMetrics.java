@@ -0,0 +1,46 @@
+package com.example.customer_api.logging;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+
+/**
+ * Publishes {@code logging.async.dropped} and {@code logging.async.queue.remaining} for every
+ * {@link CountingAsyncAppender} attached to the root logger.
+ */
+@Component
+public class LoggingMetrics implements MeterBinder {
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (!(LoggerFactory.getILoggerFactory() instanceof LoggerContext)) {
+            return;
+        }
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        Logger root = context.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+        for (Iterator<Appender<ILoggingEvent>> it = root.iteratorForAppenders(); it.hasNext(); ) {
+            Appender<ILoggingEvent> appender = it.next();
+            if (appender instanceof CountingAsyncAppender) {
+                String name = appender.getName();
+                FunctionCounter.builder("logging.async.dropped", name, CountingAsyncAppender::droppedEvents)
+                        .description("Log events dropped because the async queue was full")
+                        .tag("appender", name)
+                        .register(registry);
+                Gauge.builder("logging.async.queue.remaining", (CountingAsyncAppender) appender,
+                                CountingAsyncAppender::getRemainingCapacity)
+                        .description("Free slots in the async logging queue")
+                        .tag("appender", name)
+                        .register(registry);
+            }
+        }
+    }
+}
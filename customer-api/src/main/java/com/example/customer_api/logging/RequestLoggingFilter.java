@@ -0,0 +1,74 @@
+package com.example.customer_api.logging;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * One structured log line per request. Successful requests are sampled at
+ * {@code customer.logging.request-sample-rate}; client errors are always logged at WARN and
+ * server errors at ERROR.
+ */
+@Component
+public class RequestLoggingFilter extends OncePerRequestFilter {
+    private static final Logger logger = LoggerFactory.getLogger(RequestLoggingFilter.class);
+
+    private final double sampleRate;
+
+    public RequestLoggingFilter(@Value("${customer.logging.request-sample-rate:0.01}") double sampleRate) {
+        if (sampleRate < 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("customer.logging.request-sample-rate must be between 0 and 1");
+        }
+        this.sampleRate = sampleRate;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            chain.doFilter(request, response);
+            failed = false;
+        } finally {
+            // An exception escaping the chain ends as a 500 regardless of the status set so far
+            log(request, failed ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR : response.getStatus(),
+                    (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    private void log(HttpServletRequest request, int status, long durationMs) {
+        if (status >= 500) {
+            logger.error("request", kv("method", request.getMethod()), kv("uri", uri(request)),
+                    kv("status", status), kv("durationMs", durationMs));
+        } else if (status >= 400) {
+            logger.warn("request", kv("method", request.getMethod()), kv("uri", uri(request)),
+                    kv("status", status), kv("durationMs", durationMs));
+        } else if (logger.isInfoEnabled() && sampled()) {
+            logger.info("request", kv("method", request.getMethod()), kv("uri", uri(request)),
+                    kv("status", status), kv("durationMs", durationMs));
+        }
+    }
+
+    private boolean sampled() {
+        return sampleRate >= 1 || (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate);
+    }
+
+    // Prefer the matched route (/customers/{id}) so ids and emails do not end up in logs
+    private static String uri(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern != null ? pattern.toString() : request.getRequestURI();
+    }
+}
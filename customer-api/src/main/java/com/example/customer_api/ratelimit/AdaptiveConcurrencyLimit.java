@@ -0,0 +1,70 @@
+package com.example.customer_api.ratelimit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency limit that adapts to latency (additive increase, multiplicative decrease). Every
+ * request that completes within {@code latencyThreshold} while the limit was actually in use
+ * raises the limit by {@code 1/limit}, so about one per limit's worth of requests. A slower
+ * request or a server error cuts it by {@code backoffRatio}. Once the database or the pool starts
+ * queueing, latency rises and the limit falls until the excess requests are shed, instead of
+ * piling up in front of the pool.
+ */
+final class AdaptiveConcurrencyLimit {
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private double limit;
+
+    AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, long latencyThresholdNanos, double backoffRatio) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Concurrency limits must satisfy 1 <= min <= max");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = latencyThresholdNanos;
+        this.backoffRatio = backoffRatio;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /** Admits a request if fewer than the limit are in flight; admitted requests must call {@link #release}. */
+    boolean tryAcquire() {
+        int max = getLimit();
+        while (true) {
+            int current = inFlight.get();
+            if (current >= max) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    void release(long latencyNanos, boolean failed) {
+        int concurrent = inFlight.getAndDecrement();
+        synchronized (this) {
+            if (failed || latencyNanos > latencyThresholdNanos) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+            } else if (concurrent * 2 >= limit) {
+                // Only grow while the limit is what bounds concurrency, so idle periods do not inflate it
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+        }
+    }
+
+    /** Releases a slot without feeding back its latency, for calls that are slow because they are large. */
+    void release() {
+        inFlight.decrementAndGet();
+    }
+
+    synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    int getInFlight() {
+        return inFlight.get();
+    }
+}
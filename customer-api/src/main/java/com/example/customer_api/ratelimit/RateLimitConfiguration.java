@@ -0,0 +1,30 @@
+package com.example.customer_api.ratelimit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Registers {@link RateLimitFilter} for the customer endpoints only, so health probes and metrics
+ * scrapes are never throttled. It runs after the request metrics filter, so rejections appear in
+ * {@code http.server.requests}, and before request logging, so a throttled client cannot flood the
+ * logs.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "customer.ratelimit.enabled", havingValue = "true", matchIfMissing = true)
+@EnableConfigurationProperties(RateLimitProperties.class)
+public class RateLimitConfiguration {
+
+    @Bean
+    public FilterRegistrationBean<RateLimitFilter> rateLimitFilter(RateLimitProperties properties, MeterRegistry registry) {
+        FilterRegistrationBean<RateLimitFilter> registration =
+                new FilterRegistrationBean<>(new RateLimitFilter(properties, registry));
+        registration.addUrlPatterns("/customers", "/customers/*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return registration;
+    }
+}
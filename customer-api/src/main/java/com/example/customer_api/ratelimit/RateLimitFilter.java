@@ -0,0 +1,195 @@
+package com.example.customer_api.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Protects the customer endpoints in two layers:
+ * <ol>
+ *     <li>a token bucket per client address, where each call costs tokens by how much work it
+ *     causes: listings, searches, multi-gets, batches and exports cost more than point reads. An
+ *     empty bucket answers 429 with the seconds until enough tokens have refilled in
+ *     {@code Retry-After}. Headers a caller can set freely, such as {@code X-API-Key}, are not used:
+ *     a fresh value per request would otherwise get a full bucket each time;</li>
+ *     <li>an {@link AdaptiveConcurrencyLimit} shared by all clients, which answers 503 with
+ *     {@code Retry-After: 1} once latency shows the service is saturated. Batches and exports hold
+ *     a slot like any call, but their latency is not fed back: it grows with their size, not with
+ *     how loaded the service is.</li>
+ * </ol>
+ * Rejections are counted in {@code customer.ratelimit.rejected}, tagged by {@code reason}.
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+    // Calls whose duration depends on how much they carry, so it says nothing about saturation
+    private static final Set<String> UNMEASURED = Set.of("batch", "export");
+
+    private final RateLimitProperties properties;
+    private final AdaptiveConcurrencyLimit concurrencyLimit;
+    private final Cache<String, TokenBucket> buckets;
+    private final LongSupplier clock;
+    private final Counter rateRejections;
+    private final Counter concurrencyRejections;
+
+    public RateLimitFilter(RateLimitProperties properties, MeterRegistry registry) {
+        this(properties, registry, System::nanoTime);
+    }
+
+    RateLimitFilter(RateLimitProperties properties, MeterRegistry registry, LongSupplier clock) {
+        this.properties = properties;
+        this.clock = clock;
+        RateLimitProperties.Concurrency concurrency = properties.getConcurrency();
+        this.concurrencyLimit = new AdaptiveConcurrencyLimit(concurrency.getInitialLimit(), concurrency.getMinLimit(),
+                concurrency.getMaxLimit(), concurrency.getLatencyThreshold().toNanos(), concurrency.getBackoffRatio());
+        // Bounded, so a flood of distinct addresses cannot exhaust memory
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxClients())
+                .expireAfterAccess(Duration.ofMinutes(10))
+                .build();
+        this.rateRejections = Counter.builder("customer.ratelimit.rejected")
+                .description("Requests rejected with 429 because the client's token bucket was empty")
+                .tag("reason", "rate")
+                .register(registry);
+        this.concurrencyRejections = Counter.builder("customer.ratelimit.rejected")
+                .description("Requests shed with 503 because the adaptive concurrency limit was reached")
+                .tag("reason", "concurrency")
+                .register(registry);
+        Gauge.builder("customer.concurrency.limit", concurrencyLimit, AdaptiveConcurrencyLimit::getLimit)
+                .description("Current adaptive concurrency limit")
+                .register(registry);
+        Gauge.builder("customer.concurrency.in-flight", concurrencyLimit, AdaptiveConcurrencyLimit::getInFlight)
+                .description("Requests currently admitted by the concurrency limit")
+                .register(registry);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long now = clock.getAsLong();
+        String kind = kind(request);
+        long waitNanos = buckets.get(request.getRemoteAddr(),
+                        key -> new TokenBucket(properties.getCapacity(), properties.getRefillPerSecond(), now))
+                .tryConsume(properties.getCost().getOrDefault(kind, 1.0), now);
+        if (waitNanos > 0) {
+            rateRejections.increment();
+            reject(response, HttpStatus.TOO_MANY_REQUESTS, Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos - 1) + 1));
+            return;
+        }
+        if (!concurrencyLimit.tryAcquire()) {
+            concurrencyRejections.increment();
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, 1);
+            return;
+        }
+
+        boolean measured = !UNMEASURED.contains(kind);
+        boolean failed = true;
+        try {
+            chain.doFilter(request, response);
+            failed = false;
+        } finally {
+            if (!failed && request.isAsyncStarted() && !isChangeStream(request)) {
+                // Streaming responses (the export) hold their slot until they complete
+                request.getAsyncContext().addListener(new ReleaseOnCompletion(now, measured));
+            } else if (measured) {
+                concurrencyLimit.release(clock.getAsLong() - now, failed || response.getStatus() >= 500);
+            } else {
+                concurrencyLimit.release();
+            }
+        }
+    }
+
+    /** The kind of call, which sets its token cost: the more rows or work a call can cause, the more it costs. */
+    static String kind(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        String method = request.getMethod();
+        String kind;
+        if ("GET".equals(method) || "HEAD".equals(method)) {
+            if (path.equals("/customers/export")) {
+                kind = "export";
+            } else if (path.equals("/customers/search")) {
+                kind = "search";
+            } else if ((path.equals("/customers") || path.equals("/customers/")) && request.getParameter("email") == null
+                    || path.startsWith("/customers/changes")) {
+                kind = "list";
+            } else {
+                kind = "read";
+            }
+        } else if (path.equals("/customers/lookup")) {
+            kind = "lookup";
+        } else {
+            kind = path.equals("/customers/batch") ? "batch" : "write";
+        }
+        return kind;
+    }
+
+    // Change streams stay open for as long as the client listens; they only hold a slot while
+    // being set up, so idle subscribers neither exhaust the limit nor read as slow requests
+    private static boolean isChangeStream(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length()).equals("/customers/changes/stream");
+    }
+
+    private static void reject(HttpServletResponse response, HttpStatus status, long retryAfterSeconds) throws IOException {
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.sendError(status.value(), status == HttpStatus.TOO_MANY_REQUESTS
+                ? "Rate limit exceeded"
+                : "Service overloaded");
+    }
+
+    private final class ReleaseOnCompletion implements AsyncListener {
+        private final long start;
+        private final boolean measured;
+        private boolean released;
+
+        private ReleaseOnCompletion(long start, boolean measured) {
+            this.start = start;
+            this.measured = measured;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release(false);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release(true);
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release(true);
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+
+        private synchronized void release(boolean failed) {
+            if (!released) {
+                released = true;
+                if (measured) {
+                    concurrencyLimit.release(clock.getAsLong() - start, failed);
+                } else {
+                    concurrencyLimit.release();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.customer_api.ratelimit;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@code customer.ratelimit.*}: per-client token buckets and the adaptive concurrency limit.
+ */
+@ConfigurationProperties("customer.ratelimit")
+public class RateLimitProperties {
+    /** Burst size: tokens a client can spend at once. */
+    private double capacity = 200;
+
+    /** Sustained tokens per second per client. */
+    private double refillPerSecond = 100;
+
+    /** Clients tracked at once; the least recently seen are forgotten first. */
+    private long maxClients = 100_000;
+
+    /** Tokens per call by kind: read, list, search, export, write, batch. Unlisted kinds cost 1. */
+    private Map<String, Double> cost = new HashMap<>();
+
+    private final Concurrency concurrency = new Concurrency();
+
+    public double getCapacity() { return capacity; }
+
+    public void setCapacity(double capacity) { this.capacity = capacity; }
+
+    public double getRefillPerSecond() { return refillPerSecond; }
+
+    public void setRefillPerSecond(double refillPerSecond) { this.refillPerSecond = refillPerSecond; }
+
+    public long getMaxClients() { return maxClients; }
+
+    public void setMaxClients(long maxClients) { this.maxClients = maxClients; }
+
+    public Map<String, Double> getCost() { return cost; }
+
+    public void setCost(Map<String, Double> cost) { this.cost = cost; }
+
+    public Concurrency getConcurrency() { return concurrency; }
+
+    public static class Concurrency {
+        private int initialLimit = 100;
+        private int minLimit = 10;
+        private int maxLimit = 1000;
+
+        /** A request slower than this shrinks the limit. */
+        private Duration latencyThreshold = Duration.ofMillis(500);
+
+        /** Factor the limit is multiplied by on a slow or failed request. */
+        private double backoffRatio = 0.9;
+
+        public int getInitialLimit() { return initialLimit; }
+
+        public void setInitialLimit(int initialLimit) { this.initialLimit = initialLimit; }
+
+        public int getMinLimit() { return minLimit; }
+
+        public void setMinLimit(int minLimit) { this.minLimit = minLimit; }
+
+        public int getMaxLimit() { return maxLimit; }
+
+        public void setMaxLimit(int maxLimit) { this.maxLimit = maxLimit; }
+
+        public Duration getLatencyThreshold() { return latencyThreshold; }
+
+        public void setLatencyThreshold(Duration latencyThreshold) { this.latencyThreshold = latencyThreshold; }
+
+        public double getBackoffRatio() { return backoffRatio; }
+
+        public void setBackoffRatio(double backoffRatio) { this.backoffRatio = backoffRatio; }
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.customer_api.ratelimit;
+
+/**
+ * A token bucket holding up to {@code capacity} tokens and refilled continuously at
+ * {@code refillPerSecond}. Callers pass the current {@link System#nanoTime()} so the bucket stays
+ * free of clock calls and can be driven by tests.
+ */
+final class TokenBucket {
+    private final double capacity;
+    private final double refillPerNano;
+    private double tokens;
+    private long refilledAt;
+
+    TokenBucket(double capacity, double refillPerSecond, long now) {
+        this.capacity = capacity;
+        this.refillPerNano = refillPerSecond / 1e9;
+        this.tokens = capacity;
+        this.refilledAt = now;
+    }
+
+    /**
+     * Takes {@code cost} tokens if the bucket holds that many. A cost above the capacity takes a
+     * full bucket, so it is possible but leaves nothing for a while.
+     *
+     * @return 0 if the tokens were taken, otherwise the nanoseconds until they would be available
+     */
+    synchronized long tryConsume(double cost, long now) {
+        tokens = Math.min(capacity, tokens + (now - refilledAt) * refillPerNano);
+        refilledAt = now;
+        double needed = Math.min(cost, capacity);
+        if (tokens >= needed) {
+            tokens -= needed;
+            return 0;
+        }
+        return (long) Math.ceil((needed - tokens) / refillPerNano);
+    }
+}
@@ -1,11 +1,99 @@
 package com.example.customer_api.repository;
 
 import com.example.customer_api.entity.Customer;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.QueryHint;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
-public interface CustomerRepository extends JpaRepository<Customer, UUID> {
+// Query methods are read-only transactions so they can be served by read replicas; Spring Data
+// only applies that default to the inherited CRUD methods
+public interface CustomerRepository extends JpaRepository<Customer, UUID>, CustomerUpdates, CustomerScans {
+    @Transactional(readOnly = true)
     Optional<Customer> findByEmail(String email);
-} 
\ No newline at end of file
+
+    @Transactional(readOnly = true)
+    List<Customer> findByEmailIn(Collection<String> emails);
+
+    // Single conditional DELETE; returns the number of rows removed (0 or 1)
+    @Modifying
+    @Transactional
+    @Query("delete from Customer c where c.id = :id")
+    int deleteCustomerById(@Param("id") UUID id);
+
+    // Search: each query is a prefix range scan on one of the normalized, indexed columns.
+    // Callers escape %, _ and \ in the user's input and append the trailing %.
+    @Transactional(readOnly = true)
+    @Query("select c from Customer c where c.lastNameNorm like :prefix escape '\\' order by c.lastNameNorm, c.id")
+    List<Customer> searchByLastNamePrefix(@Param("prefix") String prefix, Pageable pageable);
+
+    @Transactional(readOnly = true)
+    @Query("select c from Customer c where c.firstNameNorm like :prefix escape '\\' order by c.firstNameNorm, c.id")
+    List<Customer> searchByFirstNamePrefix(@Param("prefix") String prefix, Pageable pageable);
+
+    @Transactional(readOnly = true)
+    @Query("select c from Customer c where c.lastNameNorm like :lastPrefix escape '\\' "
+            + "and c.firstNameNorm like :firstPrefix escape '\\' order by c.lastNameNorm, c.id")
+    List<Customer> searchByFullNamePrefix(@Param("firstPrefix") String firstPrefix,
+                                          @Param("lastPrefix") String lastPrefix,
+                                          Pageable pageable);
+
+    @Transactional(readOnly = true)
+    @Query("select c from Customer c where c.emailNorm like :prefix escape '\\' order by c.emailNorm, c.id")
+    List<Customer> searchByEmailPrefix(@Param("prefix") String prefix, Pageable pageable);
+
+    // Phone numbers are stored with their digits reversed, so a suffix search is a prefix scan
+    @Transactional(readOnly = true)
+    @Query("select c from Customer c where c.phoneNumberNorm like :reversedDigits escape '\\' order by c.phoneNumberNorm, c.id")
+    List<Customer> searchByPhoneNumberSuffix(@Param("reversedDigits") String reversedDigits, Pageable pageable);
+
+    @Transactional(readOnly = true)
+    @Query("select c.id from Customer c order by c.id")
+    List<UUID> findIds(Pageable pageable);
+
+    // Keyset (seek) pagination: callers pass PageRequest.of(0, limit) so only a LIMIT is applied.
+    @Transactional(readOnly = true)
+    List<Customer> findAllByOrderByIdAsc(Pageable pageable);
+
+    @Transactional(readOnly = true)
+    List<Customer> findByIdGreaterThanOrderByIdAsc(UUID id, Pageable pageable);
+
+    @Transactional(readOnly = true)
+    List<Customer> findAllByOrderByEmailAsc(Pageable pageable);
+
+    @Transactional(readOnly = true)
+    List<Customer> findByEmailGreaterThanOrderByEmailAsc(String email, Pageable pageable);
+
+    // Incremental sync: keyset on (updated_at, id), bounded above by rows old enough to have committed
+    @Transactional(readOnly = true)
+    @Query("select c from Customer c where (c.updatedAt > :since or (c.updatedAt = :since and c.id > :afterId)) "
+            + "and c.updatedAt < :until order by c.updatedAt, c.id")
+    List<Customer> findModifiedAfter(@Param("since") Instant since,
+                                     @Param("afterId") UUID afterId,
+                                     @Param("until") Instant until,
+                                     Pageable pageable);
+
+    // Scrolls the table through a forward-only cursor; must be consumed inside a transaction and closed.
+    @Transactional(readOnly = true)
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HINT_READONLY, value = "true")
+    })
+    @Query("select c from Customer c order by c.id")
+    Stream<Customer> streamAll();
+}
@@ -0,0 +1,36 @@
+package com.example.customer_api.repository;
+
+import com.example.customer_api.entity.Customer;
+import org.springframework.data.domain.Pageable;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * The range scans behind listing by id, search and incremental sync. {@link CustomerRepository}
+ * runs them on the customers table. The sharded store runs them on every shard: its id pages are
+ * merged, but its searches and sync pages return up to the page size from each shard, so callers
+ * sort and cut those themselves.
+ */
+public interface CustomerScans {
+
+    // Search: callers escape %, _ and \ in the user's input and append the trailing %
+    List<Customer> searchByLastNamePrefix(String prefix, Pageable pageable);
+
+    List<Customer> searchByFirstNamePrefix(String prefix, Pageable pageable);
+
+    List<Customer> searchByFullNamePrefix(String firstPrefix, String lastPrefix, Pageable pageable);
+
+    List<Customer> searchByEmailPrefix(String prefix, Pageable pageable);
+
+    List<Customer> searchByPhoneNumberSuffix(String reversedDigits, Pageable pageable);
+
+    // Keyset (seek) pagination: callers pass PageRequest.of(0, limit) so only a LIMIT is applied
+    List<Customer> findAllByOrderByIdAsc(Pageable pageable);
+
+    List<Customer> findByIdGreaterThanOrderByIdAsc(UUID id, Pageable pageable);
+
+    // Incremental sync: keyset on (updated_at, id), bounded above by rows old enough to have committed
+    List<Customer> findModifiedAfter(Instant since, UUID afterId, Instant until, Pageable pageable);
+}
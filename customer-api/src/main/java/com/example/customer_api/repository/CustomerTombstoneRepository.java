@@ -0,0 +1,30 @@
+package com.example.customer_api.repository;
+
+import com.example.customer_api.entity.CustomerTombstone;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+public interface CustomerTombstoneRepository extends JpaRepository<CustomerTombstone, UUID> {
+
+    // Keyset on (deleted_at, id), the same order as CustomerRepository.findModifiedAfter
+    @Transactional(readOnly = true)
+    @Query("select t from CustomerTombstone t where (t.deletedAt > :since or (t.deletedAt = :since and t.id > :afterId)) "
+            + "and t.deletedAt < :until order by t.deletedAt, t.id")
+    List<CustomerTombstone> findDeletedAfter(@Param("since") Instant since,
+                                             @Param("afterId") UUID afterId,
+                                             @Param("until") Instant until,
+                                             Pageable pageable);
+
+    @Modifying
+    @Transactional
+    @Query("delete from CustomerTombstone t where t.deletedAt < :before")
+    int deleteDeletedBefore(@Param("before") Instant before);
+}
@@ -0,0 +1,18 @@
+package com.example.customer_api.repository;
+
+import com.example.customer_api.entity.Customer;
+
+import java.util.UUID;
+
+// Writes Spring Data cannot derive; implemented by CustomerUpdatesImpl
+public interface CustomerUpdates {
+
+    /**
+     * Overwrites a customer's fields, its search columns and {@code updatedAt} with one statement
+     * that also reads back the new version and the stored {@code createdAt} into {@code customer}.
+     * With {@code expectedVersion} the row is only written if it still has that version.
+     *
+     * @return whether a row was written
+     */
+    boolean overwrite(UUID id, Long expectedVersion, Customer customer);
+}
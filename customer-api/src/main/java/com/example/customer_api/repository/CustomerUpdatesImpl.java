@@ -0,0 +1,71 @@
+package com.example.customer_api.repository;
+
+import com.example.customer_api.entity.Customer;
+import org.hibernate.dialect.PostgreSQL81Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.InstantType;
+import org.hibernate.type.StandardBasicTypes;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * PostgreSQL returns the written row with {@code UPDATE ... RETURNING}; H2 selects it from the
+ * {@code FINAL TABLE} of the UPDATE. Either way the write and the read-back are one round trip.
+ */
+class CustomerUpdatesImpl implements CustomerUpdates {
+    private static final String SET = "update customers set first_name = :firstName, middle_name = :middleName, "
+            + "last_name = :lastName, email = :email, phone_number = :phoneNumber, first_name_norm = :firstNameNorm, "
+            + "last_name_norm = :lastNameNorm, phone_number_norm = :phoneNumberNorm, email_norm = :emailNorm, "
+            + "updated_at = :updatedAt, version = version + 1 where id = :id";
+    private static final String IF_VERSION = " and version = :version";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public boolean overwrite(UUID id, Long expectedVersion, Customer customer) {
+        String update = expectedVersion == null ? SET : SET + IF_VERSION;
+        String sql = isPostgreSql()
+                ? update + " returning version, created_at"
+                : "select version, created_at from final table (" + update + ")";
+        // Typed parameters, so that a null is not sent as bytea to PostgreSQL
+        NativeQuery<?> query = entityManager.createNativeQuery(sql).unwrap(NativeQuery.class)
+                .addScalar("version", StandardBasicTypes.LONG)
+                .addScalar("created_at", InstantType.INSTANCE)
+                .setParameter("firstName", customer.getFirstName(), StandardBasicTypes.STRING)
+                .setParameter("middleName", customer.getMiddleName(), StandardBasicTypes.STRING)
+                .setParameter("lastName", customer.getLastName(), StandardBasicTypes.STRING)
+                .setParameter("email", customer.getEmail(), StandardBasicTypes.STRING)
+                .setParameter("phoneNumber", customer.getPhoneNumber(), StandardBasicTypes.STRING)
+                .setParameter("firstNameNorm", customer.getFirstNameNorm(), StandardBasicTypes.STRING)
+                .setParameter("lastNameNorm", customer.getLastNameNorm(), StandardBasicTypes.STRING)
+                .setParameter("phoneNumberNorm", customer.getPhoneNumberNorm(), StandardBasicTypes.STRING)
+                .setParameter("emailNorm", customer.getEmailNorm(), StandardBasicTypes.STRING)
+                .setParameter("updatedAt", customer.getUpdatedAt(), InstantType.INSTANCE)
+                .setParameter("id", id);
+        if (expectedVersion != null) {
+            query.setParameter("version", expectedVersion);
+        }
+        List<?> rows = query.getResultList();
+        if (rows.isEmpty()) {
+            return false;
+        }
+        Object[] row = (Object[]) rows.get(0);
+        customer.setId(id);
+        customer.setVersion((Long) row[0]);
+        customer.setCreatedAt((Instant) row[1]);
+        return true;
+    }
+
+    private boolean isPostgreSql() {
+        return entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect() instanceof PostgreSQL81Dialect;
+    }
+}
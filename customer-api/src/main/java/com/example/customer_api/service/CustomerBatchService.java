@@ -0,0 +1,184 @@
+package com.example.customer_api.service;
+
+import com.example.customer_api.changes.CustomerChangeLog;
+import com.example.customer_api.dto.CustomerBatchResult;
+import com.example.customer_api.dto.CustomerChange;
+import com.example.customer_api.entity.Customer;
+import com.example.customer_api.repository.CustomerRepository;
+import com.example.customer_api.sharding.ShardedCustomerRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Validates and upserts (keyed on email) many customers in one transaction. Writes are
+ * flushed every {@code customer.batch.size} items so Hibernate can send them as JDBC batches;
+ * ids come from the in-memory UUID generator, so inserts need no identity round trip. Each
+ * chunk's changes are appended to the {@link CustomerChangeLog} as one JDBC batch after its flush.
+ *
+ * <p>With sharding each item is written to its shard as it is reached, so a failed batch keeps
+ * the items written before the failure; only the change log rides on the transaction.
+ */
+@Service
+public class CustomerBatchService {
+    private final CustomerRepository customerRepository;
+    private final CustomerService customerService;
+    private final CustomerChangeLog changeLog;
+    private final Validator validator;
+    private final ObjectReader customerReader;
+    private final int batchSize;
+    private final int maxItems;
+    private final ShardedCustomerRepository shards;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public CustomerBatchService(CustomerRepository customerRepository,
+                                CustomerService customerService,
+                                CustomerChangeLog changeLog,
+                                Validator validator,
+                                ObjectMapper objectMapper,
+                                ObjectProvider<ShardedCustomerRepository> shards,
+                                @Value("${customer.batch.size:100}") int batchSize,
+                                @Value("${customer.batch.max-items:10000}") int maxItems) {
+        this.customerRepository = customerRepository;
+        this.customerService = customerService;
+        this.changeLog = changeLog;
+        this.validator = validator;
+        this.customerReader = objectMapper.readerFor(Customer.class);
+        this.batchSize = batchSize;
+        this.maxItems = maxItems;
+        this.shards = shards.getIfAvailable();
+    }
+
+    public List<Customer> readNdjson(InputStream body) throws IOException {
+        List<Customer> customers = new ArrayList<>();
+        try (MappingIterator<Customer> it = customerReader.readValues(body)) {
+            while (it.hasNextValue()) {
+                if (customers.size() == maxItems) {
+                    throw new IllegalArgumentException("A batch may contain at most " + maxItems + " customers");
+                }
+                customers.add(it.nextValue());
+            }
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Malformed NDJSON at line " + e.getLocation().getLineNr());
+        }
+        return customers;
+    }
+
+    @Transactional
+    public List<CustomerBatchResult> upsert(List<Customer> customers) {
+        if (customers.size() > maxItems) {
+            throw new IllegalArgumentException("A batch may contain at most " + maxItems + " customers");
+        }
+        List<CustomerBatchResult> results = new ArrayList<>(customers.size());
+        Map<Integer, Customer> chunk = new LinkedHashMap<>();
+        for (int i = 0; i < customers.size(); i++) {
+            Customer customer = customers.get(i);
+            Map<String, String> errors = validate(customer);
+            if (!errors.isEmpty()) {
+                results.add(CustomerBatchResult.builder()
+                        .index(i)
+                        .status(CustomerBatchResult.Status.INVALID)
+                        .errors(errors)
+                        .build());
+                continue;
+            }
+            chunk.put(i, customer);
+            if (chunk.size() == batchSize) {
+                writeChunk(chunk, results);
+            }
+        }
+        writeChunk(chunk, results);
+        results.sort((a, b) -> Integer.compare(a.getIndex(), b.getIndex()));
+        return results;
+    }
+
+    private void writeChunk(Map<Integer, Customer> chunk, List<CustomerBatchResult> results) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        Set<String> emails = chunk.values().stream().map(Customer::getEmail).collect(Collectors.toSet());
+        List<Customer> found = shards != null ? shards.findByEmailIn(emails) : customerRepository.findByEmailIn(emails);
+        Map<String, Customer> existing = found.stream()
+                .collect(Collectors.toMap(Customer::getEmail, Function.identity()));
+        Map<String, CustomerChange.Type> written = new LinkedHashMap<>();
+
+        for (Map.Entry<Integer, Customer> entry : chunk.entrySet()) {
+            Customer incoming = entry.getValue();
+            Customer current = existing.get(incoming.getEmail());
+            CustomerBatchResult.Status status;
+            if (current != null && update(current, incoming)) {
+                status = CustomerBatchResult.Status.UPDATED;
+                written.putIfAbsent(current.getEmail(), CustomerChange.Type.UPDATED);
+            } else {
+                // Client supplied ids are ignored on create, as with POST /customers
+                incoming.setId(null);
+                if (shards != null) {
+                    shards.insert(incoming);
+                } else {
+                    entityManager.persist(incoming);
+                }
+                // Later items in the same chunk with this email update the new row
+                existing.put(incoming.getEmail(), incoming);
+                current = incoming;
+                status = CustomerBatchResult.Status.CREATED;
+                written.put(current.getEmail(), CustomerChange.Type.CREATED);
+            }
+            customerService.evict(current.getId(), current.getEmail());
+            results.add(CustomerBatchResult.builder()
+                    .index(entry.getKey())
+                    .status(status)
+                    .id(current.getId())
+                    .build());
+        }
+        entityManager.flush();
+        // After the flush, so versions are final and an item written twice is one change
+        List<CustomerChange> changes = new ArrayList<>(written.size());
+        written.forEach((email, type) -> changes.add(CustomerChange.builder().type(type).customer(existing.get(email)).build()));
+        changeLog.recordAll(changes);
+        entityManager.clear();
+        chunk.clear();
+    }
+
+    // Copies the fields onto the stored customer; false if a sharded one was deleted in the meantime
+    private boolean update(Customer current, Customer incoming) {
+        current.setFirstName(incoming.getFirstName());
+        current.setMiddleName(incoming.getMiddleName());
+        current.setLastName(incoming.getLastName());
+        current.setPhoneNumber(incoming.getPhoneNumber());
+        return shards == null || shards.overwrite(current.getId(), null, current);
+    }
+
+    private Map<String, String> validate(Customer customer) {
+        Map<String, String> errors = new HashMap<>();
+        if (customer == null) {
+            errors.put("customer", "Customer is required");
+            return errors;
+        }
+        for (ConstraintViolation<Customer> violation : validator.validate(customer)) {
+            errors.put(violation.getPropertyPath().toString(), violation.getMessage());
+        }
+        return errors;
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.customer_api.service;
+
+import com.example.customer_api.entity.Customer;
+import com.example.customer_api.repository.CustomerRepository;
+import com.example.customer_api.sharding.ShardedCustomerRepository;
+import com.example.customer_api.snapshot.CustomerSnapshot;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes every customer as newline-delimited JSON while scrolling the table, so memory use
+ * does not depend on the number of rows. The same scroll builds {@link CustomerSnapshot} files.
+ * With sharding, all shards are read a chunk at a time in id order instead.
+ */
+@Service
+public class CustomerExportService {
+    private final CustomerRepository customerRepository;
+    private final ObjectWriter writer;
+    private final int chunkSize;
+    private final ShardedCustomerRepository shards;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public CustomerExportService(CustomerRepository customerRepository,
+                                 ObjectMapper objectMapper,
+                                 ObjectProvider<ShardedCustomerRepository> shards,
+                                 @Value("${customer.export.chunk-size:500}") int chunkSize) {
+        this.customerRepository = customerRepository;
+        this.writer = objectMapper.writerFor(Customer.class);
+        this.chunkSize = chunkSize;
+        this.shards = shards.getIfAvailable();
+    }
+
+    @Transactional(readOnly = true)
+    public long exportTo(OutputStream out) throws IOException {
+        long count = 0;
+        try (Stream<Customer> customers = streamAll();
+             JsonGenerator generator = writer.getFactory().createGenerator(out)) {
+            // The servlet container owns the response stream
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            Iterator<Customer> it = customers.iterator();
+            while (it.hasNext()) {
+                writer.writeValue(generator, it.next());
+                generator.writeRaw('\n');
+                if (++count % chunkSize == 0) {
+                    // Push the chunk to the client and drop the exported entities from the session
+                    generator.flush();
+                    entityManager.clear();
+                }
+            }
+        }
+        return count;
+    }
+
+    private Stream<Customer> streamAll() {
+        return shards != null ? shards.streamAll(chunkSize) : customerRepository.streamAll();
+    }
+
+    /**
+     * Writes a {@link CustomerSnapshot} of every customer to {@code target}. The file is built
+     * next to it and renamed into place, so readers only ever see a complete snapshot.
+     *
+     * @return the number of customers written
+     */
+    @Transactional(readOnly = true)
+    public int exportSnapshot(Path target) throws IOException {
+        Path directory = target.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path partial = Files.createTempFile(directory, target.getFileName().toString(), ".partial");
+        try {
+            int count;
+            try (Stream<Customer> customers = streamAll();
+                 CustomerSnapshot.Writer snapshot = new CustomerSnapshot.Writer(partial, Instant.now())) {
+                Iterator<Customer> it = customers.iterator();
+                for (int i = 1; it.hasNext(); i++) {
+                    snapshot.add(it.next());
+                    if (i % chunkSize == 0) {
+                        entityManager.clear();
+                    }
+                }
+                count = snapshot.finish();
+            }
+            Files.move(partial, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return count;
+        } finally {
+            Files.deleteIfExists(partial);
+        }
+    }
+}
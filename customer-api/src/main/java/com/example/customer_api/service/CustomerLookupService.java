@@ -0,0 +1,97 @@
+package com.example.customer_api.service;
+
+import com.example.customer_api.datasource.DataSourceRouting;
+import com.example.customer_api.entity.Customer;
+import com.example.customer_api.repository.CustomerRepository;
+import com.example.customer_api.sharding.ShardedCustomerRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Batches point lookups by id and by email with a {@link MicroBatcher}, so that many requests
+ * arriving together share one {@code WHERE ... IN (...)} query. Batches read the primary, just
+ * like the cache loads they can stand in for; {@link CustomerService} sends its cache misses
+ * through here when {@code customer.lookup.batch.enabled} is set. With sharding, a batch reads
+ * each shard that holds any of its keys.
+ */
+@Service
+public class CustomerLookupService implements Closeable {
+    private final MicroBatcher<UUID, Customer> byId;
+    private final MicroBatcher<String, Customer> byEmail;
+    private final int maxKeys;
+
+    public CustomerLookupService(CustomerRepository customerRepository,
+                                 ObjectProvider<ShardedCustomerRepository> sharding,
+                                 MeterRegistry meterRegistry, TaskScheduler taskScheduler,
+                                 @Value("${customer.lookup.batch.window:2ms}") Duration window,
+                                 @Value("${customer.lookup.batch.max-size:100}") int maxBatchSize,
+                                 @Value("${customer.lookup.batch.concurrency:4}") int concurrency,
+                                 @Value("${customer.lookup.max-keys:1000}") int maxKeys) {
+        ShardedCustomerRepository shards = sharding.getIfAvailable();
+        this.byId = new MicroBatcher<>("id", ids -> {
+            Map<UUID, Customer> found = new HashMap<>();
+            List<Customer> rows = shards != null
+                    ? shards.findAllById(ids)
+                    : DataSourceRouting.onPrimary(() -> customerRepository.findAllById(ids));
+            rows.forEach(customer -> found.put(customer.getId(), customer));
+            return found;
+        }, taskScheduler, window, maxBatchSize, concurrency, meterRegistry);
+        this.byEmail = new MicroBatcher<>("email", emails -> {
+            Map<String, Customer> found = new HashMap<>();
+            List<Customer> rows = shards != null
+                    ? shards.findByEmailIn(emails)
+                    : DataSourceRouting.onPrimary(() -> customerRepository.findByEmailIn(emails));
+            rows.forEach(customer -> found.put(customer.getEmail(), customer));
+            return found;
+        }, taskScheduler, window, maxBatchSize, concurrency, meterRegistry);
+        this.maxKeys = maxKeys;
+    }
+
+    public Customer findById(UUID id) {
+        return byId.get(id);
+    }
+
+    public Customer findByEmail(String email) {
+        return byEmail.get(email);
+    }
+
+    /**
+     * Resolves ids and emails together: customers found by id come first in request order, then
+     * those found by email; each customer appears once and unknown keys are left out.
+     */
+    public List<Customer> findAll(List<UUID> ids, List<String> emails) {
+        int keys = ids.size() + emails.size();
+        if (keys > maxKeys) {
+            throw new IllegalArgumentException("A lookup is limited to " + maxKeys + " ids and emails");
+        }
+        Map<UUID, Customer> customers = new LinkedHashMap<>();
+        // Queue both before waiting on either so the id and email queries run side by side
+        Map<UUID, CompletableFuture<Customer>> byIds = byId.loadAll(ids);
+        Map<String, CompletableFuture<Customer>> byEmails = byEmail.loadAll(emails);
+        MicroBatcher.join(byIds).values().forEach(customer -> customers.putIfAbsent(customer.getId(), customer));
+        MicroBatcher.join(byEmails).values().forEach(customer -> customers.putIfAbsent(customer.getId(), customer));
+        return new ArrayList<>(customers.values());
+    }
+
+    // Stops the batchers' loader threads
+    @PreDestroy
+    @Override
+    public void close() {
+        byId.close();
+        byEmail.close();
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.customer_api.service;
+
+import com.example.customer_api.entity.Customer;
+import com.example.customer_api.repository.CustomerRepository;
+import com.example.customer_api.repository.CustomerScans;
+import com.example.customer_api.sharding.ShardedCustomerRepository;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.ToIntFunction;
+
+/**
+ * Free-text customer search for support tooling. A query is split into index-friendly prefix
+ * scans (names, email) or a phone-number suffix scan, each bounded by the requested page, and
+ * the hits are merged and ranked here. No scan ever reads more than {@code (page + 1) * size} rows
+ * (per shard, with sharding).
+ */
+@Service
+public class CustomerSearchService {
+    private static final int MIN_QUERY_LENGTH = 2;
+    private static final int MIN_PHONE_DIGITS = 3;
+
+    // Lower rank sorts first
+    private static final int RANK_EMAIL_EXACT = 0;
+    private static final int RANK_FULL_NAME = 1;
+    private static final int RANK_LAST_NAME_EXACT = 2;
+    private static final int RANK_EMAIL_PREFIX = 3;
+    private static final int RANK_LAST_NAME_PREFIX = 4;
+    private static final int RANK_FIRST_NAME_EXACT = 5;
+    private static final int RANK_FIRST_NAME_PREFIX = 6;
+    private static final int RANK_PHONE_SUFFIX = 7;
+
+    private final CustomerScans customerScans;
+    private final int maxWindow;
+
+    public CustomerSearchService(CustomerRepository customerRepository,
+                                 ObjectProvider<ShardedCustomerRepository> shards,
+                                 @Value("${customer.search.max-window:1000}") int maxWindow) {
+        ShardedCustomerRepository sharded = shards.getIfAvailable();
+        this.customerScans = sharded != null ? sharded : customerRepository;
+        this.maxWindow = maxWindow;
+    }
+
+    @Transactional(readOnly = true)
+    public List<Customer> search(String query, int page, int size) {
+        String q = query == null ? "" : query.trim();
+        if (q.length() < MIN_QUERY_LENGTH) {
+            throw new IllegalArgumentException("q must be at least " + MIN_QUERY_LENGTH + " characters");
+        }
+        if (page < 0) {
+            throw new IllegalArgumentException("page must not be negative");
+        }
+        long window = (long) (page + 1) * size;
+        if (window > maxWindow) {
+            throw new IllegalArgumentException("Search results are limited to the first " + maxWindow + " matches");
+        }
+        Pageable limit = PageRequest.of(0, (int) window);
+
+        Map<UUID, Hit> hits = new LinkedHashMap<>();
+        if (isPhoneQuery(q)) {
+            String reversedDigits = Customer.normalizePhoneNumber(q);
+            add(hits, customerScans.searchByPhoneNumberSuffix(likePrefix(reversedDigits), limit), c -> RANK_PHONE_SUFFIX);
+        } else {
+            String name = Customer.normalizeName(q);
+            int space = name.lastIndexOf(' ');
+            if (space > 0) {
+                String first = name.substring(0, space).trim();
+                String last = name.substring(space + 1);
+                add(hits, customerScans.searchByFullNamePrefix(likePrefix(first), likePrefix(last), limit),
+                        c -> RANK_FULL_NAME);
+            } else {
+                add(hits, customerScans.searchByEmailPrefix(likePrefix(name), limit),
+                        c -> name.equals(c.getEmailNorm()) ? RANK_EMAIL_EXACT : RANK_EMAIL_PREFIX);
+                add(hits, customerScans.searchByLastNamePrefix(likePrefix(name), limit),
+                        c -> name.equals(c.getLastNameNorm()) ? RANK_LAST_NAME_EXACT : RANK_LAST_NAME_PREFIX);
+                add(hits, customerScans.searchByFirstNamePrefix(likePrefix(name), limit),
+                        c -> name.equals(c.getFirstNameNorm()) ? RANK_FIRST_NAME_EXACT : RANK_FIRST_NAME_PREFIX);
+            }
+        }
+
+        List<Hit> ranked = new ArrayList<>(hits.values());
+        ranked.sort(Comparator.comparingInt((Hit h) -> h.rank)
+                .thenComparing(h -> h.customer.getLastNameNorm(), Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparing(h -> h.customer.getFirstNameNorm(), Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparing(h -> h.customer.getId()));
+
+        int from = Math.min(page * size, ranked.size());
+        int to = Math.min(from + size, ranked.size());
+        List<Customer> result = new ArrayList<>(to - from);
+        for (Hit hit : ranked.subList(from, to)) {
+            result.add(hit.customer);
+        }
+        return result;
+    }
+
+    private static boolean isPhoneQuery(String q) {
+        int digits = 0;
+        for (int i = 0; i < q.length(); i++) {
+            char c = q.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits++;
+            } else if ("+-(). ".indexOf(c) < 0) {
+                return false;
+            }
+        }
+        return digits >= MIN_PHONE_DIGITS;
+    }
+
+    private static String likePrefix(String value) {
+        StringBuilder escaped = new StringBuilder(value.length() + 1);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '%' || c == '_' || c == '\\') {
+                escaped.append('\\');
+            }
+            escaped.append(c);
+        }
+        return escaped.append('%').toString();
+    }
+
+    private static void add(Map<UUID, Hit> hits, List<Customer> customers, ToIntFunction<Customer> ranker) {
+        for (Customer customer : customers) {
+            int rank = ranker.applyAsInt(customer);
+            Hit existing = hits.get(customer.getId());
+            if (existing == null || rank < existing.rank) {
+                hits.put(customer.getId(), new Hit(customer, rank));
+            }
+        }
+    }
+
+    private static final class Hit {
+        private final Customer customer;
+        private final int rank;
+
+        private Hit(Customer customer, int rank) {
+            this.customer = customer;
+            this.rank = rank;
+        }
+    }
+}
@@ -0,0 +1,339 @@
+package com.example.customer_api.service;
+
+import com.example.customer_api.changes.CustomerChangeLog;
+import com.example.customer_api.datasource.DataSourceRouting;
+import com.example.customer_api.dto.CustomerChange;
+import com.example.customer_api.entity.Customer;
+import com.example.customer_api.entity.CustomerTombstone;
+import com.example.customer_api.repository.CustomerRepository;
+import com.example.customer_api.repository.CustomerTombstoneRepository;
+import com.example.customer_api.sharding.ShardedCustomerRepository;
+import com.example.customer_api.snapshot.CustomerSnapshot;
+import com.example.customer_api.snapshot.CustomerSnapshotStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.ConstraintViolationException;
+import javax.validation.Validator;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Read-through cache in front of {@link CustomerRepository} for point lookups, and the write
+ * paths that have to keep it coherent.
+ *
+ * <p>Customers are cached by id. The email cache only maps an email to an id and every hit is
+ * resolved through the id cache and checked against the customer's current email, so a write
+ * never has to know a customer's previous email to keep lookups correct. Misses are cached in
+ * both caches; writers evict the keys they touch.
+ *
+ * <p>Cache misses go through a {@link SingleFlight} per cache, so concurrent misses for one key
+ * share one query even when entries expire immediately. Eviction first detaches the key's
+ * in-flight load: a lookup that starts after a write never shares a read from before it, and
+ * that read is not cached. With {@code customer.lookup.batch.enabled} the flights' queries are in
+ * turn batched by {@link CustomerLookupService}, so misses for different keys share one query.
+ *
+ * <p>With {@code customer.snapshot.serve} point lookups are answered from the memory-mapped
+ * {@link CustomerSnapshot} instead, once one has loaded, without the cache or Hibernate. They
+ * are then as stale as the snapshot, and writes do not show until the next one.
+ *
+ * <p>Every write also appends to the {@link CustomerChangeLog} in its own transaction, which is
+ * what feeds {@code GET /customers/changes}.
+ *
+ * <p>With {@code customer.sharding.enabled} customers are read from and written to the
+ * {@link ShardedCustomerRepository} instead, with the same caching. The change log, tombstones
+ * and the transaction stay on the primary database. A sharded write commits on its shard before
+ * that transaction does, so if the primary commit then fails, the write is missing from the
+ * change feed.
+ */
+@Service
+public class CustomerService {
+    static final String BY_ID_CACHE = "customersById";
+    static final String ID_BY_EMAIL_CACHE = "customerIdsByEmail";
+
+    private static final Map<String, PatchableField> PATCHABLE_FIELDS = Map.of(
+            "firstName", new PatchableField(Customer::getFirstName, Customer::setFirstName),
+            "middleName", new PatchableField(Customer::getMiddleName, Customer::setMiddleName),
+            "lastName", new PatchableField(Customer::getLastName, Customer::setLastName),
+            "email", new PatchableField(Customer::getEmail, Customer::setEmail),
+            "phoneNumber", new PatchableField(Customer::getPhoneNumber, Customer::setPhoneNumber));
+
+    private final CustomerRepository customerRepository;
+    private final CustomerTombstoneRepository tombstoneRepository;
+    private final Validator validator;
+    private final CustomerChangeLog changeLog;
+    private final Cache byId;
+    private final Cache idByEmail;
+    private final SingleFlight<UUID, Customer> byIdLoads;
+    private final SingleFlight<String, UUID> idByEmailLoads;
+    private final CustomerLookupService lookups;
+    private final boolean batchLookups;
+    private final CustomerSnapshotStore snapshots;
+    private final ShardedCustomerRepository shards;
+
+    public CustomerService(CustomerRepository customerRepository, CustomerTombstoneRepository tombstoneRepository,
+                           Validator validator, CacheManager cacheManager, CustomerChangeLog changeLog,
+                           MeterRegistry meterRegistry, CustomerLookupService lookups,
+                           ObjectProvider<CustomerSnapshotStore> snapshots,
+                           ObjectProvider<ShardedCustomerRepository> shards,
+                           @Value("${customer.singleflight.stripes:64}") int stripes,
+                           @Value("${customer.singleflight.max-in-flight:10000}") int maxInFlight,
+                           @Value("${customer.lookup.batch.enabled:false}") boolean batchLookups) {
+        this.customerRepository = customerRepository;
+        this.tombstoneRepository = tombstoneRepository;
+        this.validator = validator;
+        this.changeLog = changeLog;
+        this.byId = Objects.requireNonNull(cacheManager.getCache(BY_ID_CACHE), BY_ID_CACHE);
+        this.idByEmail = Objects.requireNonNull(cacheManager.getCache(ID_BY_EMAIL_CACHE), ID_BY_EMAIL_CACHE);
+        this.byIdLoads = new SingleFlight<>("id", stripes, maxInFlight, meterRegistry);
+        this.idByEmailLoads = new SingleFlight<>("email", stripes, maxInFlight, meterRegistry);
+        this.lookups = lookups;
+        this.batchLookups = batchLookups;
+        this.snapshots = snapshots.getIfAvailable();
+        this.shards = shards.getIfAvailable();
+    }
+
+    public Optional<Customer> findById(UUID id) {
+        CustomerSnapshot snapshot = snapshot();
+        if (snapshot != null) {
+            return snapshot.findById(id);
+        }
+        Cache.ValueWrapper cached = byId.get(id);
+        if (cached != null) {
+            return Optional.ofNullable((Customer) cached.get());
+        }
+        return Optional.ofNullable(byIdLoads.execute(id, () -> loadById(id), customer -> byId.put(id, customer)));
+    }
+
+    public Optional<Customer> findByEmail(String email) {
+        CustomerSnapshot snapshot = snapshot();
+        if (snapshot != null) {
+            return snapshot.findByEmail(email);
+        }
+        UUID id = lookUpIdByEmail(email);
+        if (id == null) {
+            return Optional.empty();
+        }
+        Optional<Customer> customer = findById(id);
+        if (customer.isPresent() && email.equals(customer.get().getEmail())) {
+            return customer;
+        }
+        // The mapping outlived a delete or an email change; go back to the database
+        idByEmailLoads.forget(email);
+        idByEmail.evict(email);
+        return Optional.ofNullable(lookUpIdByEmail(email)).flatMap(this::findById);
+    }
+
+    private CustomerSnapshot snapshot() {
+        return snapshots == null ? null : snapshots.current();
+    }
+
+    private UUID lookUpIdByEmail(String email) {
+        Cache.ValueWrapper cached = idByEmail.get(email);
+        if (cached != null) {
+            return (UUID) cached.get();
+        }
+        return idByEmailLoads.execute(email, () -> loadIdByEmail(email), id -> idByEmail.put(email, id));
+    }
+
+    /**
+     * Inserts a customer. The row is flushed before its change is recorded, so a duplicate email
+     * fails here without consuming a change sequence.
+     */
+    @Transactional
+    public Customer create(Customer customer) {
+        Customer saved;
+        if (shards != null) {
+            // Client supplied ids are ignored, as they are by JPA
+            customer.setId(null);
+            saved = shards.insert(customer);
+        } else {
+            saved = customerRepository.saveAndFlush(customer);
+        }
+        changeLog.record(CustomerChange.Type.CREATED, saved);
+        evict(saved.getId(), saved.getEmail());
+        return saved;
+    }
+
+    /**
+     * Deletes a customer and leaves a tombstone for incremental sync clients.
+     *
+     * @return whether the customer existed
+     */
+    @Transactional
+    public boolean delete(UUID id) {
+        boolean deleted = shards != null ? shards.deleteById(id) : customerRepository.deleteCustomerById(id) > 0;
+        if (!deleted) {
+            return false;
+        }
+        tombstoneRepository.save(new CustomerTombstone(id, Customer.now()));
+        changeLog.record(CustomerChange.Type.DELETED, Customer.builder().id(id).build());
+        evict(id, null);
+        return true;
+    }
+
+    /**
+     * Overwrites a customer with a single UPDATE, which also hands back the new version and the
+     * stored {@code createdAt}. When {@code expectedVersion} is given the row is only written if it
+     * still has that version, otherwise an {@link OptimisticLockingFailureException} is thrown;
+     * that includes a customer that no longer exists, which has no version to match.
+     *
+     * @return the written customer, or empty if the id does not exist and no version was expected
+     */
+    @Transactional
+    public Optional<Customer> update(UUID id, Customer data, Long expectedVersion) {
+        // The UPDATE bypasses entity callbacks, so derive the search columns and timestamp here
+        data.normalizeSearchColumns();
+        data.touch();
+        boolean written = shards != null
+                ? shards.overwrite(id, expectedVersion, data)
+                : customerRepository.overwrite(id, expectedVersion, data);
+        if (!written) {
+            if (expectedVersion == null) {
+                return Optional.empty();
+            }
+            throw new OptimisticLockingFailureException("Customer " + id + " is no longer at version " + expectedVersion);
+        }
+        changeLog.record(CustomerChange.Type.UPDATED, data);
+        evict(id, data.getEmail());
+        return Optional.of(data);
+    }
+
+    /**
+     * Applies a JSON Merge Patch (RFC 7396) to a customer. Only the fields present in the patch are
+     * validated, and only columns whose value actually changes are written (the entity uses
+     * dynamic update); a patch that changes nothing issues no UPDATE at all.
+     *
+     * @return the patched customer, or empty if the id does not exist
+     */
+    @Transactional
+    public Optional<Customer> patch(UUID id, Map<String, Object> patch, Long expectedVersion) {
+        Set<ConstraintViolation<Customer>> violations = new HashSet<>();
+        for (Map.Entry<String, Object> field : patch.entrySet()) {
+            if (!PATCHABLE_FIELDS.containsKey(field.getKey())) {
+                throw new IllegalArgumentException("Field cannot be patched: " + field.getKey());
+            }
+            if (field.getValue() != null && !(field.getValue() instanceof String)) {
+                throw new IllegalArgumentException("Field must be a string or null: " + field.getKey());
+            }
+            violations.addAll(validator.validateValue(Customer.class, field.getKey(), field.getValue()));
+        }
+        if (!violations.isEmpty()) {
+            throw new ConstraintViolationException(violations);
+        }
+
+        Optional<Customer> found = shards != null ? shards.findById(id) : customerRepository.findById(id);
+        if (found.isEmpty()) {
+            return Optional.empty();
+        }
+        Customer customer = found.get();
+        if (expectedVersion != null && !expectedVersion.equals(customer.getVersion())) {
+            throw new OptimisticLockingFailureException("Customer " + id + " is no longer at version " + expectedVersion);
+        }
+
+        boolean changed = false;
+        for (Map.Entry<String, Object> field : patch.entrySet()) {
+            PatchableField accessor = PATCHABLE_FIELDS.get(field.getKey());
+            String value = (String) field.getValue();
+            if (!Objects.equals(accessor.getter.apply(customer), value)) {
+                accessor.setter.accept(customer, value);
+                changed = true;
+            }
+        }
+        if (changed) {
+            if (shards == null) {
+                customerRepository.flush();
+            } else if (!shards.overwrite(id, customer.getVersion(), customer)) {
+                throw new OptimisticLockingFailureException("Customer " + id + " is no longer at version " + customer.getVersion());
+            }
+            changeLog.record(CustomerChange.Type.UPDATED, customer);
+            evict(id, customer.getEmail());
+        }
+        return Optional.of(customer);
+    }
+
+    /**
+     * Drops the cached entries for a customer that was written. Inside a transaction the eviction
+     * runs after commit so a concurrent reader cannot re-cache the old row.
+     */
+    public void evict(UUID id, String email) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictNow(id, email);
+                }
+            });
+        } else {
+            evictNow(id, email);
+        }
+    }
+
+    private void evictNow(UUID id, String email) {
+        // Forget before evicting, so a load that read the old row cannot re-cache it in between
+        if (id != null) {
+            byIdLoads.forget(id);
+            byId.evict(id);
+        }
+        if (email != null) {
+            idByEmailLoads.forget(email);
+            idByEmail.evict(email);
+        }
+    }
+
+    // Cache loads read the primary: a lagging replica could otherwise re-cache a row that a write
+    // has just evicted, and serve it until the entry expires
+    private Customer loadById(UUID id) {
+        if (batchLookups) {
+            return lookups.findById(id);
+        }
+        if (shards != null) {
+            return shards.findById(id).orElse(null);
+        }
+        return DataSourceRouting.onPrimary(() -> customerRepository.findById(id)).orElse(null);
+    }
+
+    private UUID loadIdByEmail(String email) {
+        // The customer is cached by id too, unless a write evicted ids while it was being read
+        long generation = byIdLoads.generation();
+        Optional<Customer> found;
+        if (batchLookups) {
+            found = Optional.ofNullable(lookups.findByEmail(email));
+        } else if (shards != null) {
+            found = shards.findByEmail(email);
+        } else {
+            found = DataSourceRouting.onPrimary(() -> customerRepository.findByEmail(email));
+        }
+        return found
+                .map(customer -> {
+                    byIdLoads.publishIfUnchanged(customer.getId(), generation, () -> byId.put(customer.getId(), customer));
+                    return customer.getId();
+                })
+                .orElse(null);
+    }
+
+    private static final class PatchableField {
+        private final Function<Customer, String> getter;
+        private final BiConsumer<Customer, String> setter;
+
+        private PatchableField(Function<Customer, String> getter, BiConsumer<Customer, String> setter) {
+            this.getter = getter;
+            this.setter = setter;
+        }
+    }
+}
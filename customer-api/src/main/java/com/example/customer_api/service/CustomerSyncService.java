@@ -0,0 +1,149 @@
+package com.example.customer_api.service;
+
+import com.example.customer_api.dto.CustomerSyncItem;
+import com.example.customer_api.entity.Customer;
+import com.example.customer_api.entity.CustomerTombstone;
+import com.example.customer_api.repository.CustomerRepository;
+import com.example.customer_api.repository.CustomerScans;
+import com.example.customer_api.repository.CustomerTombstoneRepository;
+import com.example.customer_api.sharding.ShardedCustomerRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Incremental sync: customers created or updated and customers deleted since a point in time,
+ * merged into one list ordered by {@code (modified time, id)}. Both tables are read with a keyset
+ * on their {@code (timestamp, id)} index, so a page costs the same however far back it starts.
+ *
+ * <p>A write is stamped before it commits, so a row stamped just before a page was read can
+ * still appear after it. Pages therefore leave out rows younger than
+ * {@code customer.sync.settle-time}; a client resuming from the last position it saw only misses
+ * writes whose transactions ran longer than that.
+ */
+@Service
+public class CustomerSyncService implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(CustomerSyncService.class);
+    private static final Duration PURGE_INITIAL_DELAY = Duration.ofMinutes(1);
+    private static final Duration PURGE_INTERVAL = Duration.ofHours(1);
+
+    // Sorts before every real id, so (since, FIRST_ID) starts a page at since itself
+    public static final UUID FIRST_ID = new UUID(0, 0);
+
+    // The database order of ids: H2 binary(16) and PostgreSQL uuid both compare as unsigned bytes
+    private static final Comparator<UUID> ID_ORDER = (a, b) -> {
+        int high = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+        return high != 0 ? high : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+    };
+    private static final Comparator<CustomerSyncItem> SYNC_ORDER = Comparator
+            .comparing(CustomerSyncItem::getModifiedAt)
+            .thenComparing(CustomerSyncItem::getId, ID_ORDER);
+
+    private final CustomerScans customerScans;
+    private final CustomerTombstoneRepository tombstoneRepository;
+    private final Duration settleTime;
+    private final Duration tombstoneRetention;
+    private final ScheduledFuture<?> purger;
+
+    public CustomerSyncService(CustomerRepository customerRepository,
+                               ObjectProvider<ShardedCustomerRepository> shards,
+                               CustomerTombstoneRepository tombstoneRepository,
+                               TaskScheduler taskScheduler,
+                               @Value("${customer.sync.settle-time:5s}") Duration settleTime,
+                               @Value("${customer.sync.tombstone-retention:30d}") Duration tombstoneRetention) {
+        // Sharded customers come back up to a page per shard; the merge below sorts and cuts them
+        ShardedCustomerRepository sharded = shards.getIfAvailable();
+        this.customerScans = sharded != null ? sharded : customerRepository;
+        this.tombstoneRepository = tombstoneRepository;
+        this.settleTime = settleTime;
+        this.tombstoneRetention = tombstoneRetention;
+        this.purger = taskScheduler.scheduleWithFixedDelay(this::purgeTombstones,
+                Instant.now().plus(PURGE_INITIAL_DELAY), PURGE_INTERVAL);
+    }
+
+    /**
+     * Up to {@code limit} changes after position {@code (since, afterId)}, plus whether more follow.
+     *
+     * @throws SyncWindowExpiredException if tombstones from after {@code since} may already be purged
+     */
+    @Transactional(readOnly = true)
+    public SyncPage findModifiedAfter(Instant since, UUID afterId, int limit) {
+        Instant now = Customer.now();
+        if (since.isBefore(now.minus(tombstoneRetention))) {
+            throw new SyncWindowExpiredException("modifiedSince is older than the " + tombstoneRetention.toDays()
+                    + " days deletes are kept; re-read all customers");
+        }
+        Instant until = now.minus(settleTime);
+        Pageable window = PageRequest.of(0, limit + 1);
+
+        List<CustomerSyncItem> items = new ArrayList<>();
+        for (Customer customer : customerScans.findModifiedAfter(since, afterId, until, window)) {
+            items.add(CustomerSyncItem.builder()
+                    .id(customer.getId())
+                    .modifiedAt(customer.getUpdatedAt())
+                    .customer(customer)
+                    .build());
+        }
+        for (CustomerTombstone tombstone : tombstoneRepository.findDeletedAfter(since, afterId, until, window)) {
+            items.add(CustomerSyncItem.builder()
+                    .id(tombstone.getId())
+                    .modifiedAt(tombstone.getDeletedAt())
+                    .deleted(true)
+                    .build());
+        }
+        items.sort(SYNC_ORDER);
+        if (items.size() <= limit) {
+            return new SyncPage(items, false);
+        }
+        return new SyncPage(new ArrayList<>(items.subList(0, limit)), true);
+    }
+
+    void purgeTombstones() {
+        try {
+            int purged = tombstoneRepository.deleteDeletedBefore(Customer.now().minus(tombstoneRetention));
+            if (purged > 0) {
+                logger.info("Purged {} customer tombstones older than {}", purged, tombstoneRetention);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Purging customer tombstones failed", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        purger.cancel(true);
+    }
+
+    public static final class SyncPage {
+        private final List<CustomerSyncItem> items;
+        private final boolean more;
+
+        SyncPage(List<CustomerSyncItem> items, boolean more) {
+            this.items = items;
+            this.more = more;
+        }
+
+        public List<CustomerSyncItem> getItems() {
+            return items;
+        }
+
+        public boolean hasMore() {
+            return more;
+        }
+    }
+}
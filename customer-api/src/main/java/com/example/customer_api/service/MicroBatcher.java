@@ -0,0 +1,180 @@
+package com.example.customer_api.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * DataLoader-style batching of point lookups. Keys requested within {@code window} of the first
+ * pending one are collected, and one call of the batch loader (an {@code IN} query) serves them
+ * all. A batch is sent as soon as it reaches {@code maxBatchSize}. A key requested twice in the
+ * same batch is loaded once. Keys the loader does not return resolve to {@code null}.
+ *
+ * <p>Window timers run on the shared {@link TaskScheduler}; they only hand the batch over. The
+ * queries themselves run on {@code concurrency} threads of the batcher's own: that caps the
+ * connections lookups can hold at once, and a slow {@code IN} query cannot hold up the
+ * scheduler's other jobs. {@link #close} stops those threads. The number of keys per query is
+ * recorded in {@code customer.lookup.batch.size}.
+ */
+public class MicroBatcher<K, V> implements Closeable {
+    private final Function<List<K>, Map<K, V>> batchLoader;
+    private final Duration window;
+    private final int maxBatchSize;
+    private final DistributionSummary batchSizes;
+    private final TaskScheduler timer;
+    private final ExecutorService loaders;
+    private final Object lock = new Object();
+    private Map<K, CompletableFuture<V>> pending = new LinkedHashMap<>();
+    private ScheduledFuture<?> scheduledFlush;
+
+    public MicroBatcher(String lookup, Function<List<K>, Map<K, V>> batchLoader, TaskScheduler timer,
+                        Duration window, int maxBatchSize, int concurrency, MeterRegistry registry) {
+        this.batchLoader = batchLoader;
+        this.timer = timer;
+        this.window = window;
+        this.maxBatchSize = maxBatchSize;
+        this.batchSizes = DistributionSummary.builder("customer.lookup.batch.size")
+                .description("Keys resolved per batched lookup query")
+                .tag("lookup", lookup)
+                .register(registry);
+        this.loaders = Executors.newFixedThreadPool(concurrency, daemon("lookup-batch-" + lookup));
+    }
+
+    private static ThreadFactory daemon(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    public CompletableFuture<V> load(K key) {
+        synchronized (lock) {
+            return enqueue(key);
+        }
+    }
+
+    /** Blocks until {@code key} is loaded, rethrowing the batch loader's exception unwrapped. */
+    public V get(K key) {
+        return join(load(key));
+    }
+
+    /** Blocking {@link #loadAll}: the values found, in the order of {@code keys}. */
+    public Map<K, V> getAll(Collection<K> keys) {
+        return join(loadAll(keys));
+    }
+
+    /**
+     * Queues many keys and sends any partial batch right away instead of waiting for the window.
+     * Use {@link #join(Map)} to wait for the results.
+     */
+    public Map<K, CompletableFuture<V>> loadAll(Collection<K> keys) {
+        Map<K, CompletableFuture<V>> futures = new LinkedHashMap<>();
+        synchronized (lock) {
+            for (K key : keys) {
+                futures.computeIfAbsent(key, this::enqueue);
+            }
+            flush();
+        }
+        return futures;
+    }
+
+    /** Waits for the futures of {@link #loadAll}; keys that were not found are left out. */
+    public static <K, V> Map<K, V> join(Map<K, CompletableFuture<V>> futures) {
+        Map<K, V> values = new LinkedHashMap<>();
+        futures.forEach((key, future) -> {
+            V value = join(future);
+            if (value != null) {
+                values.put(key, value);
+            }
+        });
+        return values;
+    }
+
+    // Called with the lock held
+    private CompletableFuture<V> enqueue(K key) {
+        CompletableFuture<V> future = pending.computeIfAbsent(key, k -> new CompletableFuture<>());
+        if (pending.size() >= maxBatchSize) {
+            flush();
+        } else if (scheduledFlush == null) {
+            scheduledFlush = timer.schedule(this::flushOnTimer, Instant.now().plus(window));
+        }
+        return future;
+    }
+
+    private void flushOnTimer() {
+        synchronized (lock) {
+            flush();
+        }
+    }
+
+    // Called with the lock held
+    private void flush() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        Map<K, CompletableFuture<V>> batch = pending;
+        pending = new LinkedHashMap<>();
+        loaders.execute(() -> dispatch(batch));
+    }
+
+    private void dispatch(Map<K, CompletableFuture<V>> batch) {
+        batchSizes.record(batch.size());
+        Map<K, V> values;
+        try {
+            values = batchLoader.apply(new ArrayList<>(batch.keySet()));
+        } catch (RuntimeException | Error e) {
+            batch.values().forEach(future -> future.completeExceptionally(e));
+            return;
+        }
+        batch.forEach((key, future) -> future.complete(values.get(key)));
+    }
+
+    private static <V> V join(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (lock) {
+            if (scheduledFlush != null) {
+                scheduledFlush.cancel(false);
+                scheduledFlush = null;
+            }
+        }
+        loaders.shutdownNow();
+    }
+}
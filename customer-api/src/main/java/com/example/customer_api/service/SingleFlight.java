@@ -0,0 +1,172 @@
+package com.example.customer_api.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent calls for the same key into one execution: the first caller (the leader)
+ * runs the loader, and callers that arrive while it runs wait for and share its result or its
+ * exception. Nothing is kept once the call completes, so this is not a cache and needs no TTL.
+ *
+ * <p>In-flight calls live in lock-striped maps, so unrelated keys rarely contend. Each stripe
+ * holds at most {@code maxInFlight / stripes} keys; beyond that, calls run uncoalesced rather
+ * than growing the map. Writers call {@link #forget} once their change is visible. Later
+ * callers then start a fresh load instead of joining one that may have read the old row, and
+ * the forgotten load no longer publishes its result. A value loaded outside {@link #execute} for
+ * one of the keys (say, a customer found by email, cached by id) can be published with
+ * {@link #publishIfUnchanged} against the {@link #generation} read before its load started.
+ *
+ * <p>Requests are counted in {@code customer.singleflight.requests}, tagged by {@code lookup} and
+ * {@code outcome}: {@code leader}, {@code coalesced} or {@code bypassed}.
+ */
+public class SingleFlight<K, V> {
+    private final Stripe<K, V>[] stripes;
+    private final int maxPerStripe;
+    private final Counter leaders;
+    private final Counter coalesced;
+    private final Counter bypassed;
+    // Bumped by every forget, under the forgotten key's stripe lock
+    private final AtomicLong forgets = new AtomicLong();
+
+    @SuppressWarnings("unchecked")
+    public SingleFlight(String lookup, int stripes, int maxInFlight, MeterRegistry registry) {
+        if (stripes < 1 || maxInFlight < stripes) {
+            throw new IllegalArgumentException("Need at least one stripe and one in-flight call per stripe");
+        }
+        this.stripes = new Stripe[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new Stripe<>();
+        }
+        this.maxPerStripe = maxInFlight / stripes;
+        this.leaders = counter(registry, lookup, "leader");
+        this.coalesced = counter(registry, lookup, "coalesced");
+        this.bypassed = counter(registry, lookup, "bypassed");
+    }
+
+    private static Counter counter(MeterRegistry registry, String lookup, String outcome) {
+        return Counter.builder("customer.singleflight.requests")
+                .description("Lookups by whether they ran, joined an identical in-flight call, or bypassed a full stripe")
+                .tag("lookup", lookup)
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    public V execute(K key, Supplier<V> loader) {
+        return execute(key, loader, value -> {
+        });
+    }
+
+    /**
+     * Like {@link #execute(Object, Supplier)}, and hands the loaded value to {@code publish}
+     * (typically a cache put) unless {@link #forget} was called for the key during the load.
+     * {@code publish} runs under the stripe lock, so it must be quick.
+     */
+    public V execute(K key, Supplier<V> loader, Consumer<V> publish) {
+        Stripe<K, V> stripe = stripeFor(key);
+        CompletableFuture<V> flight;
+        boolean leader = false;
+        synchronized (stripe) {
+            flight = stripe.flights.get(key);
+            if (flight == null && stripe.flights.size() < maxPerStripe) {
+                flight = new CompletableFuture<>();
+                stripe.flights.put(key, flight);
+                leader = true;
+            }
+        }
+        if (flight == null) {
+            // Never published: without a registered call, a concurrent write could not revoke it
+            bypassed.increment();
+            return loader.get();
+        }
+        if (!leader) {
+            coalesced.increment();
+            return await(flight);
+        }
+
+        leaders.increment();
+        V value;
+        try {
+            value = loader.get();
+        } catch (RuntimeException | Error e) {
+            synchronized (stripe) {
+                stripe.flights.remove(key, flight);
+            }
+            flight.completeExceptionally(e);
+            throw e;
+        }
+        synchronized (stripe) {
+            // Removing by identity: after a forget the key may already belong to a newer call
+            if (stripe.flights.remove(key, flight)) {
+                publish.accept(value);
+            }
+        }
+        flight.complete(value);
+        return value;
+    }
+
+    /** Detaches the in-flight call for {@code key}, if any; its current waiters still get its result. */
+    public void forget(K key) {
+        Stripe<K, V> stripe = stripeFor(key);
+        synchronized (stripe) {
+            stripe.flights.remove(key);
+            forgets.incrementAndGet();
+        }
+    }
+
+    /** Read before a load whose result will be passed to {@link #publishIfUnchanged}. */
+    public long generation() {
+        return forgets.get();
+    }
+
+    /**
+     * Runs {@code publish} under {@code key}'s stripe lock unless any key was forgotten since
+     * {@code generation} was read. This is conservative: a write to an unrelated key also skips the
+     * publish, which only costs a later cache miss.
+     *
+     * @return whether {@code publish} ran
+     */
+    public boolean publishIfUnchanged(K key, long generation, Runnable publish) {
+        Stripe<K, V> stripe = stripeFor(key);
+        synchronized (stripe) {
+            if (forgets.get() != generation) {
+                return false;
+            }
+            publish.run();
+            return true;
+        }
+    }
+
+    private static <V> V await(CompletableFuture<V> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            // The leader's own exception, rethrown unwrapped as the leader saw it
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    private Stripe<K, V> stripeFor(K key) {
+        int hash = key.hashCode();
+        hash ^= hash >>> 16;
+        return stripes[Math.floorMod(hash, stripes.length)];
+    }
+
+    private static final class Stripe<K, V> {
+        private final Map<K, CompletableFuture<V>> flights = new HashMap<>();
+    }
+}
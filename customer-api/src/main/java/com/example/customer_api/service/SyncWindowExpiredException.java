@@ -0,0 +1,12 @@
+package com.example.customer_api.service;
+
+/**
+ * Thrown when an incremental sync starts before the oldest tombstone still kept, so deletes may
+ * be missing; the client has to re-read the full customer list.
+ */
+public class SyncWindowExpiredException extends RuntimeException {
+
+    public SyncWindowExpiredException(String message) {
+        super(message);
+    }
+}
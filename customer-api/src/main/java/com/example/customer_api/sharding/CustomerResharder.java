@@ -0,0 +1,176 @@
+package com.example.customer_api.sharding;
+
+import com.example.customer_api.entity.Customer;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Offline resharding: given the new list of shards, moves every customer that is not on the
+ * shard {@link ShardRouter} assigns it to, then repairs the email directory. Run it while the
+ * application is stopped. New shards get the schema first.
+ *
+ * <p>Each row is copied before it is deleted from its old shard, so an interrupted run loses
+ * nothing and can simply be run again.
+ *
+ * <pre>java -cp customer-api-exec.jar -Dloader.main=com.example.customer_api.sharding.CustomerResharder \
+ *     org.springframework.boot.loader.PropertiesLauncher \
+ *     --shards=jdbc:postgresql://db0/customers,jdbc:postgresql://db1/customers \
+ *     --directory=jdbc:postgresql://db0/customers --username=... --password=...</pre>
+ */
+public class CustomerResharder {
+    private static final int PAGE_SIZE = 500;
+
+    private final List<JdbcTemplate> shards = new ArrayList<>();
+    private final List<Boolean> shardUsesUuid = new ArrayList<>();
+    private final JdbcTemplate directory;
+    private final boolean directoryUsesUuid;
+    private final ShardRouter router;
+
+    public CustomerResharder(List<DataSource> shardDataSources, DataSource directoryDataSource) {
+        for (DataSource dataSource : shardDataSources) {
+            ShardJdbc.migrate(dataSource, false);
+            JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+            shards.add(jdbc);
+            shardUsesUuid.add(ShardJdbc.usesUuidType(jdbc));
+        }
+        ShardJdbc.migrate(directoryDataSource, true);
+        this.directory = new JdbcTemplate(directoryDataSource);
+        this.directoryUsesUuid = ShardJdbc.usesUuidType(directory);
+        this.router = new ShardRouter(shards.size());
+    }
+
+    public Result reshard() {
+        Result result = new Result();
+        for (int source = 0; source < shards.size(); source++) {
+            UUID after = null;
+            List<Customer> page;
+            do {
+                page = after == null
+                        ? shards.get(source).query("select " + ShardJdbc.CUSTOMER_COLUMNS + " from customers order by id limit ?",
+                                ShardJdbc.CUSTOMER_ROW, PAGE_SIZE)
+                        : shards.get(source).query("select " + ShardJdbc.CUSTOMER_COLUMNS + " from customers where id > ? order by id limit ?",
+                                ShardJdbc.CUSTOMER_ROW, ShardJdbc.idParam(after, shardUsesUuid.get(source)), PAGE_SIZE);
+                for (Customer customer : page) {
+                    int target = router.shardFor(customer.getId());
+                    if (target != source) {
+                        move(customer, source, target);
+                        result.moved.merge(source + "->" + target, 1, Integer::sum);
+                    }
+                    if (ensureClaim(customer)) {
+                        result.claimsAdded++;
+                    }
+                }
+                after = page.isEmpty() ? after : page.get(page.size() - 1).getId();
+            } while (page.size() == PAGE_SIZE);
+        }
+        result.claimsRemoved = removeOrphanClaims();
+        return result;
+    }
+
+    private void move(Customer customer, int source, int target) {
+        JdbcTemplate to = shards.get(target);
+        boolean targetUuid = shardUsesUuid.get(target);
+        Integer present = to.queryForObject("select count(*) from customers where id = ?", Integer.class,
+                ShardJdbc.idParam(customer.getId(), targetUuid));
+        if (present == null || present == 0) {
+            to.update(ShardJdbc.INSERT_CUSTOMER, ShardJdbc.insertParams(customer, targetUuid));
+        }
+        shards.get(source).update("delete from customers where id = ?",
+                ShardJdbc.idParam(customer.getId(), shardUsesUuid.get(source)));
+    }
+
+    private boolean ensureClaim(Customer customer) {
+        Integer claimed = directory.queryForObject("select count(*) from customer_email_directory where email = ?",
+                Integer.class, customer.getEmail());
+        if (claimed != null && claimed > 0) {
+            return false;
+        }
+        directory.update("insert into customer_email_directory (email, customer_id) values (?, ?)",
+                customer.getEmail(), ShardJdbc.idParam(customer.getId(), directoryUsesUuid));
+        return true;
+    }
+
+    // Claims left behind by interrupted writes: the customer is gone or now uses another email
+    private int removeOrphanClaims() {
+        int removed = 0;
+        String after = null;
+        List<Map.Entry<String, UUID>> page;
+        do {
+            page = after == null
+                    ? directory.query("select email, customer_id from customer_email_directory order by email limit ?",
+                            (rs, rowNum) -> Map.entry(rs.getString("email"), ShardJdbc.readId(rs, "customer_id")), PAGE_SIZE)
+                    : directory.query("select email, customer_id from customer_email_directory where email > ? order by email limit ?",
+                            (rs, rowNum) -> Map.entry(rs.getString("email"), ShardJdbc.readId(rs, "customer_id")), after, PAGE_SIZE);
+            for (Map.Entry<String, UUID> claim : page) {
+                int shard = router.shardFor(claim.getValue());
+                List<String> email = shards.get(shard).queryForList("select email from customers where id = ?", String.class,
+                        ShardJdbc.idParam(claim.getValue(), shardUsesUuid.get(shard)));
+                if (email.isEmpty() || !email.get(0).equals(claim.getKey())) {
+                    removed += directory.update("delete from customer_email_directory where email = ? and customer_id = ?",
+                            claim.getKey(), ShardJdbc.idParam(claim.getValue(), directoryUsesUuid));
+                }
+            }
+            after = page.isEmpty() ? after : page.get(page.size() - 1).getKey();
+        } while (page.size() == PAGE_SIZE);
+        return removed;
+    }
+
+    public static void main(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        String shardUrls = options.get("shards");
+        if (shardUrls == null || shardUrls.isBlank()) {
+            throw new IllegalArgumentException("--shards is required");
+        }
+        String username = options.getOrDefault("username", "");
+        String password = options.getOrDefault("password", "");
+        List<DataSource> shards = new ArrayList<>();
+        for (String url : Arrays.asList(shardUrls.split(","))) {
+            shards.add(new DriverManagerDataSource(url.trim(), username, password));
+        }
+        DataSource directory = options.containsKey("directory")
+                ? new DriverManagerDataSource(options.get("directory"), username, password)
+                : shards.get(0);
+        System.out.println(new CustomerResharder(shards, directory).reshard());
+    }
+
+    public static final class Result {
+        private final Map<String, Integer> moved = new HashMap<>();
+        private int claimsAdded;
+        private int claimsRemoved;
+
+        /**
+         * Rows moved, keyed by {@code "source->target"} shard index.
+         */
+        public Map<String, Integer> getMoved() {
+            return moved;
+        }
+
+        public int getClaimsAdded() {
+            return claimsAdded;
+        }
+
+        public int getClaimsRemoved() {
+            return claimsRemoved;
+        }
+
+        @Override
+        public String toString() {
+            return "moved=" + moved + ", claimsAdded=" + claimsAdded + ", claimsRemoved=" + claimsRemoved;
+        }
+    }
+}
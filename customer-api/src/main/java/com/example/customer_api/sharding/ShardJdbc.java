@@ -0,0 +1,111 @@
+package com.example.customer_api.sharding;
+
+import com.example.customer_api.entity.Customer;
+import org.flywaydb.core.Flyway;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import javax.sql.DataSource;
+import java.nio.ByteBuffer;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Comparator;
+import java.util.UUID;
+
+/**
+ * JDBC plumbing shared by the sharded store and the resharding tool. Ids are stored the way the
+ * JPA mapping stores them: {@code uuid} on PostgreSQL, {@code binary(16)} elsewhere.
+ */
+final class ShardJdbc {
+    static final String CUSTOMER_COLUMNS = "id, first_name, middle_name, last_name, email, phone_number, version, "
+            + "first_name_norm, last_name_norm, phone_number_norm, email_norm, created_at, updated_at";
+    static final String INSERT_CUSTOMER = "insert into customers (" + CUSTOMER_COLUMNS + ") "
+            + "values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // Both H2 binary(16) and PostgreSQL uuid sort as unsigned bytes; UUID.compareTo does not
+    static final Comparator<UUID> ID_ORDER = (a, b) -> {
+        int high = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+        return high != 0 ? high : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+    };
+
+    static final RowMapper<Customer> CUSTOMER_ROW = (rs, rowNum) -> Customer.builder()
+            .id(readId(rs, "id"))
+            .firstName(rs.getString("first_name"))
+            .middleName(rs.getString("middle_name"))
+            .lastName(rs.getString("last_name"))
+            .email(rs.getString("email"))
+            .phoneNumber(rs.getString("phone_number"))
+            .version(rs.getLong("version"))
+            .firstNameNorm(rs.getString("first_name_norm"))
+            .lastNameNorm(rs.getString("last_name_norm"))
+            .phoneNumberNorm(rs.getString("phone_number_norm"))
+            .emailNorm(rs.getString("email_norm"))
+            .createdAt(readTimestamp(rs, "created_at"))
+            .updatedAt(readTimestamp(rs, "updated_at"))
+            .build();
+
+    private ShardJdbc() {
+    }
+
+    static boolean usesUuidType(JdbcTemplate jdbc) {
+        return "PostgreSQL".equalsIgnoreCase(productName(jdbc));
+    }
+
+    /**
+     * Applies the customer schema to a shard, or the email directory schema to the directory
+     * database. The directory keeps its own history table so it can share a database with a shard.
+     */
+    static void migrate(DataSource dataSource, boolean directory) {
+        String vendor = usesUuidType(new JdbcTemplate(dataSource)) ? "postgresql" : "h2";
+        Flyway.configure()
+                .dataSource(dataSource)
+                .locations(directory ? "classpath:db/directory/" + vendor : "classpath:db/migration/" + vendor)
+                .table(directory ? "flyway_directory_history" : "flyway_schema_history")
+                // Shard and directory may share a database; neither may mistake the other's tables for its own baseline
+                .baselineOnMigrate(true)
+                .baselineVersion("0")
+                .load()
+                .migrate();
+    }
+
+    private static String productName(JdbcTemplate jdbc) {
+        return jdbc.execute((ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+    }
+
+    static Object idParam(UUID id, boolean uuidType) {
+        if (uuidType) {
+            return id;
+        }
+        return ByteBuffer.allocate(16).putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits()).array();
+    }
+
+    static UUID readId(ResultSet rs, String column) throws SQLException {
+        Object value = rs.getObject(column);
+        if (value instanceof UUID) {
+            return (UUID) value;
+        }
+        ByteBuffer bytes = ByteBuffer.wrap((byte[]) value);
+        return new UUID(bytes.getLong(), bytes.getLong());
+    }
+
+    static Object[] insertParams(Customer customer, boolean uuidType) {
+        return new Object[]{idParam(customer.getId(), uuidType), customer.getFirstName(), customer.getMiddleName(),
+                customer.getLastName(), customer.getEmail(), customer.getPhoneNumber(), customer.getVersion(),
+                customer.getFirstNameNorm(), customer.getLastNameNorm(), customer.getPhoneNumberNorm(),
+                customer.getEmailNorm(), timestampParam(customer.getCreatedAt()), timestampParam(customer.getUpdatedAt())};
+    }
+
+    // Timestamp columns hold UTC wall-clock time, as written by Hibernate with jdbc.time_zone=UTC
+    static Object timestampParam(Instant instant) {
+        return LocalDateTime.ofInstant(instant, ZoneOffset.UTC);
+    }
+
+    static Instant readTimestamp(ResultSet rs, String column) throws SQLException {
+        LocalDateTime value = rs.getObject(column, LocalDateTime.class);
+        return value == null ? null : value.toInstant(ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.customer_api.sharding;
+
+import java.util.UUID;
+
+/**
+ * Maps a customer id to one of N shards with jump consistent hashing (Lamping and Veach), so
+ * growing from N to N + 1 shards moves only about 1/(N + 1) of the rows.
+ */
+public final class ShardRouter {
+    private final int shardCount;
+
+    public ShardRouter(int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("shardCount must be at least 1");
+        }
+        this.shardCount = shardCount;
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    public int shardFor(UUID id) {
+        return jumpConsistentHash(id.getMostSignificantBits() ^ id.getLeastSignificantBits(), shardCount);
+    }
+
+    static int jumpConsistentHash(long key, int buckets) {
+        long bucket = -1;
+        long next = 0;
+        while (next < buckets) {
+            bucket = next;
+            key = key * 2862933555777941757L + 1;
+            next = (long) ((bucket + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+        }
+        return (int) bucket;
+    }
+}
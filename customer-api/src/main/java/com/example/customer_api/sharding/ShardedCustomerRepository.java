@@ -0,0 +1,393 @@
+package com.example.customer_api.sharding;
+
+import com.example.customer_api.entity.Customer;
+import com.example.customer_api.repository.CustomerScans;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
+
+/**
+ * Customer store spread over several databases. A customer lives on the shard picked by
+ * {@link ShardRouter} from its id; a global directory maps every email to its customer id so
+ * lookups by email hit one shard and emails stay unique across all of them.
+ *
+ * <p>Writes are ordered so a crash never leaves two customers with the same email: the email is
+ * claimed in the directory before the row is written and released only after the row no longer
+ * uses it. A crash in between can leave an orphan claim, which blocks that email until the
+ * resharding tool's directory repair removes it.
+ *
+ * <p>Listing by id and search run on every shard in parallel; see {@link CustomerScans}.
+ */
+public class ShardedCustomerRepository implements CustomerScans {
+    private static final String SELECT_CUSTOMER = "select " + ShardJdbc.CUSTOMER_COLUMNS + " from customers";
+
+    private final List<Shard> shards = new ArrayList<>();
+    private final JdbcTemplate directory;
+    private final boolean directoryUsesUuid;
+    private final ShardRouter router;
+    private final Executor fanOutExecutor;
+
+    public ShardedCustomerRepository(List<DataSource> shardDataSources, DataSource directoryDataSource, Executor fanOutExecutor) {
+        for (DataSource dataSource : shardDataSources) {
+            JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+            shards.add(new Shard(jdbc, ShardJdbc.usesUuidType(jdbc)));
+        }
+        this.directory = new JdbcTemplate(directoryDataSource);
+        this.directoryUsesUuid = ShardJdbc.usesUuidType(directory);
+        this.router = new ShardRouter(shards.size());
+        this.fanOutExecutor = fanOutExecutor;
+    }
+
+    public ShardRouter getRouter() {
+        return router;
+    }
+
+    public Optional<Customer> findById(UUID id) {
+        Shard shard = shardFor(id);
+        return shard.jdbc.query(SELECT_CUSTOMER + " where id = ?", ShardJdbc.CUSTOMER_ROW, shard.id(id))
+                .stream().findFirst();
+    }
+
+    public Optional<Customer> findByEmail(String email) {
+        return findIdByEmail(email)
+                .flatMap(this::findById)
+                // A claim left behind by an interrupted write points at a row with another email
+                .filter(customer -> email.equals(customer.getEmail()));
+    }
+
+    /**
+     * Inserts a customer, assigning an id unless it has one.
+     *
+     * @throws DuplicateKeyException if another customer already uses the email
+     */
+    public Customer insert(Customer customer) {
+        if (customer.getId() == null) {
+            customer.setId(UUID.randomUUID());
+        }
+        customer.normalizeSearchColumns();
+        customer.setVersion(0L);
+        customer.setCreatedAt(Customer.now());
+        customer.setUpdatedAt(customer.getCreatedAt());
+        claim(customer.getEmail(), customer.getId());
+        Shard shard = shardFor(customer.getId());
+        try {
+            shard.jdbc.update(ShardJdbc.INSERT_CUSTOMER, ShardJdbc.insertParams(customer, shard.uuidType));
+        } catch (RuntimeException e) {
+            release(customer.getEmail(), customer.getId());
+            throw e;
+        }
+        return customer;
+    }
+
+    /**
+     * Overwrites a customer's fields like {@link com.example.customer_api.repository.CustomerUpdates#overwrite},
+     * and sets the new version and the stored {@code createdAt} on {@code customer}. With
+     * {@code expectedVersion} the row is only written if it still has that version; without, a
+     * write that races another one is retried on top of it.
+     *
+     * @return whether a row was written
+     * @throws DuplicateKeyException if another customer already uses the new email
+     */
+    public boolean overwrite(UUID id, Long expectedVersion, Customer customer) {
+        customer.normalizeSearchColumns();
+        Shard shard = shardFor(id);
+        while (true) {
+            Optional<Customer> found = findById(id);
+            if (found.isEmpty()) {
+                return false;
+            }
+            Customer current = found.get();
+            long version = expectedVersion == null ? current.getVersion() : expectedVersion;
+            if (version != current.getVersion()) {
+                return false;
+            }
+            boolean emailChanged = !current.getEmail().equals(customer.getEmail());
+            if (emailChanged) {
+                claim(customer.getEmail(), id);
+            }
+            customer.touch();
+            int updated;
+            try {
+                updated = shard.jdbc.update("update customers set first_name = ?, middle_name = ?, last_name = ?, email = ?, "
+                                + "phone_number = ?, first_name_norm = ?, last_name_norm = ?, phone_number_norm = ?, "
+                                + "email_norm = ?, updated_at = ?, version = version + 1 where id = ? and version = ?",
+                        customer.getFirstName(), customer.getMiddleName(), customer.getLastName(), customer.getEmail(),
+                        customer.getPhoneNumber(), customer.getFirstNameNorm(), customer.getLastNameNorm(),
+                        customer.getPhoneNumberNorm(), customer.getEmailNorm(),
+                        ShardJdbc.timestampParam(customer.getUpdatedAt()), shard.id(id), version);
+            } catch (RuntimeException e) {
+                if (emailChanged) {
+                    release(customer.getEmail(), id);
+                }
+                throw e;
+            }
+            if (updated == 0) {
+                if (emailChanged) {
+                    release(customer.getEmail(), id);
+                }
+                if (expectedVersion != null) {
+                    return false;
+                }
+                // Another write got in between; overwrite the version it left
+                continue;
+            }
+            if (emailChanged) {
+                release(current.getEmail(), id);
+            }
+            customer.setId(id);
+            customer.setVersion(version + 1);
+            customer.setCreatedAt(current.getCreatedAt());
+            return true;
+        }
+    }
+
+    public boolean deleteById(UUID id) {
+        Optional<Customer> current = findById(id);
+        if (current.isEmpty()) {
+            return false;
+        }
+        Shard shard = shardFor(id);
+        if (shard.jdbc.update("delete from customers where id = ?", shard.id(id)) == 0) {
+            return false;
+        }
+        release(current.get().getEmail(), id);
+        return true;
+    }
+
+    /**
+     * One page of customers in id order across all shards: every shard returns its first
+     * {@code limit} rows after {@code afterId} and the sorted lists are merged.
+     */
+    public List<Customer> findPageOrderedById(UUID afterId, int limit) {
+        List<CompletableFuture<List<Customer>>> perShard = new ArrayList<>();
+        for (Shard shard : shards) {
+            perShard.add(CompletableFuture.supplyAsync(() -> afterId == null
+                    ? shard.jdbc.query(SELECT_CUSTOMER + " order by id limit ?", ShardJdbc.CUSTOMER_ROW, limit)
+                    : shard.jdbc.query(SELECT_CUSTOMER + " where id > ? order by id limit ?", ShardJdbc.CUSTOMER_ROW,
+                            shard.id(afterId), limit), fanOutExecutor));
+        }
+        List<List<Customer>> results = new ArrayList<>();
+        for (CompletableFuture<List<Customer>> future : perShard) {
+            results.add(join(future));
+        }
+        return merge(results, limit);
+    }
+
+    @Override
+    public List<Customer> findAllByOrderByIdAsc(Pageable pageable) {
+        return findPageOrderedById(null, pageable.getPageSize());
+    }
+
+    @Override
+    public List<Customer> findByIdGreaterThanOrderByIdAsc(UUID id, Pageable pageable) {
+        return findPageOrderedById(id, pageable.getPageSize());
+    }
+
+    // Searches and sync return up to the page size from each shard; the caller sorts and cuts
+
+    @Override
+    public List<Customer> searchByLastNamePrefix(String prefix, Pageable pageable) {
+        return queryAll("last_name_norm like ? escape '\\' order by last_name_norm, id", pageable, prefix);
+    }
+
+    @Override
+    public List<Customer> searchByFirstNamePrefix(String prefix, Pageable pageable) {
+        return queryAll("first_name_norm like ? escape '\\' order by first_name_norm, id", pageable, prefix);
+    }
+
+    @Override
+    public List<Customer> searchByFullNamePrefix(String firstPrefix, String lastPrefix, Pageable pageable) {
+        return queryAll("last_name_norm like ? escape '\\' and first_name_norm like ? escape '\\' "
+                + "order by last_name_norm, id", pageable, lastPrefix, firstPrefix);
+    }
+
+    @Override
+    public List<Customer> searchByEmailPrefix(String prefix, Pageable pageable) {
+        return queryAll("email_norm like ? escape '\\' order by email_norm, id", pageable, prefix);
+    }
+
+    @Override
+    public List<Customer> searchByPhoneNumberSuffix(String reversedDigits, Pageable pageable) {
+        return queryAll("phone_number_norm like ? escape '\\' order by phone_number_norm, id", pageable, reversedDigits);
+    }
+
+    @Override
+    public List<Customer> findModifiedAfter(Instant since, UUID afterId, Instant until, Pageable pageable) {
+        return queryAll("(updated_at > ? or (updated_at = ? and id > ?)) and updated_at < ? order by updated_at, id",
+                pageable, since, since, afterId, until);
+    }
+
+    public List<Customer> findAllById(Collection<UUID> ids) {
+        Map<Shard, List<UUID>> byShard = new LinkedHashMap<>();
+        for (UUID id : ids) {
+            byShard.computeIfAbsent(shardFor(id), shard -> new ArrayList<>()).add(id);
+        }
+        List<CompletableFuture<List<Customer>>> perShard = new ArrayList<>();
+        byShard.forEach((shard, shardIds) -> perShard.add(CompletableFuture.supplyAsync(() -> shard.jdbc.query(
+                SELECT_CUSTOMER + " where id in (" + placeholders(shardIds.size()) + ")", ShardJdbc.CUSTOMER_ROW,
+                shardIds.stream().map(shard::id).toArray()), fanOutExecutor)));
+        List<Customer> found = new ArrayList<>();
+        for (CompletableFuture<List<Customer>> future : perShard) {
+            found.addAll(join(future));
+        }
+        return found;
+    }
+
+    public List<Customer> findByEmailIn(Collection<String> emails) {
+        if (emails.isEmpty()) {
+            return List.of();
+        }
+        List<UUID> ids = directory.query("select customer_id from customer_email_directory where email in ("
+                        + placeholders(emails.size()) + ")",
+                (rs, rowNum) -> ShardJdbc.readId(rs, "customer_id"), emails.toArray());
+        List<Customer> found = new ArrayList<>();
+        for (Customer customer : findAllById(ids)) {
+            // Skips rows behind claims left by interrupted writes
+            if (emails.contains(customer.getEmail())) {
+                found.add(customer);
+            }
+        }
+        return found;
+    }
+
+    /** Every customer in id order, read from all shards a page at a time. */
+    public Stream<Customer> streamAll(int pageSize) {
+        return Stream.iterate(findPageOrderedById(null, pageSize), page -> !page.isEmpty(),
+                        page -> page.size() < pageSize
+                                ? List.of()
+                                : findPageOrderedById(page.get(page.size() - 1).getId(), pageSize))
+                .flatMap(List::stream);
+    }
+
+    public long count() {
+        long total = 0;
+        for (Shard shard : shards) {
+            total += Objects.requireNonNull(shard.jdbc.queryForObject("select count(*) from customers", Long.class));
+        }
+        return total;
+    }
+
+    // Runs the query on every shard with up to the page size rows each
+    private List<Customer> queryAll(String condition, Pageable pageable, Object... params) {
+        List<CompletableFuture<List<Customer>>> perShard = new ArrayList<>();
+        for (Shard shard : shards) {
+            Object[] args = new Object[params.length + 1];
+            for (int i = 0; i < params.length; i++) {
+                args[i] = shard.param(params[i]);
+            }
+            args[params.length] = pageable.getPageSize();
+            perShard.add(CompletableFuture.supplyAsync(() -> shard.jdbc.query(
+                    SELECT_CUSTOMER + " where " + condition + " limit ?", ShardJdbc.CUSTOMER_ROW, args), fanOutExecutor));
+        }
+        List<Customer> hits = new ArrayList<>();
+        for (CompletableFuture<List<Customer>> future : perShard) {
+            hits.addAll(join(future));
+        }
+        return hits;
+    }
+
+    private Optional<UUID> findIdByEmail(String email) {
+        return directory.query("select customer_id from customer_email_directory where email = ?",
+                (rs, rowNum) -> ShardJdbc.readId(rs, "customer_id"), email).stream().findFirst();
+    }
+
+    private void claim(String email, UUID id) {
+        directory.update("insert into customer_email_directory (email, customer_id) values (?, ?)",
+                email, ShardJdbc.idParam(id, directoryUsesUuid));
+    }
+
+    // Only removes the claim if it still belongs to this customer
+    private void release(String email, UUID id) {
+        directory.update("delete from customer_email_directory where email = ? and customer_id = ?",
+                email, ShardJdbc.idParam(id, directoryUsesUuid));
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    private Shard shardFor(UUID id) {
+        return shards.get(router.shardFor(id));
+    }
+
+    // k-way merge of lists that are each sorted by id
+    private static List<Customer> merge(List<List<Customer>> sorted, int limit) {
+        PriorityQueue<Cursor> heads = new PriorityQueue<>((a, b) -> ShardJdbc.ID_ORDER.compare(a.head().getId(), b.head().getId()));
+        for (List<Customer> list : sorted) {
+            if (!list.isEmpty()) {
+                heads.add(new Cursor(list));
+            }
+        }
+        List<Customer> page = new ArrayList<>(limit);
+        while (page.size() < limit && !heads.isEmpty()) {
+            Cursor cursor = heads.poll();
+            page.add(cursor.head());
+            if (++cursor.position < cursor.list.size()) {
+                heads.add(cursor);
+            }
+        }
+        return page;
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static final class Shard {
+        private final JdbcTemplate jdbc;
+        private final boolean uuidType;
+
+        private Shard(JdbcTemplate jdbc, boolean uuidType) {
+            this.jdbc = jdbc;
+            this.uuidType = uuidType;
+        }
+
+        private Object id(UUID id) {
+            return ShardJdbc.idParam(id, uuidType);
+        }
+
+        private Object param(Object value) {
+            if (value instanceof UUID) {
+                return id((UUID) value);
+            }
+            return value instanceof Instant ? ShardJdbc.timestampParam((Instant) value) : value;
+        }
+    }
+
+    private static final class Cursor {
+        private final List<Customer> list;
+        private int position;
+
+        private Cursor(List<Customer> list) {
+            this.list = list;
+        }
+
+        private Customer head() {
+            return list.get(position);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.customer_api.sharding;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * {@code customer.sharding.enabled=true}: a {@link ShardedCustomerRepository} over one pool per
+ * URL in {@code customer.sharding.urls}, with the email directory in
+ * {@code customer.sharding.directory-url} (the first shard by default). Schemas are migrated on
+ * startup. The order of {@code urls} defines the shard numbers and must not change without
+ * running {@link CustomerResharder}. With the bean present, {@code CustomerService} and the read
+ * services keep customers in the shards instead of the primary database, which keeps the change log.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "customer.sharding.enabled", havingValue = "true")
+public class ShardingConfiguration {
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService shardFanOutExecutor(@Value("${customer.sharding.urls}") List<String> urls) {
+        return Executors.newFixedThreadPool(urls.size(), runnable -> {
+            Thread thread = new Thread(runnable, "shard-fan-out");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Bean
+    public ShardedCustomerRepository shardedCustomerRepository(
+            @Value("${customer.sharding.urls}") List<String> urls,
+            @Value("${customer.sharding.directory-url:}") String directoryUrl,
+            @Value("${customer.sharding.username:${spring.datasource.username:}}") String username,
+            @Value("${customer.sharding.password:${spring.datasource.password:}}") String password,
+            @Value("${customer.sharding.pool-size:10}") int poolSize,
+            ExecutorService shardFanOutExecutor) {
+        if (urls.isEmpty()) {
+            throw new IllegalStateException("customer.sharding.urls must list at least one shard");
+        }
+        List<DataSource> shards = new ArrayList<>();
+        for (int i = 0; i < urls.size(); i++) {
+            DataSource shard = pool("customer-shard-" + i, urls.get(i), username, password, poolSize);
+            ShardJdbc.migrate(shard, false);
+            shards.add(shard);
+        }
+        DataSource directory = directoryUrl.isBlank()
+                ? shards.get(0)
+                : pool("customer-directory", directoryUrl, username, password, poolSize);
+        ShardJdbc.migrate(directory, true);
+        return new ShardedCustomerRepository(shards, directory, shardFanOutExecutor);
+    }
+
+    private static DataSource pool(String name, String url, String username, String password, int poolSize) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(name);
+        config.setJdbcUrl(url);
+        config.setUsername(username);
+        config.setPassword(password);
+        config.setMaximumPoolSize(poolSize);
+        return new HikariDataSource(config);
+    }
+}
@@ -0,0 +1,319 @@
+package com.example.customer_api.snapshot;
+
+import com.example.customer_api.entity.Customer;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * A read-only, memory-mapped copy of every customer, with open-addressing hash indexes on id and
+ * email. Lookups read the mapped file directly, so the directory lives in the page cache rather
+ * than on the heap, and only the returned {@link Customer} is allocated.
+ *
+ * <p>File layout (big-endian):
+ * <pre>
+ * header   magic, format version, exported-at millis, record count, id slots, email slots,
+ *          records offset, id index offset, email index offset, CRC32 of everything after it
+ * records  id (2 longs), version, created/updated epoch micros, then email, first, middle and
+ *          last name and phone number, each a short byte length (-1 for null) and UTF-8 bytes
+ * id index     one int record offset per slot, 0 when empty
+ * email index  one (int hash, int record offset) pair per slot
+ * </pre>
+ * Both indexes are power-of-two sized and at most half full, with linear probing. Offsets are
+ * ints, so a snapshot is limited to 2 GB.
+ */
+public final class CustomerSnapshot {
+    private static final int MAGIC = 0x43534E50; // "CSNP"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int CHECKSUM_OFFSET = 56;
+    private static final int FIXED_RECORD_SIZE = 5 * Long.BYTES;
+    private static final long NO_TIMESTAMP = Long.MIN_VALUE;
+
+    private final MappedByteBuffer buffer;
+    private final Instant exportedAt;
+    private final int count;
+    private final int idMask;
+    private final int emailMask;
+    private final int idIndex;
+    private final int emailIndex;
+
+    private CustomerSnapshot(MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a customer snapshot");
+        }
+        if (buffer.getInt(4) != FORMAT_VERSION) {
+            throw new IOException("Unsupported customer snapshot version " + buffer.getInt(4));
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(HEADER_SIZE, buffer.capacity() - HEADER_SIZE));
+        if (crc.getValue() != buffer.getLong(CHECKSUM_OFFSET)) {
+            throw new IOException("Customer snapshot is corrupt or incomplete");
+        }
+        this.exportedAt = Instant.ofEpochMilli(buffer.getLong(8));
+        this.count = buffer.getInt(16);
+        this.idMask = buffer.getInt(20) - 1;
+        this.emailMask = buffer.getInt(24) - 1;
+        this.idIndex = (int) buffer.getLong(40);
+        this.emailIndex = (int) buffer.getLong(48);
+    }
+
+    /** Maps and verifies a snapshot file. The mapping outlives the file being replaced or deleted. */
+    public static CustomerSnapshot open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Customer snapshot exceeds 2 GB: " + file);
+            }
+            return new CustomerSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public Instant getExportedAt() {
+        return exportedAt;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public Optional<Customer> findById(UUID id) {
+        long msb = id.getMostSignificantBits();
+        long lsb = id.getLeastSignificantBits();
+        for (int slot = hash(id) & idMask; ; slot = (slot + 1) & idMask) {
+            int record = buffer.getInt(idIndex + slot * Integer.BYTES);
+            if (record == 0) {
+                return Optional.empty();
+            }
+            if (buffer.getLong(record) == msb && buffer.getLong(record + Long.BYTES) == lsb) {
+                return Optional.of(read(record));
+            }
+        }
+    }
+
+    public Optional<Customer> findByEmail(String email) {
+        byte[] key = email.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(key);
+        for (int slot = hash & emailMask; ; slot = (slot + 1) & emailMask) {
+            int entry = emailIndex + slot * 2 * Integer.BYTES;
+            int record = buffer.getInt(entry + Integer.BYTES);
+            if (record == 0) {
+                return Optional.empty();
+            }
+            if (buffer.getInt(entry) == hash && emailEquals(record, key)) {
+                return Optional.of(read(record));
+            }
+        }
+    }
+
+    private boolean emailEquals(int record, byte[] key) {
+        int at = record + FIXED_RECORD_SIZE;
+        if (buffer.getShort(at) != key.length) {
+            return false;
+        }
+        at += Short.BYTES;
+        for (int i = 0; i < key.length; i++) {
+            if (buffer.get(at + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Customer read(int record) {
+        Customer customer = new Customer();
+        customer.setId(new UUID(buffer.getLong(record), buffer.getLong(record + 8)));
+        customer.setVersion(buffer.getLong(record + 16));
+        customer.setCreatedAt(instant(buffer.getLong(record + 24)));
+        customer.setUpdatedAt(instant(buffer.getLong(record + 32)));
+        int[] at = {record + FIXED_RECORD_SIZE};
+        customer.setEmail(readString(at));
+        customer.setFirstName(readString(at));
+        customer.setMiddleName(readString(at));
+        customer.setLastName(readString(at));
+        customer.setPhoneNumber(readString(at));
+        return customer;
+    }
+
+    private String readString(int[] at) {
+        int length = buffer.getShort(at[0]);
+        at[0] += Short.BYTES;
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(at[0], bytes);
+        at[0] += length;
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static Instant instant(long micros) {
+        return micros == NO_TIMESTAMP ? null
+                : Instant.ofEpochSecond(Math.floorDiv(micros, 1_000_000), Math.floorMod(micros, 1_000_000) * 1000L);
+    }
+
+    private static long micros(Instant instant) {
+        return instant == null ? NO_TIMESTAMP
+                : Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1_000_000), instant.getNano() / 1000);
+    }
+
+    // Ids are random, but mix anyway so sequential ids spread over the slots too
+    static int hash(UUID id) {
+        return mix(id.getMostSignificantBits() * 31 + id.getLeastSignificantBits());
+    }
+
+    static int hash(byte[] bytes) {
+        long h = 0xcbf29ce484222325L; // FNV-1a
+        for (byte b : bytes) {
+            h = (h ^ (b & 0xff)) * 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    private static int mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    private static int slots(int count) {
+        return Integer.highestOneBit(Math.max(2, count) * 2 - 1) * 2;
+    }
+
+    /**
+     * Writes a snapshot in one pass over the customers: records are streamed to the file, and the
+     * indexes (12 bytes of heap per customer until {@link #finish}) are appended at the end.
+     */
+    public static final class Writer implements AutoCloseable {
+        private final FileChannel channel;
+        private final CRC32 crc = new CRC32();
+        private final DataOutputStream out;
+        private final Instant exportedAt;
+        private long position = HEADER_SIZE;
+        private int count;
+        private int[] offsets = new int[1024];
+        private int[] idHashes = new int[1024];
+        private int[] emailHashes = new int[1024];
+
+        public Writer(Path file, Instant exportedAt) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            this.exportedAt = exportedAt;
+            channel.position(HEADER_SIZE);
+            this.out = new DataOutputStream(new CheckedOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16), crc));
+        }
+
+        public void add(Customer customer) throws IOException {
+            if (count == offsets.length) {
+                offsets = Arrays.copyOf(offsets, count * 2);
+                idHashes = Arrays.copyOf(idHashes, count * 2);
+                emailHashes = Arrays.copyOf(emailHashes, count * 2);
+            }
+            byte[] email = customer.getEmail().getBytes(StandardCharsets.UTF_8);
+            offsets[count] = checkOffset(position);
+            idHashes[count] = hash(customer.getId());
+            emailHashes[count] = hash(email);
+            count++;
+
+            out.writeLong(customer.getId().getMostSignificantBits());
+            out.writeLong(customer.getId().getLeastSignificantBits());
+            out.writeLong(customer.getVersion() == null ? 0 : customer.getVersion());
+            out.writeLong(micros(customer.getCreatedAt()));
+            out.writeLong(micros(customer.getUpdatedAt()));
+            position += FIXED_RECORD_SIZE;
+            writeString(email);
+            writeString(bytes(customer.getFirstName()));
+            writeString(bytes(customer.getMiddleName()));
+            writeString(bytes(customer.getLastName()));
+            writeString(bytes(customer.getPhoneNumber()));
+        }
+
+        private static byte[] bytes(String value) {
+            return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+        }
+
+        private void writeString(byte[] value) throws IOException {
+            if (value == null) {
+                out.writeShort(-1);
+                position += Short.BYTES;
+                return;
+            }
+            if (value.length > Short.MAX_VALUE) {
+                throw new IOException("Customer field too long for a snapshot: " + value.length + " bytes");
+            }
+            out.writeShort(value.length);
+            out.write(value);
+            position += Short.BYTES + value.length;
+        }
+
+        private static int checkOffset(long position) throws IOException {
+            if (position > Integer.MAX_VALUE) {
+                throw new IOException("Customer snapshot exceeds 2 GB");
+            }
+            return (int) position;
+        }
+
+        /** Appends the indexes, writes the header and forces the file to disk. */
+        public int finish() throws IOException {
+            int idSlots = slots(count);
+            int[] idIndex = new int[idSlots];
+            int[] emailIndex = new int[idSlots * 2];
+            for (int i = 0; i < count; i++) {
+                int slot = idHashes[i] & (idSlots - 1);
+                while (idIndex[slot] != 0) {
+                    slot = (slot + 1) & (idSlots - 1);
+                }
+                idIndex[slot] = offsets[i];
+                slot = emailHashes[i] & (idSlots - 1);
+                while (emailIndex[slot * 2 + 1] != 0) {
+                    slot = (slot + 1) & (idSlots - 1);
+                }
+                emailIndex[slot * 2] = emailHashes[i];
+                emailIndex[slot * 2 + 1] = offsets[i];
+            }
+            long idIndexOffset = position;
+            for (int record : idIndex) {
+                out.writeInt(record);
+            }
+            long emailIndexOffset = idIndexOffset + (long) idSlots * Integer.BYTES;
+            for (int value : emailIndex) {
+                out.writeInt(value);
+            }
+            checkOffset(emailIndexOffset + (long) emailIndex.length * Integer.BYTES);
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(exportedAt.toEpochMilli())
+                    .putInt(count).putInt(idSlots).putInt(idSlots).putInt(0)
+                    .putLong(HEADER_SIZE).putLong(idIndexOffset).putLong(emailIndexOffset)
+                    .putLong(crc.getValue())
+                    .flip();
+            channel.write(header, 0);
+            channel.force(true);
+            return count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.customer_api.snapshot;
+
+import com.example.customer_api.service.CustomerExportService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.io.Closeable;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Rewrites the customer snapshot at {@code target} on a fixed delay, for
+ * {@link CustomerSnapshotStore}s watching the same file (a shared volume, or a copy shipped to
+ * edge pods). Each run takes {@code customer.snapshot.export} time.
+ */
+public class CustomerSnapshotExporter implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(CustomerSnapshotExporter.class);
+
+    private final CustomerExportService exportService;
+    private final Path target;
+    private final MeterRegistry registry;
+    private volatile ScheduledFuture<?> export;
+
+    public CustomerSnapshotExporter(CustomerExportService exportService, Path target, MeterRegistry registry) {
+        this.exportService = exportService;
+        this.target = target;
+        this.registry = registry;
+    }
+
+    public void start(TaskScheduler scheduler, Duration interval) {
+        export = scheduler.scheduleWithFixedDelay(this::exportQuietly, interval);
+    }
+
+    private void exportQuietly() {
+        Timer.Sample sample = Timer.start(registry);
+        String outcome = "failure";
+        try {
+            int count = exportService.exportSnapshot(target);
+            outcome = "success";
+            logger.info("Exported customer snapshot of {} customers to {}", count, target);
+        } catch (Exception e) {
+            logger.warn("Customer snapshot export to {} failed", target, e);
+        } finally {
+            sample.stop(registry.timer("customer.snapshot.export", "outcome", outcome));
+        }
+    }
+
+    @Override
+    public void close() {
+        ScheduledFuture<?> export = this.export;
+        if (export != null) {
+            export.cancel(true);
+        }
+    }
+}
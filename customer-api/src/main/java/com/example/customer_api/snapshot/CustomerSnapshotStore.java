@@ -0,0 +1,110 @@
+package com.example.customer_api.snapshot;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Serves the newest {@link CustomerSnapshot} found at {@code file}. The file is checked every
+ * poll interval; a new one (replaced by rename, as {@code CustomerExportService} does) is mapped
+ * and verified before it replaces the current snapshot in a single volatile write, so a lookup
+ * sees either the old snapshot or the new one. A file that fails verification is skipped until
+ * it changes again. Old mappings are released by the garbage collector once no lookup uses them.
+ */
+public class CustomerSnapshotStore implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(CustomerSnapshotStore.class);
+
+    private final Path file;
+    private final MeterRegistry registry;
+    private volatile ScheduledFuture<?> watcher;
+    private volatile CustomerSnapshot current;
+    // Identity of the last file loaded or rejected; only touched by the reload task, whose runs never overlap
+    private List<Object> seen;
+
+    public CustomerSnapshotStore(Path file, MeterRegistry registry) {
+        this.file = file;
+        this.registry = registry;
+        Gauge.builder("customer.snapshot.customers", this, store -> store.current == null ? 0 : store.current.size())
+                .description("Customers in the served snapshot")
+                .register(registry);
+        Gauge.builder("customer.snapshot.age", this, CustomerSnapshotStore::ageSeconds)
+                .description("Seconds since the served snapshot was exported")
+                .baseUnit("seconds")
+                .register(registry);
+    }
+
+    public void start(TaskScheduler scheduler, Duration pollInterval) {
+        watcher = scheduler.scheduleWithFixedDelay(this::reloadQuietly, pollInterval);
+    }
+
+    /** The snapshot to serve from, or {@code null} until the first one has been loaded. */
+    public CustomerSnapshot current() {
+        return current;
+    }
+
+    /**
+     * Loads the file if it changed since the last call.
+     *
+     * @return whether a new snapshot is now being served
+     */
+    boolean reload() throws IOException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+        List<Object> identity = Arrays.asList(attributes.fileKey(), attributes.lastModifiedTime(), attributes.size());
+        if (identity.equals(seen)) {
+            return false;
+        }
+        seen = identity;
+        CustomerSnapshot snapshot;
+        try {
+            snapshot = CustomerSnapshot.open(file);
+        } catch (IOException e) {
+            registry.counter("customer.snapshot.loads", "result", "failed").increment();
+            throw e;
+        }
+        current = snapshot;
+        registry.counter("customer.snapshot.loads", "result", "loaded").increment();
+        logger.info("Serving customer snapshot of {} customers exported at {}", snapshot.size(), snapshot.getExportedAt());
+        return true;
+    }
+
+    private void reloadQuietly() {
+        try {
+            reload();
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not load customer snapshot {}; still serving the previous one", file, e);
+        }
+    }
+
+    private double ageSeconds() {
+        CustomerSnapshot snapshot = current;
+        return snapshot == null ? Double.NaN
+                : Duration.between(snapshot.getExportedAt(), Instant.now()).toMillis() / 1000.0;
+    }
+
+    @Override
+    public void close() {
+        ScheduledFuture<?> watcher = this.watcher;
+        if (watcher != null) {
+            watcher.cancel(true);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.customer_api.snapshot;
+
+import com.example.customer_api.service.CustomerExportService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Memory-mapped customer snapshots at {@code customer.snapshot.path}.
+ * {@code customer.snapshot.export.enabled=true} rewrites the file every
+ * {@code customer.snapshot.export.interval}; {@code customer.snapshot.serve=true} answers
+ * {@code GET /customers/{id}} and {@code GET /customers?email=} from it, for read-only replicas
+ * that can serve slightly stale data.
+ */
+@Configuration(proxyBeanMethods = false)
+public class SnapshotConfiguration {
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "customer.snapshot.serve", havingValue = "true")
+    public CustomerSnapshotStore customerSnapshotStore(
+            @Value("${customer.snapshot.path:customer-snapshot.bin}") Path path,
+            @Value("${customer.snapshot.reload-interval:10s}") Duration reloadInterval,
+            MeterRegistry registry, TaskScheduler taskScheduler) {
+        CustomerSnapshotStore store = new CustomerSnapshotStore(path, registry);
+        store.start(taskScheduler, reloadInterval);
+        return store;
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "customer.snapshot.export.enabled", havingValue = "true")
+    public CustomerSnapshotExporter customerSnapshotExporter(
+            CustomerExportService exportService,
+            @Value("${customer.snapshot.path:customer-snapshot.bin}") Path path,
+            @Value("${customer.snapshot.export.interval:5m}") Duration interval,
+            MeterRegistry registry, TaskScheduler taskScheduler) {
+        CustomerSnapshotExporter exporter = new CustomerSnapshotExporter(exportService, path, registry);
+        exporter.start(taskScheduler, interval);
+        return exporter;
+    }
+}
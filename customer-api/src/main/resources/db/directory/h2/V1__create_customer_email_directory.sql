@@ -0,0 +1,6 @@
+-- Global email -> customer id index for the sharded store; the shard follows from the id
+create table customer_email_directory (
+    email       varchar(255) not null,
+    customer_id binary(16)   not null,
+    constraint pk_customer_email_directory primary key (email)
+);
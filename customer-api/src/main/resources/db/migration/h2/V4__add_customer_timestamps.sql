@@ -0,0 +1,14 @@
+-- Audit timestamps (UTC) for incremental sync; existing rows count as modified now
+alter table customers add column created_at timestamp default cast(current_timestamp at time zone 'UTC' as timestamp) not null;
+alter table customers add column updated_at timestamp default cast(current_timestamp at time zone 'UTC' as timestamp) not null;
+
+create index idx_customers_updated_at on customers (updated_at, id);
+
+-- Deleted customer ids, so GET /customers?modifiedSince= reports deletes; purged after the retention
+create table customer_tombstones (
+    id         binary(16) not null,
+    deleted_at timestamp  not null,
+    constraint pk_customer_tombstones primary key (id)
+);
+
+create index idx_customer_tombstones_deleted_at on customer_tombstones (deleted_at, id);
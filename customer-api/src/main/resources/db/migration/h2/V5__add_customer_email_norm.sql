@@ -0,0 +1,5 @@
+-- Lower-cased email for case-insensitive prefix search, like the other *_norm columns
+alter table customers add column email_norm varchar(255);
+update customers set email_norm = lower(trim(email));
+
+create index idx_customers_email_norm on customers (email_norm, id);
@@ -0,0 +1,18 @@
+create table customers (
+    id                uuid         not null,
+    first_name        varchar(255) not null,
+    middle_name       varchar(255),
+    last_name         varchar(255) not null,
+    email             varchar(255) not null,
+    phone_number      varchar(255) not null,
+    version           bigint       not null,
+    first_name_norm   varchar(255),
+    last_name_norm    varchar(255),
+    phone_number_norm varchar(255),
+    constraint pk_customers primary key (id),
+    constraint uk_customers_email unique (email)
+);
+
+create index idx_customers_last_name_norm on customers (last_name_norm, id);
+create index idx_customers_first_name_norm on customers (first_name_norm, id);
+create index idx_customers_phone_number_norm on customers (phone_number_norm, id);
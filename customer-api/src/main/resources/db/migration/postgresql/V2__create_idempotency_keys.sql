@@ -0,0 +1,13 @@
+-- Responses of POST requests sent with an Idempotency-Key, for the jdbc idempotency store
+create table idempotency_keys (
+    request_key   varchar(64)  not null,
+    fingerprint   varchar(64)  not null,
+    status        integer,
+    content_type  varchar(255),
+    etag          varchar(255),
+    body          bytea,
+    expires_at    bigint       not null,
+    constraint pk_idempotency_keys primary key (request_key)
+);
+
+create index idx_idempotency_keys_expires_at on idempotency_keys (expires_at);
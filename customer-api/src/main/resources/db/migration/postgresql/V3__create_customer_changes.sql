@@ -0,0 +1,20 @@
+-- Transactional outbox: one row per customer create, update and delete, written in the same
+-- transaction as the change. Sequences order the feed at /customers/changes.
+create table customer_changes (
+    sequence      bigint generated by default as identity,
+    change_type   varchar(16)  not null,
+    customer_id   varchar(36)  not null,
+    version       bigint,
+    payload       text,
+    changed_at    bigint       not null,
+    constraint pk_customer_changes primary key (sequence)
+);
+
+create index idx_customer_changes_changed_at on customer_changes (changed_at);
+
+-- How far each relay has published the outbox
+create table customer_change_relay (
+    relay_name    varchar(64)  not null,
+    last_sequence bigint       not null,
+    constraint pk_customer_change_relay primary key (relay_name)
+);
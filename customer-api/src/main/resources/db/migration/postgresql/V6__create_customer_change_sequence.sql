@@ -0,0 +1,11 @@
+-- Last sequence handed out to customer_changes. Writers take the next sequences from this row
+-- just before they commit, so its row lock numbers changes in commit order and a rollback
+-- leaves no gap in the feed.
+create table customer_change_sequence (
+    id            int     not null,
+    last_sequence bigint  not null,
+    constraint pk_customer_change_sequence primary key (id)
+);
+
+insert into customer_change_sequence (id, last_sequence)
+select 1, coalesce(max(sequence), 0) from customer_changes;
@@ -1,8 +1,18 @@
 package com.example.customer_api;
 
+import com.example.customer_api.dto.CustomerBatchResult;
+import com.example.customer_api.dto.CustomerChange;
+import com.example.customer_api.dto.CustomerLookupRequest;
+import com.example.customer_api.dto.CustomerSyncItem;
 import com.example.customer_api.entity.Customer;
+import com.example.customer_api.service.CustomerExportService;
+import com.example.customer_api.snapshot.CustomerSnapshot;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.boot.web.server.LocalServerPort;
@@ -13,9 +23,26 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureMetrics
 class CustomerApiIntegrationTest {
 
     @LocalServerPort
@@ -24,6 +51,12 @@ class CustomerApiIntegrationTest {
     @Autowired
     private TestRestTemplate restTemplate;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CustomerExportService customerExportService;
+
     @Test
     void createAndGetCustomer() {
         // Create a customer
@@ -128,4 +161,567 @@ class CustomerApiIntegrationTest {
         assertThat(found).isNotNull();
         assertThat(found.getEmail()).isEqualTo("david@example.com");
     }
-} 
\ No newline at end of file
+
+    @Test
+    void listCustomersWithKeysetCursor() {
+        for (String name : List.of("Erin", "Frank", "Grace")) {
+            Customer customer = Customer.builder()
+                    .firstName(name)
+                    .lastName("Page")
+                    .email(name.toLowerCase() + ".page@example.com")
+                    .phoneNumber("4444444444")
+                    .build();
+            restTemplate.postForEntity("http://localhost:" + port + "/customers", customer, Customer.class);
+        }
+
+        // Walk every page with limit=1 and make sure the cursor never repeats or skips a row
+        List<String> emails = new ArrayList<>();
+        String url = "http://localhost:" + port + "/customers?limit=1&sort=email";
+        while (url != null) {
+            ResponseEntity<Customer[]> page = restTemplate.getForEntity(url, Customer[].class);
+            assertThat(page.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(page.getBody()).hasSizeLessThanOrEqualTo(1);
+            Arrays.stream(page.getBody()).map(Customer::getEmail).forEach(emails::add);
+            String next = page.getHeaders().getFirst("X-Next-Cursor");
+            url = next == null ? null
+                    : "http://localhost:" + port + "/customers?limit=1&sort=email&cursor=" + next;
+        }
+
+        assertThat(emails).doesNotHaveDuplicates().isSorted()
+                .contains("erin.page@example.com", "frank.page@example.com", "grace.page@example.com");
+    }
+
+    @Test
+    void listCustomersRejectsOversizedLimit() {
+        ResponseEntity<String> response = restTemplate.getForEntity(
+                "http://localhost:" + port + "/customers?limit=100000", String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void exportCustomersAsNdjson() throws Exception {
+        Customer customer = Customer.builder()
+                .firstName("Hank")
+                .lastName("Export")
+                .email("hank.export@example.com")
+                .phoneNumber("6666666666")
+                .build();
+        restTemplate.postForEntity("http://localhost:" + port + "/customers", customer, Customer.class);
+
+        ResponseEntity<String> response = restTemplate.getForEntity(
+                "http://localhost:" + port + "/customers/export", String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_NDJSON);
+        List<String> emails = new ArrayList<>();
+        for (String line : response.getBody().split("\n")) {
+            emails.add(objectMapper.readValue(line, Customer.class).getEmail());
+        }
+        assertThat(emails).contains("hank.export@example.com");
+    }
+
+    @Test
+    void batchUpsertReportsPerItemResults() {
+        Customer existing = Customer.builder()
+                .firstName("Ivy")
+                .lastName("Batch")
+                .email("ivy.batch@example.com")
+                .phoneNumber("1010101010")
+                .build();
+        Customer created = restTemplate.postForEntity(
+                "http://localhost:" + port + "/customers", existing, Customer.class).getBody();
+
+        Customer update = Customer.builder()
+                .firstName("Ivy")
+                .lastName("Batch")
+                .email("ivy.batch@example.com")
+                .phoneNumber("2020202020")
+                .build();
+        Customer fresh = Customer.builder()
+                .firstName("Jack")
+                .lastName("Batch")
+                .email("jack.batch@example.com")
+                .phoneNumber("3030303030")
+                .build();
+        Customer invalid = Customer.builder()
+                .firstName("")
+                .lastName("Batch")
+                .email("not-an-email")
+                .phoneNumber("4040404040")
+                .build();
+
+        ResponseEntity<CustomerBatchResult[]> response = restTemplate.postForEntity(
+                "http://localhost:" + port + "/customers/batch", List.of(update, fresh, invalid), CustomerBatchResult[].class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        CustomerBatchResult[] results = response.getBody();
+        assertThat(results).extracting(CustomerBatchResult::getStatus).containsExactly(
+                CustomerBatchResult.Status.UPDATED, CustomerBatchResult.Status.CREATED, CustomerBatchResult.Status.INVALID);
+        assertThat(results[0].getId()).isEqualTo(created.getId());
+        assertThat(results[2].getErrors()).containsKeys("firstName", "email");
+
+        Customer reloaded = restTemplate.getForEntity(
+                "http://localhost:" + port + "/customers?email=ivy.batch@example.com", Customer.class).getBody();
+        assertThat(reloaded.getPhoneNumber()).isEqualTo("2020202020");
+    }
+
+    @Test
+    void batchUpsertAcceptsNdjson() {
+        String body = "{\"firstName\":\"Kim\",\"lastName\":\"Lines\",\"email\":\"kim.lines@example.com\",\"phoneNumber\":\"5050505050\"}\n"
+                + "{\"firstName\":\"Lee\",\"lastName\":\"Lines\",\"email\":\"lee.lines@example.com\",\"phoneNumber\":\"6060606060\"}\n";
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_NDJSON);
+
+        ResponseEntity<CustomerBatchResult[]> response = restTemplate.postForEntity(
+                "http://localhost:" + port + "/customers/batch", new HttpEntity<>(body, headers), CustomerBatchResult[].class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).extracting(CustomerBatchResult::getStatus)
+                .containsExactly(CustomerBatchResult.Status.CREATED, CustomerBatchResult.Status.CREATED);
+    }
+
+    @Test
+    void deleteCustomerRemovesRowOnce() {
+        Customer customer = Customer.builder()
+                .firstName("Mia")
+                .lastName("Delete")
+                .email("mia.delete@example.com")
+                .phoneNumber("7070707070")
+                .build();
+        Customer created = restTemplate.postForEntity(
+                "http://localhost:" + port + "/customers", customer, Customer.class).getBody();
+        String url = "http://localhost:" + port + "/customers/" + created.getId();
+
+        // Warm the lookup cache so the delete has to invalidate it
+        assertThat(restTemplate.getForEntity(url, Customer.class).getStatusCode()).isEqualTo(HttpStatus.OK);
+
+        ResponseEntity<Void> first = restTemplate.exchange(url, HttpMethod.DELETE, null, Void.class);
+        ResponseEntity<Void> second = restTemplate.exchange(url, HttpMethod.DELETE, null, Void.class);
+
+        assertThat(first.getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+        assertThat(second.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+        assertThat(restTemplate.getForEntity(url, Customer.class).getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    void debugEndpointsAreDisabledByDefault() {
+        ResponseEntity<String> response = restTemplate.getForEntity(
+                "http://localhost:" + port + "/customers/debug/ids", String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    void conditionalGetReturnsNotModified() {
+        Customer customer = Customer.builder()
+                .firstName("Nora")
+                .lastName("Etag")
+                .email("nora.etag@example.com")
+                .phoneNumber("8080808080")
+                .build();
+        Customer created = restTemplate.postForEntity(
+                "http://localhost:" + port + "/customers", customer, Customer.class).getBody();
+        String url = "http://localhost:" + port + "/customers/" + created.getId();
+
+        ResponseEntity<Customer> first = restTemplate.getForEntity(url, Customer.class);
+        String etag = first.getHeaders().getETag();
+        assertThat(etag).isEqualTo("\"0\"");
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(etag);
+        ResponseEntity<Customer> second = restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), Customer.class);
+        assertThat(second.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(second.getBody()).isNull();
+    }
+
+    @Test
+    void updateHonoursIfMatch() {
+        Customer customer = Customer.builder()
+                .firstName("Owen")
+                .lastName("Etag")
+                .email("owen.etag@example.com")
+                .phoneNumber("9090909090")
+                .build();
+        ResponseEntity<Customer> post = restTemplate.postForEntity(
+                "http://localhost:" + port + "/customers", customer, Customer.class);
+        String url = "http://localhost:" + port + "/customers/" + post.getBody().getId();
+        String etag = post.getHeaders().getETag();
+
+        customer.setFirstName("Owain");
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setIfMatch(etag);
+        ResponseEntity<Customer> put = restTemplate.exchange(url, HttpMethod.PUT, new HttpEntity<>(customer, headers), Customer.class);
+        assertThat(put.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(put.getBody().getFirstName()).isEqualTo("Owain");
+        assertThat(put.getHeaders().getETag()).isEqualTo("\"1\"");
+        // The body never carried createdAt; the response reports the stored one
+        assertThat(put.getBody().getCreatedAt()).isEqualTo(post.getBody().getCreatedAt());
+
+        // A second writer still holding the original ETag loses
+        customer.setFirstName("Stale");
+        ResponseEntity<String> stale = restTemplate.exchange(url, HttpMethod.PUT, new HttpEntity<>(customer, headers), String.class);
+        assertThat(stale.getStatusCode()).isEqualTo(HttpStatus.PRECONDITION_FAILED);
+
+        assertThat(restTemplate.getForEntity(url, Customer.class).getBody().getFirstName()).isEqualTo("Owain");
+    }
+
+    @Test
+    void updateUnknownCustomerReturnsNotFound() {
+        Customer customer = Customer.builder()
+                .firstName("Pat")
+                .lastName("Missing")
+                .email("pat.missing@example.com")
+                .phoneNumber("1313131313")
+                .build();
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        ResponseEntity<String> put = restTemplate.exchange(
+                "http://localhost:" + port + "/customers/" + UUID.randomUUID(),
+                HttpMethod.PUT, new HttpEntity<>(customer, headers), String.class);
+        assertThat(put.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    void patchUpdatesOnlySentFields() {
+        Customer customer = Customer.builder()
+                .firstName("Quinn")
+                .middleName("R")
+                .lastName("Patch")
+                .email("quinn.patch@example.com")
+                .phoneNumber("1414141414")
+                .build();
+        Customer created = restTemplate.postForEntity(
+                "http://localhost:" + port + "/customers", customer, Customer.class).getBody();
+        String url = "http://localhost:" + port + "/customers/" + created.getId();
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("application/merge-patch+json"));
+
+        ResponseEntity<Customer> patched = restTemplate.exchange(url, HttpMethod.PATCH,
+                new HttpEntity<>("{\"phoneNumber\":\"1515151515\",\"middleName\":null}", headers), Customer.class);
+        assertThat(patched.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(patched.getHeaders().getETag()).isEqualTo("\"1\"");
+        assertThat(patched.getBody().getPhoneNumber()).isEqualTo("1515151515");
+        assertThat(patched.getBody().getMiddleName()).isNull();
+        assertThat(patched.getBody().getFirstName()).isEqualTo("Quinn");
+
+        // Sending the current values again is a no-op and keeps the version
+        ResponseEntity<Customer> unchanged = restTemplate.exchange(url, HttpMethod.PATCH,
+                new HttpEntity<>("{\"phoneNumber\":\"1515151515\"}", headers), Customer.class);
+        assertThat(unchanged.getHeaders().getETag()).isEqualTo("\"1\"");
+    }
+
+    @Test
+    void patchValidatesOnlySentFields() {
+        Customer customer = Customer.builder()
+                .firstName("Rita")
+                .lastName("Patch")
+                .email("rita.patch@example.com")
+                .phoneNumber("1616161616")
+                .build();
+        Customer created = restTemplate.postForEntity(
+                "http://localhost:" + port + "/customers", customer, Customer.class).getBody();
+        String url = "http://localhost:" + port + "/customers/" + created.getId();
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("application/merge-patch+json"));
+
+        ResponseEntity<String> invalid = restTemplate.exchange(url, HttpMethod.PATCH,
+                new HttpEntity<>("{\"email\":\"nope\",\"lastName\":null}", headers), String.class);
+        assertThat(invalid.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(invalid.getBody()).contains("email", "lastName");
+
+        ResponseEntity<String> unknown = restTemplate.exchange(url, HttpMethod.PATCH,
+                new HttpEntity<>("{\"id\":\"" + UUID.randomUUID() + "\"}", headers), String.class);
+        assertThat(unknown.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void searchRanksPrefixMatches() {
+        restTemplate.postForEntity("http://localhost:" + port + "/customers", Customer.builder()
+                .firstName("Sam").lastName("Searchwell").email("sam.searchwell@example.com").phoneNumber("202-555-0101").build(), Customer.class);
+        restTemplate.postForEntity("http://localhost:" + port + "/customers", Customer.builder()
+                .firstName("Searcy").lastName("Adams").email("searcy.adams@example.com").phoneNumber("202-555-0199").build(), Customer.class);
+
+        ResponseEntity<Customer[]> byName = restTemplate.getForEntity(
+                "http://localhost:" + port + "/customers/search?q=SEARC", Customer[].class);
+        assertThat(byName.getStatusCode()).isEqualTo(HttpStatus.OK);
+        // Email prefix outranks last name prefix, which outranks first name prefix
+        assertThat(byName.getBody()).extracting(Customer::getEmail)
+                .containsExactly("searcy.adams@example.com", "sam.searchwell@example.com");
+
+        ResponseEntity<Customer[]> byPhone = restTemplate.getForEntity(
+                "http://localhost:" + port + "/customers/search?q=0199", Customer[].class);
+        assertThat(byPhone.getBody()).extracting(Customer::getEmail).containsExactly("searcy.adams@example.com");
+
+        ResponseEntity<Customer[]> byFullName = restTemplate.getForEntity(
+                "http://localhost:" + port + "/customers/search?q=sam sea", Customer[].class);
+        assertThat(byFullName.getBody()).extracting(Customer::getEmail).containsExactly("sam.searchwell@example.com");
+
+        ResponseEntity<String> tooShort = restTemplate.getForEntity(
+                "http://localhost:" + port + "/customers/search?q=s", String.class);
+        assertThat(tooShort.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void prometheusEndpointExposesLatencyHistogramsAndValidationFailures() {
+        Customer invalid = Customer.builder()
+                .firstName("Val")
+                .lastName("Idation")
+                .email("not-an-email")
+                .phoneNumber("1717171717")
+                .build();
+        ResponseEntity<String> rejected = restTemplate.postForEntity(
+                "http://localhost:" + port + "/customers", invalid, String.class);
+        assertThat(rejected.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        restTemplate.getForEntity("http://localhost:" + port + "/customers/" + UUID.randomUUID(), String.class);
+
+        ResponseEntity<String> scrape = restTemplate.getForEntity(
+                "http://localhost:" + port + "/actuator/prometheus", String.class);
+        assertThat(scrape.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(scrape.getBody())
+                .contains("http_server_requests_seconds_bucket{")
+                .contains("uri=\"/customers/{id}\"")
+                .contains("spring_data_repository_invocations_seconds_bucket{")
+                .contains("method=\"findById\"")
+                .contains("hikaricp_connections_active")
+                .contains("hikaricp_connections_acquire_seconds_bucket{")
+                .contains("customer_validation_failures_total{field=\"email\"")
+                .contains("logging_async_dropped_total{appender=\"ASYNC_CONSOLE\"")
+                .contains("customer_ratelimit_rejected_total{reason=\"rate\"")
+                .contains("customer_concurrency_limit");
+    }
+
+    @Test
+    void listCustomersNegotiatesSmileAndGzip() throws Exception {
+        for (int i = 0; i < 30; i++) {
+            restTemplate.postForEntity("http://localhost:" + port + "/customers", Customer.builder()
+                    .firstName("Zip")
+                    .lastName("Format" + i)
+                    .email("zip.format" + i + "@example.com")
+                    .phoneNumber("18181818" + (10 + i))
+                    .build(), Customer.class);
+        }
+        HttpClient client = HttpClient.newHttpClient();
+        URI list = URI.create("http://localhost:" + port + "/customers?limit=50");
+
+        HttpResponse<byte[]> gzipped = client.send(HttpRequest.newBuilder(list)
+                .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .build(), HttpResponse.BodyHandlers.ofByteArray());
+        assertThat(gzipped.headers().firstValue(HttpHeaders.CONTENT_ENCODING)).hasValue("gzip");
+        Customer[] fromJson = objectMapper.readValue(
+                new GZIPInputStream(new ByteArrayInputStream(gzipped.body())), Customer[].class);
+
+        HttpResponse<byte[]> smile = client.send(HttpRequest.newBuilder(list)
+                .header(HttpHeaders.ACCEPT, "application/x-jackson-smile")
+                .build(), HttpResponse.BodyHandlers.ofByteArray());
+        assertThat(smile.headers().firstValue(HttpHeaders.CONTENT_TYPE)).hasValue("application/x-jackson-smile");
+        Customer[] fromSmile = new ObjectMapper(new SmileFactory()).findAndRegisterModules()
+                .readValue(smile.body(), Customer[].class);
+        assertThat(fromSmile).extracting(Customer::getEmail)
+                .containsExactly(Arrays.stream(fromJson).map(Customer::getEmail).toArray(String[]::new));
+    }
+
+    @Test
+    void createWithIdempotencyKeyReplaysOriginalResponse() {
+        Customer customer = Customer.builder()
+                .firstName("Ida")
+                .lastName("Empotent")
+                .email("ida.empotent@example.com")
+                .phoneNumber("1919191919")
+                .build();
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Idempotency-Key", "create-ida-1");
+        String url = "http://localhost:" + port + "/customers";
+
+        ResponseEntity<Customer> first = restTemplate.postForEntity(url, new HttpEntity<>(customer, headers), Customer.class);
+        ResponseEntity<Customer> retry = restTemplate.postForEntity(url, new HttpEntity<>(customer, headers), Customer.class);
+
+        assertThat(first.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(first.getHeaders().containsKey("Idempotent-Replayed")).isFalse();
+        assertThat(retry.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(retry.getHeaders().getFirst("Idempotent-Replayed")).isEqualTo("true");
+        assertThat(retry.getHeaders().getETag()).isEqualTo(first.getHeaders().getETag());
+        assertThat(retry.getBody().getId()).isEqualTo(first.getBody().getId());
+
+        customer.setPhoneNumber("2929292929");
+        ResponseEntity<String> reused = restTemplate.postForEntity(url, new HttpEntity<>(customer, headers), String.class);
+        assertThat(reused.getStatusCode()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+
+    @Test
+    void createWithDuplicateEmailReturnsConflict() {
+        Customer customer = Customer.builder()
+                .firstName("Dup")
+                .lastName("Licate")
+                .email("dup.licate@example.com")
+                .phoneNumber("3939393939")
+                .build();
+        String url = "http://localhost:" + port + "/customers";
+        assertThat(restTemplate.postForEntity(url, customer, String.class).getStatusCode()).isEqualTo(HttpStatus.CREATED);
+
+        ResponseEntity<String> duplicate = restTemplate.postForEntity(url, customer, String.class);
+
+        assertThat(duplicate.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+        assertThat(duplicate.getBody()).isEqualTo("A customer with this email already exists");
+    }
+
+    @Test
+    void changeFeedListsWritesInOrderAndStreamsThem() throws Exception {
+        String base = "http://localhost:" + port + "/customers";
+        CustomerChange[] before = restTemplate.getForObject(base + "/changes?limit=1000", CustomerChange[].class);
+        long since = before.length == 0 ? 0 : before[before.length - 1].getSequence();
+
+        Customer created = restTemplate.postForEntity(base, Customer.builder()
+                .firstName("Feed")
+                .lastName("Reader")
+                .email("feed.reader@example.com")
+                .phoneNumber("4949494949")
+                .build(), Customer.class).getBody();
+        HttpHeaders mergePatch = new HttpHeaders();
+        mergePatch.setContentType(MediaType.valueOf("application/merge-patch+json"));
+        restTemplate.exchange(base + "/" + created.getId(), HttpMethod.PATCH,
+                new HttpEntity<>("{\"middleName\":\"Q\"}", mergePatch), String.class);
+        restTemplate.delete(base + "/" + created.getId());
+
+        List<CustomerChange> ours = new ArrayList<>();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(20);
+        while (ours.size() < 3 && System.nanoTime() < deadline) {
+            ours.clear();
+            for (CustomerChange change : restTemplate.getForObject(base + "/changes?since=" + since + "&limit=1000",
+                    CustomerChange[].class)) {
+                if (change.getCustomerId().equals(created.getId())) {
+                    ours.add(change);
+                }
+            }
+            Thread.sleep(100);
+        }
+        assertThat(ours).extracting(CustomerChange::getType).containsExactly(
+                CustomerChange.Type.CREATED, CustomerChange.Type.UPDATED, CustomerChange.Type.DELETED);
+        assertThat(ours.get(1).getCustomer().getMiddleName()).isEqualTo("Q");
+        assertThat(ours.get(1).getVersion()).isEqualTo(1L);
+
+        // Resuming after the create streams the two later changes
+        HttpResponse<Stream<String>> stream = HttpClient.newHttpClient().send(
+                HttpRequest.newBuilder(URI.create(base + "/changes/stream"))
+                        .header("Last-Event-ID", String.valueOf(ours.get(0).getSequence()))
+                        .build(),
+                HttpResponse.BodyHandlers.ofLines());
+        assertThat(stream.headers().firstValue(HttpHeaders.CONTENT_TYPE).orElse("")).startsWith("text/event-stream");
+        List<String> ids = new ArrayList<>();
+        try (Stream<String> lines = stream.body()) {
+            Iterator<String> it = lines.iterator();
+            while (ids.size() < 2 && it.hasNext()) {
+                String line = it.next();
+                if (line.startsWith("id:")) {
+                    ids.add(line.substring(3).trim());
+                }
+            }
+        }
+        assertThat(ids).containsExactly(String.valueOf(ours.get(1).getSequence()), String.valueOf(ours.get(2).getSequence()));
+    }
+
+    @Test
+    void modifiedSinceSyncReportsUpdatesAndDeletesInOrder() throws Exception {
+        String base = "http://localhost:" + port + "/customers";
+        String start = Instant.now().minusSeconds(1).toString();
+        Customer kept = restTemplate.postForEntity(base, Customer.builder()
+                .firstName("Sync").lastName("Kept").email("sync.kept@example.com").phoneNumber("5959595959")
+                .build(), Customer.class).getBody();
+        Customer removed = restTemplate.postForEntity(base, Customer.builder()
+                .firstName("Sync").lastName("Removed").email("sync.removed@example.com").phoneNumber("6969696969")
+                .build(), Customer.class).getBody();
+        assertThat(kept.getCreatedAt()).isNotNull();
+        HttpHeaders mergePatch = new HttpHeaders();
+        mergePatch.setContentType(MediaType.valueOf("application/merge-patch+json"));
+        restTemplate.exchange(base + "/" + kept.getId(), HttpMethod.PATCH,
+                new HttpEntity<>("{\"middleName\":\"S\"}", mergePatch), String.class);
+        restTemplate.delete(base + "/" + removed.getId());
+
+        // Page one item at a time, following the cursor, until both writes have settled
+        List<CustomerSyncItem> ours = new ArrayList<>();
+        String url = base + "?modifiedSince=" + start + "&limit=1";
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(20);
+        while (ours.size() < 2 && System.nanoTime() < deadline) {
+            ResponseEntity<CustomerSyncItem[]> page = restTemplate.getForEntity(URI.create(url), CustomerSyncItem[].class);
+            assertThat(page.getStatusCode()).isEqualTo(HttpStatus.OK);
+            for (CustomerSyncItem item : page.getBody()) {
+                if (item.getId().equals(kept.getId()) || item.getId().equals(removed.getId())) {
+                    ours.add(item);
+                }
+            }
+            url = base + "?modifiedSince=&limit=1&cursor=" + page.getHeaders().getFirst("X-Next-Cursor");
+            if (page.getHeaders().getFirst(HttpHeaders.LINK) == null) {
+                Thread.sleep(200);
+            }
+        }
+
+        assertThat(ours).hasSize(2);
+        assertThat(ours.get(0).getId()).isEqualTo(kept.getId());
+        assertThat(ours.get(0).isDeleted()).isFalse();
+        assertThat(ours.get(0).getCustomer().getMiddleName()).isEqualTo("S");
+        assertThat(ours.get(0).getModifiedAt()).isAfter(kept.getCreatedAt());
+        assertThat(ours.get(1).getId()).isEqualTo(removed.getId());
+        assertThat(ours.get(1).isDeleted()).isTrue();
+        assertThat(ours.get(1).getCustomer()).isNull();
+
+        ResponseEntity<String> expired = restTemplate.getForEntity(base + "?modifiedSince=2000-01-01T00:00:00Z", String.class);
+        assertThat(expired.getStatusCode()).isEqualTo(HttpStatus.GONE);
+    }
+
+    @Test
+    void lookupResolvesIdsAndEmailsInRequestOrder() {
+        List<Customer> created = new ArrayList<>();
+        for (String name : List.of("Lena", "Milo")) {
+            Customer customer = Customer.builder()
+                    .firstName(name)
+                    .lastName("Lookup")
+                    .email(name.toLowerCase() + ".lookup@example.com")
+                    .phoneNumber("3131313131")
+                    .build();
+            created.add(restTemplate.postForEntity("http://localhost:" + port + "/customers", customer, Customer.class)
+                    .getBody());
+        }
+        Customer lena = created.get(0);
+        Customer milo = created.get(1);
+
+        CustomerLookupRequest request = CustomerLookupRequest.builder()
+                .ids(List.of(milo.getId(), UUID.randomUUID(), milo.getId()))
+                .emails(List.of("nobody.lookup@example.com", lena.getEmail(), milo.getEmail()))
+                .build();
+        ResponseEntity<Customer[]> response = restTemplate.postForEntity(
+                "http://localhost:" + port + "/customers/lookup", request, Customer[].class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).extracting(Customer::getId).containsExactly(milo.getId(), lena.getId());
+        // A lookup is a read: it must not pin the client to the primary
+        assertThat(response.getHeaders().get(HttpHeaders.SET_COOKIE)).isNull();
+
+        List<UUID> tooMany = Stream.generate(UUID::randomUUID).limit(1001).toList();
+        ResponseEntity<String> rejected = restTemplate.postForEntity("http://localhost:" + port + "/customers/lookup",
+                CustomerLookupRequest.builder().ids(tooMany).build(), String.class);
+        assertThat(rejected.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void snapshotExportServesCurrentCustomers(@TempDir Path directory) throws Exception {
+        Customer customer = Customer.builder()
+                .firstName("Nora")
+                .lastName("Snapshot")
+                .email("nora.snapshot@example.com")
+                .phoneNumber("5151515151")
+                .build();
+        Customer created = restTemplate.postForEntity("http://localhost:" + port + "/customers", customer, Customer.class)
+                .getBody();
+
+        Path file = directory.resolve("customers.bin");
+        int exported = customerExportService.exportSnapshot(file);
+        CustomerSnapshot snapshot = CustomerSnapshot.open(file);
+
+        assertThat(snapshot.size()).isEqualTo(exported).isPositive();
+        assertThat(snapshot.findById(created.getId())).get()
+                .extracting(Customer::getEmail).isEqualTo("nora.snapshot@example.com");
+        assertThat(snapshot.findByEmail("nora.snapshot@example.com")).get()
+                .extracting(Customer::getId).isEqualTo(created.getId());
+        assertThat(directory.toFile().list()).containsExactly("customers.bin");
+    }
+}
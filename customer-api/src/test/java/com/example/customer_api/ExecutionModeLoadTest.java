@@ -0,0 +1,147 @@
+package com.example.customer_api;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares throughput of the platform and virtual execution modes with thousands of concurrent
+ * connections against a database that answers slowly. Not part of the regular build:
+ *
+ * <pre>mvn test -Dtest=ExecutionModeLoadTest -Dloadtest=true [-Dloadtest.connections=5000]
+ *     [-Dloadtest.db-latency-ms=50] [-Dloadtest.seconds=10]</pre>
+ */
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+class ExecutionModeLoadTest {
+    private static final int CONNECTIONS = Integer.getInteger("loadtest.connections", 5000);
+    private static final int SECONDS = Integer.getInteger("loadtest.seconds", 10);
+    private static final long DB_LATENCY_MS = Long.getLong("loadtest.db-latency-ms", 50);
+
+    @Test
+    void virtualThreadsOutperformWorkerPoolWhenDatabaseIsSlow() throws Exception {
+        double platform = measure("platform");
+        double virtual = measure("virtual");
+        System.out.printf("connections=%d dbLatency=%dms platform=%.0f req/s virtual=%.0f req/s (x%.1f)%n",
+                CONNECTIONS, DB_LATENCY_MS, platform, virtual, virtual / platform);
+        assertThat(virtual).isGreaterThan(platform);
+    }
+
+    private static double measure(String mode) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(
+                CustomerApiApplication.class, SlowDatabaseConfiguration.class)
+                .properties(
+                        "customer.execution.mode=" + mode,
+                        "server.port=0",
+                        "server.tomcat.max-connections=" + (CONNECTIONS + 100),
+                        "server.tomcat.accept-count=" + CONNECTIONS,
+                        "spring.datasource.url=jdbc:h2:mem:load-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                        "spring.datasource.hikari.maximum-pool-size=1000",
+                        "spring.datasource.hikari.minimum-idle=10",
+                        "spring.datasource.hikari.connection-timeout=60000",
+                        "customer.logging.request-sample-rate=0",
+                        "customer.ratelimit.enabled=false",
+                        "logging.level.root=WARN")
+                .run()) {
+            int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+            URI uri = URI.create("http://localhost:" + port + "/customers?limit=10");
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(30))
+                    .build();
+
+            run(client, uri, Duration.ofSeconds(3), new LongAdder()); // warm-up
+            LongAdder completed = new LongAdder();
+            run(client, uri, Duration.ofSeconds(SECONDS), completed);
+            return completed.sum() / (double) SECONDS;
+        }
+    }
+
+    // CONNECTIONS virtual client threads, each issuing requests back to back until the deadline
+    private static void run(HttpClient client, URI uri, Duration duration, LongAdder completed) throws InterruptedException {
+        long deadline = System.nanoTime() + duration.toNanos();
+        HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(60)).GET().build();
+        ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor();
+        for (int i = 0; i < CONNECTIONS; i++) {
+            clients.submit(() -> {
+                while (System.nanoTime() < deadline) {
+                    HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                    if (response.statusCode() == 200 && System.nanoTime() < deadline) {
+                        completed.increment();
+                    }
+                }
+                return null;
+            });
+        }
+        clients.shutdown();
+        clients.awaitTermination(duration.toSeconds() + 120, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Adds a fixed round-trip delay to every statement the application prepares, standing in for
+     * a remote database under load.
+     */
+    @Configuration(proxyBeanMethods = false)
+    static class SlowDatabaseConfiguration {
+        @Bean
+        static BeanPostProcessor slowDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource ? delegate(DataSource.class, bean, (target, method, args) -> {
+                        Object result = invoke(target, method, args);
+                        return result instanceof Connection ? slowConnection((Connection) result) : result;
+                    }) : bean;
+                }
+            };
+        }
+
+        private static Connection slowConnection(Connection connection) {
+            return delegate(Connection.class, connection, (target, method, args) -> {
+                if (method.getName().startsWith("prepare")) {
+                    Thread.sleep(DB_LATENCY_MS);
+                }
+                return invoke(target, method, args);
+            });
+        }
+
+        private static <T> T delegate(Class<T> type, Object target, TargetHandler handler) {
+            InvocationHandler invocation = (proxy, method, args) -> handler.handle(target, method, args);
+            return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, invocation));
+        }
+
+        private static Object invoke(Object target, java.lang.reflect.Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        }
+
+        private interface TargetHandler {
+            Object handle(Object target, java.lang.reflect.Method method, Object[] args) throws Throwable;
+        }
+    }
+}
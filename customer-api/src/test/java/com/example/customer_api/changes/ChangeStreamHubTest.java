@@ -0,0 +1,136 @@
+package com.example.customer_api.changes;
+
+import com.example.customer_api.dto.CustomerChange;
+import com.example.customer_api.entity.Customer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChangeStreamHubTest {
+    private final ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+    private DriverManagerDataSource dataSource;
+    private DataSourceTransactionManager transactionManager;
+    private CustomerChangeLog changeLog;
+    private ChangeStreamHub hub;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:stream-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        Flyway.configure().dataSource(dataSource).locations("classpath:db/migration/h2").load().migrate();
+        transactionManager = new DataSourceTransactionManager(dataSource);
+        changeLog = new CustomerChangeLog(dataSource, new ObjectMapper(), Clock.systemUTC());
+        scheduler.initialize();
+        // Batches and queues of 5 events, two sender threads, polling every 20ms
+        hub = new ChangeStreamHub(changeLog, scheduler, 5, 5, 2, Duration.ofMillis(20), Duration.ofMinutes(1),
+                Duration.ofMinutes(30));
+    }
+
+    @AfterEach
+    void tearDown() {
+        hub.close();
+        scheduler.shutdown();
+        new JdbcTemplate(dataSource).execute("drop all objects");
+    }
+
+    private void record(int count) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            for (int i = 0; i < count; i++) {
+                changeLog.record(CustomerChange.Type.CREATED, Customer.builder()
+                        .id(UUID.randomUUID())
+                        .firstName("Stream")
+                        .lastName("Hub")
+                        .email(UUID.randomUUID() + "@example.com")
+                        .phoneNumber("5550001111")
+                        .version(0L)
+                        .build());
+            }
+        });
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("timed out").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    @DisplayName("Should keep streaming to other subscribers while one is stalled, and close the stalled one")
+    void testStalledSubscriberFallsBehindAlone() throws Exception {
+        RecordingEmitter stalled = new RecordingEmitter(new CountDownLatch(1));
+        RecordingEmitter healthy = new RecordingEmitter(null);
+        hub.subscribe(stalled, 0);
+        hub.subscribe(healthy, 0);
+
+        record(1);
+        await(() -> healthy.events.size() == 1 && stalled.sending);
+
+        // More than the stalled subscriber's queue holds, a batch at a time
+        for (int i = 0; i < 4; i++) {
+            record(5);
+        }
+        await(() -> healthy.events.size() == 21);
+        assertThat(healthy.events.get(20)).contains("id:21");
+        await(() -> hub.getSubscriberCount() == 1);
+        assertThat(stalled.completed).isFalse();
+
+        // The stalled client's write finally returns; its stream is then completed, not resumed
+        stalled.unblock.countDown();
+        await(() -> stalled.completed);
+        assertThat(stalled.events).hasSize(1);
+        assertThat(healthy.completed).isFalse();
+    }
+
+    // Records events; with a latch, the first send blocks until it is released, like a client that stopped reading
+    private static final class RecordingEmitter extends SseEmitter {
+        private final List<String> events = new CopyOnWriteArrayList<>();
+        private final CountDownLatch unblock;
+        private volatile boolean sending;
+        private volatile boolean completed;
+
+        private RecordingEmitter(CountDownLatch unblock) {
+            this.unblock = unblock;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            sending = true;
+            if (unblock != null) {
+                try {
+                    unblock.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException(e);
+                }
+            }
+            events.add(builder.build().iterator().next().getData().toString());
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+        }
+    }
+}
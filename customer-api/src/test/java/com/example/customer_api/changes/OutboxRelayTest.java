@@ -0,0 +1,189 @@
+package com.example.customer_api.changes;
+
+import com.example.customer_api.dto.CustomerChange;
+import com.example.customer_api.entity.Customer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OutboxRelayTest {
+    private final MutableClock clock = new MutableClock();
+    private final List<CustomerChange> published = new ArrayList<>();
+    private DriverManagerDataSource dataSource;
+    private DataSourceTransactionManager transactionManager;
+    private CustomerChangeLog changeLog;
+    private OutboxRelay relay;
+    private boolean publisherDown;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:outbox-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        Flyway.configure().dataSource(dataSource).locations("classpath:db/migration/h2").load().migrate();
+        transactionManager = new DataSourceTransactionManager(dataSource);
+        changeLog = new CustomerChangeLog(dataSource, new ObjectMapper(), clock);
+        ChangePublisher publisher = changes -> {
+            if (publisherDown) {
+                throw new IllegalStateException("broker unavailable");
+            }
+            published.addAll(changes);
+        };
+        relay = new OutboxRelay("test", changeLog, publisher, dataSource, transactionManager, 2,
+                Duration.ofDays(1), new SimpleMeterRegistry(), clock);
+    }
+
+    @AfterEach
+    void tearDown() {
+        relay.close();
+        new JdbcTemplate(dataSource).execute("drop all objects");
+    }
+
+    private Customer record(CustomerChange.Type type) {
+        Customer customer = Customer.builder()
+                .id(UUID.randomUUID())
+                .firstName("Out")
+                .lastName("Box")
+                .email(UUID.randomUUID() + "@example.com")
+                .phoneNumber("5550001111")
+                .version(0L)
+                .build();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> changeLog.record(type, customer));
+        return customer;
+    }
+
+    private static List<Long> sequences(List<CustomerChange> changes) {
+        return changes.stream().map(CustomerChange::getSequence).collect(Collectors.toList());
+    }
+
+    @Test
+    @DisplayName("Should publish changes in sequence order, in batches, and resume after a failed publish")
+    void testRelayInBatches() {
+        Customer created = record(CustomerChange.Type.CREATED);
+        record(CustomerChange.Type.UPDATED);
+        record(CustomerChange.Type.DELETED);
+
+        publisherDown = true;
+        assertThatThrownBy(relay::relayBatch).hasMessageContaining("after sequence 0");
+        assertThat(relay.getPosition()).isZero();
+
+        publisherDown = false;
+        assertThat(relay.drain()).isEqualTo(3);
+        assertThat(sequences(published)).containsExactly(1L, 2L, 3L);
+        assertThat(published.get(0).getCustomerId()).isEqualTo(created.getId());
+        assertThat(published.get(0).getCustomer().getEmail()).isEqualTo(created.getEmail());
+        assertThat(published.get(2).getCustomer()).isNull();
+        assertThat(relay.getPosition()).isEqualTo(3);
+
+        record(CustomerChange.Type.CREATED);
+        assertThat(relay.drain()).isEqualTo(1);
+        assertThat(sequences(published)).containsExactly(1L, 2L, 3L, 4L);
+        assertThat(new JdbcTemplate(dataSource).queryForObject(
+                "select last_sequence from customer_change_relay where relay_name = 'test'", Long.class)).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("Should deliver a change whose transaction stayed open while later ones committed")
+    void testSlowTransactionIsNotSkipped() throws Exception {
+        record(CustomerChange.Type.CREATED);
+        CountDownLatch recorded = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        Customer slow = Customer.builder()
+                .id(UUID.randomUUID())
+                .firstName("Slow")
+                .lastName("Batch")
+                .email("slow@example.com")
+                .phoneNumber("5550001111")
+                .version(0L)
+                .build();
+        CompletableFuture<Void> held = CompletableFuture.runAsync(() ->
+                new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                    changeLog.record(CustomerChange.Type.CREATED, slow);
+                    recorded.countDown();
+                    try {
+                        commit.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }));
+        assertThat(recorded.await(10, TimeUnit.SECONDS)).isTrue();
+
+        // Open for longer than any grace period, while a later write commits and is relayed
+        clock.advance(Duration.ofMinutes(1));
+        record(CustomerChange.Type.UPDATED);
+        assertThat(relay.drain()).isEqualTo(2);
+        assertThat(sequences(published)).containsExactly(1L, 2L);
+
+        commit.countDown();
+        held.get(10, TimeUnit.SECONDS);
+        assertThat(relay.drain()).isEqualTo(1);
+        assertThat(sequences(published)).containsExactly(1L, 2L, 3L);
+        assertThat(published.get(2).getCustomerId()).isEqualTo(slow.getId());
+
+        // A rolled back write takes no sequence
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            changeLog.record(CustomerChange.Type.DELETED, slow);
+            status.setRollbackOnly();
+        });
+        record(CustomerChange.Type.CREATED);
+        assertThat(sequences(changeLog.read(3, 10))).containsExactly(4L);
+    }
+
+    @Test
+    @DisplayName("Should only purge changes past the retention that were already relayed")
+    void testPurge() {
+        record(CustomerChange.Type.CREATED);
+        record(CustomerChange.Type.CREATED);
+        relay.drain();
+        record(CustomerChange.Type.CREATED);
+        clock.advance(Duration.ofDays(2));
+
+        assertThat(changeLog.purge(clock.instant().minus(Duration.ofDays(1)), relay.getPosition())).isEqualTo(2);
+        assertThat(sequences(changeLog.read(0, 10))).containsExactly(3L);
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
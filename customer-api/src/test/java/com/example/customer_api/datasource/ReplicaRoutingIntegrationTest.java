@@ -0,0 +1,149 @@
+package com.example.customer_api.datasource;
+
+import com.example.customer_api.entity.Customer;
+import org.flywaydb.core.Flyway;
+import org.h2.tools.Server;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Primary and replica are two separate embedded H2 databases with nothing replicating between
+ * them, so where a row shows up tells which database served the read. The replica is a file
+ * database served over H2's TCP server so the test can take it down and bring it back.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class ReplicaRoutingIntegrationTest {
+    private static final String REPLICA_ONLY_EMAIL = "replica.only@example.com";
+
+    private static Server replicaServer;
+    private static Path replicaDirectory;
+    private static String replicaUrl;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @DynamicPropertySource
+    static void databases(DynamicPropertyRegistry registry) throws SQLException, IOException {
+        // File-backed, so the replica's data survives stopping and restarting the server
+        replicaDirectory = Files.createTempDirectory("replica");
+        replicaServer = Server.createTcpServer("-tcpPort", "0", "-ifNotExists", "-baseDir", replicaDirectory.toString()).start();
+        replicaUrl = "jdbc:h2:tcp://localhost:" + replicaServer.getPort() + "/./replica";
+        Flyway.configure().dataSource(replicaUrl, "sa", "").locations("classpath:db/migration/h2").load().migrate();
+        UUID id = UUID.randomUUID();
+        new JdbcTemplate(new DriverManagerDataSource(replicaUrl, "sa", "")).update(
+                "insert into customers (id, first_name, last_name, email, phone_number, version) values (?, ?, ?, ?, ?, 0)",
+                ByteBuffer.allocate(16).putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits()).array(),
+                "Rep", "Lica", REPLICA_ONLY_EMAIL, "1818181818");
+
+        registry.add("spring.datasource.url", () -> "jdbc:h2:mem:primary-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        registry.add("spring.datasource.username", () -> "sa");
+        registry.add("customer.datasource.replicas.enabled", () -> "true");
+        registry.add("customer.datasource.replicas.urls", () -> replicaUrl);
+        registry.add("customer.datasource.replicas.connection-timeout", () -> "500ms");
+        registry.add("customer.datasource.replicas.health-check-interval", () -> "200ms");
+        registry.add("customer.datasource.replicas.read-your-writes", () -> "30s");
+    }
+
+    @AfterAll
+    static void stopReplica() {
+        replicaServer.stop();
+    }
+
+    @Test
+    void readsGoToReplicaUnlessClientRecentlyWrote() {
+        Customer customer = Customer.builder()
+                .firstName("Pri")
+                .lastName("Mary")
+                .email("primary.write@example.com")
+                .phoneNumber("1919191919")
+                .build();
+        ResponseEntity<Customer> created = restTemplate.postForEntity(url("/customers"), customer, Customer.class);
+        assertThat(created.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        String cookie = created.getHeaders().getFirst(HttpHeaders.SET_COOKIE);
+        assertThat(cookie).startsWith(ReadYourWritesFilter.COOKIE_NAME + "=");
+
+        // A client that has not written reads the replica
+        assertThat(listEmails(null)).contains(REPLICA_ONLY_EMAIL).doesNotContain("primary.write@example.com");
+
+        // The writer reads its own write from the primary
+        assertThat(listEmails(cookie.split(";")[0])).contains("primary.write@example.com").doesNotContain(REPLICA_ONLY_EMAIL);
+
+        // Cached point lookups always load from the primary
+        assertThat(restTemplate.getForEntity(url("/customers/" + created.getBody().getId()), Customer.class)
+                .getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    void failsOverToPrimaryWhileReplicaIsDown() throws Exception {
+        int replicaPort = replicaServer.getPort();
+        replicaServer.stop();
+        try {
+            // A pooled connection that was just used skips validation, so a read racing the outage
+            // can still fail; once the replica is marked down every read is served by the primary
+            long deadline = System.currentTimeMillis() + 5_000;
+            ResponseEntity<String> response = restTemplate.getForEntity(url("/customers"), String.class);
+            while (response.getStatusCode() != HttpStatus.OK && System.currentTimeMillis() < deadline) {
+                Thread.sleep(100);
+                response = restTemplate.getForEntity(url("/customers"), String.class);
+            }
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(response.getBody()).doesNotContain(REPLICA_ONLY_EMAIL);
+            for (int i = 0; i < 5; i++) {
+                assertThat(restTemplate.getForEntity(url("/customers"), String.class).getStatusCode()).isEqualTo(HttpStatus.OK);
+            }
+        } finally {
+            replicaServer = Server.createTcpServer("-tcpPort", String.valueOf(replicaPort), "-ifNotExists",
+                    "-baseDir", replicaDirectory.toString()).start();
+        }
+
+        // The health check puts the replica back into rotation
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!listEmails(null).contains(REPLICA_ONLY_EMAIL)) {
+            assertThat(System.currentTimeMillis()).isLessThan(deadline);
+            Thread.sleep(100);
+        }
+    }
+
+    private List<String> listEmails(String cookie) {
+        HttpHeaders headers = new HttpHeaders();
+        if (cookie != null) {
+            headers.add(HttpHeaders.COOKIE, cookie);
+        }
+        ResponseEntity<Customer[]> response = restTemplate.exchange(url("/customers"), HttpMethod.GET,
+                new HttpEntity<>(headers), Customer[].class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        return Arrays.stream(response.getBody()).map(Customer::getEmail).collect(Collectors.toList());
+    }
+
+    private String url(String path) {
+        return "http://localhost:" + port + path;
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.customer_api.idempotency;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JdbcIdempotencyStoreTest {
+    private final MutableClock clock = new MutableClock();
+    private DriverManagerDataSource dataSource;
+    private JdbcIdempotencyStore store;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:idempotency-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        Flyway.configure().dataSource(dataSource).locations("classpath:db/migration/h2").load().migrate();
+        store = new JdbcIdempotencyStore(dataSource, Duration.ofHours(1), Duration.ofSeconds(30), clock);
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+        new JdbcTemplate(dataSource).execute("drop all objects");
+    }
+
+    @Test
+    @DisplayName("Should hand a key to one request and replay its stored response")
+    void testClaimAndReplay() {
+        assertThat(store.claim("key", "fp").getOutcome()).isEqualTo(IdempotencyStore.Outcome.ACQUIRED);
+        assertThat(store.claim("key", "fp").getOutcome()).isEqualTo(IdempotencyStore.Outcome.IN_PROGRESS);
+
+        store.complete("key", new StoredResponse(201, "application/json", "\"0\"", "{}".getBytes(StandardCharsets.UTF_8)));
+        IdempotencyStore.Claim replay = store.claim("key", "fp");
+
+        assertThat(replay.getOutcome()).isEqualTo(IdempotencyStore.Outcome.COMPLETED);
+        assertThat(replay.getResponse().getStatus()).isEqualTo(201);
+        assertThat(replay.getResponse().getContentType()).isEqualTo("application/json");
+        assertThat(replay.getResponse().getETag()).isEqualTo("\"0\"");
+        assertThat(new String(replay.getResponse().getBody(), StandardCharsets.UTF_8)).isEqualTo("{}");
+        assertThat(store.claim("key", "other").getOutcome()).isEqualTo(IdempotencyStore.Outcome.MISMATCH);
+    }
+
+    @Test
+    @DisplayName("Should free a key when released or when its claim lapses")
+    void testReleaseAndLapse() {
+        store.claim("released", "fp");
+        store.release("released");
+        assertThat(store.claim("released", "fp").getOutcome()).isEqualTo(IdempotencyStore.Outcome.ACQUIRED);
+
+        store.claim("abandoned", "fp");
+        clock.advance(Duration.ofSeconds(31));
+        assertThat(store.claim("abandoned", "fp").getOutcome()).isEqualTo(IdempotencyStore.Outcome.ACQUIRED);
+    }
+
+    @Test
+    @DisplayName("Should forget responses after the TTL")
+    void testExpiry() {
+        store.claim("key", "fp");
+        store.complete("key", new StoredResponse(201, null, null, null));
+        store.release("key");
+        assertThat(store.claim("key", "fp").getOutcome()).isEqualTo(IdempotencyStore.Outcome.COMPLETED);
+
+        clock.advance(Duration.ofHours(2));
+        store.purgeExpired();
+
+        assertThat(new JdbcTemplate(dataSource).queryForObject("select count(*) from idempotency_keys", Integer.class)).isZero();
+        assertThat(store.claim("key", "fp").getOutcome()).isEqualTo(IdempotencyStore.Outcome.ACQUIRED);
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.customer_api.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimitFilterTest {
+    private final AtomicLong clock = new AtomicLong();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private RateLimitProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new RateLimitProperties();
+        properties.setCapacity(10);
+        properties.setRefillPerSecond(5);
+        properties.setCost(Map.of("read", 1.0, "list", 5.0, "export", 50.0));
+        properties.getConcurrency().setInitialLimit(2);
+        properties.getConcurrency().setMinLimit(1);
+        properties.getConcurrency().setMaxLimit(4);
+    }
+
+    private RateLimitFilter filter() {
+        return new RateLimitFilter(properties, registry, clock::get);
+    }
+
+    private static MockHttpServletRequest get(String uri, String remoteAddr) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        request.setRemoteAddr(remoteAddr);
+        return request;
+    }
+
+    private static MockHttpServletResponse send(RateLimitFilter filter, MockHttpServletRequest request)
+            throws ServletException, IOException {
+        return send(filter, request, new MockFilterChain());
+    }
+
+    private static MockHttpServletResponse send(RateLimitFilter filter, MockHttpServletRequest request, FilterChain chain)
+            throws ServletException, IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+
+    private double rejected(String reason) {
+        return registry.counter("customer.ratelimit.rejected", "reason", reason).count();
+    }
+
+    @Test
+    @DisplayName("Should charge listings more than point reads and answer 429 with Retry-After")
+    void testWeightedCosts() throws Exception {
+        RateLimitFilter filter = filter();
+
+        assertThat(send(filter, get("/customers", "10.0.0.1")).getStatus()).isEqualTo(200);
+        assertThat(send(filter, get("/customers", "10.0.0.1")).getStatus()).isEqualTo(200);
+        MockHttpServletResponse rejected = send(filter, get("/customers/" + 1, "10.0.0.1"));
+
+        assertThat(rejected.getStatus()).isEqualTo(429);
+        assertThat(rejected.getHeader("Retry-After")).isEqualTo("1");
+        assertThat(rejected("rate")).isEqualTo(1);
+
+        // 0.2s refills one token, enough for a point read but not for a listing
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(200));
+        assertThat(send(filter, get("/customers", "10.0.0.1")).getStatus()).isEqualTo(429);
+        assertThat(send(filter, get("/customers/" + 1, "10.0.0.1")).getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    @DisplayName("Should give each address its own bucket, whatever X-API-Key it sends")
+    void testPerClientBuckets() throws Exception {
+        RateLimitFilter filter = filter();
+        // An export costs more than the bucket holds, so it empties it
+        assertThat(send(filter, get("/customers/export", "10.0.0.1")).getStatus()).isEqualTo(200);
+        assertThat(send(filter, get("/customers/1", "10.0.0.1")).getStatus()).isEqualTo(429);
+        // A made-up key must not buy a fresh bucket
+        MockHttpServletRequest withKey = get("/customers/1", "10.0.0.1");
+        withKey.addHeader("X-API-Key", UUID.randomUUID().toString());
+        assertThat(send(filter, withKey).getStatus()).isEqualTo(429);
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        MockHttpServletResponse rejected = send(filter, get("/customers/export", "10.0.0.1"));
+        assertThat(rejected.getStatus()).isEqualTo(429);
+        assertThat(rejected.getHeader("Retry-After")).isEqualTo("1");
+
+        assertThat(send(filter, get("/customers/1", "10.0.0.2")).getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    @DisplayName("Should shed with 503 beyond the concurrency limit")
+    void testConcurrencyShedding() throws Exception {
+        properties.setCapacity(1000);
+        RateLimitFilter filter = filter();
+        MockHttpServletResponse[] nested = new MockHttpServletResponse[2];
+        // Each request issues the next while still in flight
+        FilterChain third = (req, res) -> nested[1] = send(filter, get("/customers/3", "10.0.0.3"));
+        FilterChain second = (req, res) -> nested[0] = send(filter, get("/customers/2", "10.0.0.2"), third);
+
+        MockHttpServletResponse first = send(filter, get("/customers/1", "10.0.0.1"), second);
+
+        assertThat(first.getStatus()).isEqualTo(200);
+        assertThat(nested[0].getStatus()).isEqualTo(200);
+        assertThat(nested[1].getStatus()).isEqualTo(503);
+        assertThat(nested[1].getHeader("Retry-After")).isEqualTo("1");
+        assertThat(rejected("concurrency")).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should shrink the concurrency limit when latency climbs and grow it when fast")
+    void testAdaptiveLimit() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(20, 5, 40,
+                Duration.ofMillis(100).toNanos(), 0.5);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(limit.tryAcquire()).isTrue();
+            limit.release(Duration.ofMillis(300).toNanos(), false);
+        }
+        assertThat(limit.getLimit()).isEqualTo(5);
+
+        for (int i = 0; i < 200; i++) {
+            for (int j = 0; j < 5; j++) {
+                limit.tryAcquire();
+            }
+            for (int j = 0; j < 5; j++) {
+                limit.release(Duration.ofMillis(10).toNanos(), false);
+            }
+        }
+        assertThat(limit.getLimit()).isGreaterThan(5);
+        assertThat(limit.getInFlight()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should not shrink the concurrency limit for long exports and batches, only for slow reads")
+    void testLongCallsDoNotShrinkLimit() throws Exception {
+        properties.setCapacity(1000);
+        RateLimitFilter filter = filter();
+        long slow = TimeUnit.SECONDS.toNanos(30);
+
+        MockHttpServletRequest export = get("/customers/export", "10.0.0.1");
+        export.setAsyncSupported(true);
+        send(filter, export, (req, res) -> req.startAsync());
+        clock.addAndGet(slow);
+        export.getAsyncContext().complete();
+
+        MockHttpServletRequest batch = new MockHttpServletRequest("POST", "/customers/batch");
+        batch.setRemoteAddr("10.0.0.1");
+        assertThat(send(filter, batch, (req, res) -> clock.addAndGet(slow)).getStatus()).isEqualTo(200);
+
+        assertThat(registry.get("customer.concurrency.limit").gauge().value()).isEqualTo(2);
+        assertThat(registry.get("customer.concurrency.in-flight").gauge().value()).isZero();
+
+        send(filter, get("/customers/1", "10.0.0.1"), (req, res) -> clock.addAndGet(slow));
+        assertThat(registry.get("customer.concurrency.limit").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should release the slot of a failed request")
+    void testFailedRequestReleasesSlot() throws Exception {
+        RateLimitFilter filter = filter();
+        FilterChain failing = (req, res) -> ((HttpServletResponse) res).setStatus(500);
+        for (int i = 0; i < 5; i++) {
+            assertThat(send(filter, get("/customers/" + i, "10.0.0.1"), failing).getStatus()).isEqualTo(500);
+        }
+        assertThat(send(filter, get("/customers/9", "10.0.0.1")).getStatus()).isEqualTo(200);
+    }
+}
@@ -7,10 +7,13 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -279,4 +282,151 @@ class CustomerRepositoryTest {
             customerRepository.flush();
         }).isInstanceOf(Exception.class);
     }
-} 
\ No newline at end of file
+
+    @Test
+    @DisplayName("Should page through customers by id using keyset seek")
+    void testKeysetPaginationById() {
+        customerRepository.saveAll(List.of(
+                Customer.builder().firstName("Alice").lastName("Smith").email("alice.smith@example.com").phoneNumber("1111111111").build(),
+                Customer.builder().firstName("Bob").lastName("Johnson").email("bob.johnson@example.com").phoneNumber("2222222222").build(),
+                Customer.builder().firstName("Charlie").lastName("Brown").email("charlie.brown@example.com").phoneNumber("3333333333").build()));
+
+        List<Customer> firstPage = customerRepository.findAllByOrderByIdAsc(PageRequest.of(0, 2));
+        assertThat(firstPage).hasSize(2);
+
+        List<Customer> secondPage = customerRepository.findByIdGreaterThanOrderByIdAsc(
+                firstPage.get(1).getId(), PageRequest.of(0, 2));
+        assertThat(secondPage).hasSize(1);
+        assertThat(secondPage).extracting(Customer::getId).doesNotContainAnyElementsOf(
+                firstPage.stream().map(Customer::getId).collect(Collectors.toList()));
+    }
+
+    @Test
+    @DisplayName("Should page through customers by email using keyset seek")
+    void testKeysetPaginationByEmail() {
+        customerRepository.saveAll(List.of(
+                Customer.builder().firstName("Charlie").lastName("Brown").email("charlie.brown@example.com").phoneNumber("3333333333").build(),
+                Customer.builder().firstName("Alice").lastName("Smith").email("alice.smith@example.com").phoneNumber("1111111111").build(),
+                Customer.builder().firstName("Bob").lastName("Johnson").email("bob.johnson@example.com").phoneNumber("2222222222").build()));
+
+        List<Customer> firstPage = customerRepository.findAllByOrderByEmailAsc(PageRequest.of(0, 2));
+        assertThat(firstPage).extracting(Customer::getEmail)
+                .containsExactly("alice.smith@example.com", "bob.johnson@example.com");
+
+        List<Customer> secondPage = customerRepository.findByEmailGreaterThanOrderByEmailAsc(
+                "bob.johnson@example.com", PageRequest.of(0, 2));
+        assertThat(secondPage).extracting(Customer::getEmail).containsExactly("charlie.brown@example.com");
+    }
+
+    @Test
+    @DisplayName("Should report whether a conditional delete removed a row")
+    void testDeleteCustomerByIdReportsCount() {
+        Customer savedCustomer = customerRepository.save(testCustomer);
+        customerRepository.flush();
+
+        assertThat(customerRepository.deleteCustomerById(savedCustomer.getId())).isEqualTo(1);
+        assertThat(customerRepository.deleteCustomerById(savedCustomer.getId())).isEqualTo(0);
+        assertThat(customerRepository.deleteCustomerById(UUID.randomUUID())).isEqualTo(0);
+    }
+
+    @Test
+    @DisplayName("Should overwrite a customer and read back its new version and creation time")
+    void testOverwriteReturnsStoredColumns() {
+        Customer savedCustomer = customerRepository.saveAndFlush(testCustomer);
+        UUID id = savedCustomer.getId();
+        Customer changed = Customer.builder()
+                .firstName("Jack").lastName("Doe").email("jack.doe@example.com").phoneNumber("1234567890").build();
+        changed.normalizeSearchColumns();
+        changed.touch();
+
+        assertThat(customerRepository.overwrite(id, null, changed)).isTrue();
+        assertThat(changed.getId()).isEqualTo(id);
+        assertThat(changed.getVersion()).isEqualTo(1);
+        assertThat(changed.getCreatedAt()).isEqualTo(savedCustomer.getCreatedAt());
+
+        assertThat(customerRepository.overwrite(id, 0L, changed)).isFalse();
+        assertThat(customerRepository.overwrite(id, 1L, changed)).isTrue();
+        assertThat(changed.getVersion()).isEqualTo(2);
+        assertThat(customerRepository.overwrite(UUID.randomUUID(), null, changed)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should maintain normalized search columns on insert and update")
+    void testSearchColumnsAreNormalized() {
+        testCustomer.setPhoneNumber("+1 (555) 010-9876");
+        Customer savedCustomer = customerRepository.saveAndFlush(testCustomer);
+
+        assertThat(savedCustomer.getLastNameNorm()).isEqualTo("doe");
+        assertThat(savedCustomer.getPhoneNumberNorm()).isEqualTo("67890105551");
+
+        savedCustomer.setLastName("Dorian");
+        customerRepository.saveAndFlush(savedCustomer);
+
+        assertThat(customerRepository.searchByLastNamePrefix("dor%", PageRequest.of(0, 10)))
+                .extracting(Customer::getEmail).containsExactly("john.doe@example.com");
+        assertThat(customerRepository.searchByLastNamePrefix("doe%", PageRequest.of(0, 10))).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should find customers by phone number suffix")
+    void testSearchByPhoneNumberSuffix() {
+        customerRepository.save(testCustomer);
+        customerRepository.save(Customer.builder()
+                .firstName("Jane")
+                .lastName("Roe")
+                .email("jane.roe@example.com")
+                .phoneNumber("555-000-7890")
+                .build());
+        customerRepository.flush();
+
+        assertThat(customerRepository.searchByPhoneNumberSuffix(Customer.normalizePhoneNumber("7890") + "%", PageRequest.of(0, 10)))
+                .extracting(Customer::getEmail)
+                .containsExactlyInAnyOrder("john.doe@example.com", "jane.roe@example.com");
+        assertThat(customerRepository.searchByPhoneNumberSuffix(Customer.normalizePhoneNumber("0-7890") + "%", PageRequest.of(0, 10)))
+                .extracting(Customer::getEmail)
+                .containsExactly("jane.roe@example.com");
+    }
+
+    @Test
+    @DisplayName("Should find customers by email prefix whatever the email's case")
+    void testSearchByEmailPrefixIgnoresCase() {
+        testCustomer.setEmail("John.Doe@Example.com");
+        Customer savedCustomer = customerRepository.saveAndFlush(testCustomer);
+
+        assertThat(customerRepository.searchByEmailPrefix("john.doe%", PageRequest.of(0, 10)))
+                .extracting(Customer::getId).containsExactly(savedCustomer.getId());
+
+        Customer changed = Customer.builder()
+                .firstName("John").lastName("Doe").email("Johnny@Example.com").phoneNumber("1234567890").build();
+        changed.normalizeSearchColumns();
+        changed.touch();
+        customerRepository.overwrite(savedCustomer.getId(), null, changed);
+
+        assertThat(customerRepository.searchByEmailPrefix("johnny@%", PageRequest.of(0, 10)))
+                .extracting(Customer::getId).containsExactly(savedCustomer.getId());
+        assertThat(customerRepository.searchByEmailPrefix("john.doe%", PageRequest.of(0, 10))).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should stamp writes and page through them by (updated_at, id)")
+    void testModifiedAfterKeyset() {
+        Instant start = Customer.now();
+        Customer first = customerRepository.saveAndFlush(testCustomer);
+        Customer second = customerRepository.saveAndFlush(Customer.builder()
+                .firstName("Jane").lastName("Roe").email("jane.roe@example.com").phoneNumber("5550007890").build());
+        assertThat(first.getCreatedAt()).isNotNull().isEqualTo(first.getUpdatedAt());
+
+        first.setLastName("Dorian");
+        customerRepository.saveAndFlush(first);
+        assertThat(first.getUpdatedAt()).isAfterOrEqualTo(second.getUpdatedAt());
+        assertThat(first.getCreatedAt()).isBeforeOrEqualTo(second.getCreatedAt());
+        Instant until = Customer.now().plusSeconds(1);
+
+        List<Customer> page = customerRepository.findModifiedAfter(start, new UUID(0, 0), until, PageRequest.of(0, 1));
+        assertThat(page).extracting(Customer::getEmail).containsExactly("jane.roe@example.com");
+        Customer last = page.get(0);
+        assertThat(customerRepository.findModifiedAfter(last.getUpdatedAt(), last.getId(), until, PageRequest.of(0, 10)))
+                .extracting(Customer::getEmail).containsExactly("john.doe@example.com");
+        assertThat(customerRepository.findModifiedAfter(start, new UUID(0, 0), start, PageRequest.of(0, 10))).isEmpty();
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.customer_api.service;
+
+import com.example.customer_api.entity.Customer;
+import com.example.customer_api.repository.CustomerRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.cache.CacheManager;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest
+class CustomerServiceTest {
+
+    @Autowired
+    private CustomerService customerService;
+
+    @SpyBean
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Customer saved;
+
+    @BeforeEach
+    void setUp() {
+        customerRepository.deleteAll();
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+        saved = customerRepository.save(Customer.builder()
+                .firstName("Nina")
+                .lastName("Cache")
+                .email("nina.cache@example.com")
+                .phoneNumber("1212121212")
+                .build());
+        clearInvocations(customerRepository);
+    }
+
+    @Test
+    @DisplayName("Should serve repeated id lookups from the cache")
+    void testFindByIdIsCached() {
+        assertThat(customerService.findById(saved.getId())).isPresent();
+        assertThat(customerService.findById(saved.getId())).isPresent();
+
+        verify(customerRepository, times(1)).findById(saved.getId());
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "customersById").tag("result", "hit")
+                .functionCounter().count()).isGreaterThanOrEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should cache misses so repeated unknown ids do not reach the database")
+    void testNegativeLookupIsCached() {
+        UUID unknown = UUID.randomUUID();
+
+        assertThat(customerService.findById(unknown)).isEmpty();
+        assertThat(customerService.findById(unknown)).isEmpty();
+
+        verify(customerRepository, times(1)).findById(unknown);
+    }
+
+    @Test
+    @DisplayName("Should resolve email lookups through the id cache")
+    void testFindByEmailIsCached() {
+        assertThat(customerService.findByEmail("nina.cache@example.com")).isPresent();
+        assertThat(customerService.findByEmail("nina.cache@example.com")).isPresent();
+        assertThat(customerService.findById(saved.getId())).isPresent();
+
+        verify(customerRepository, times(1)).findByEmail(anyString());
+        verify(customerRepository, times(0)).findById(any());
+    }
+
+    @Test
+    @DisplayName("Should not return a stale customer after its email changes")
+    void testEmailChangeInvalidatesLookup() {
+        assertThat(customerService.findByEmail("nina.cache@example.com")).isPresent();
+
+        saved.setEmail("nina.renamed@example.com");
+        customerRepository.save(saved);
+        customerService.evict(saved.getId(), saved.getEmail());
+
+        assertThat(customerService.findByEmail("nina.cache@example.com")).isEmpty();
+        assertThat(customerService.findByEmail("nina.renamed@example.com")).isPresent();
+    }
+
+    @Test
+    @DisplayName("Should forget a cached miss once the customer is created")
+    void testCreateInvalidatesNegativeEntry() {
+        assertThat(customerService.findByEmail("oscar.cache@example.com")).isEmpty();
+
+        Customer created = customerRepository.save(Customer.builder()
+                .firstName("Oscar")
+                .lastName("Cache")
+                .email("oscar.cache@example.com")
+                .phoneNumber("3434343434")
+                .build());
+        customerService.evict(created.getId(), created.getEmail());
+
+        assertThat(customerService.findByEmail("oscar.cache@example.com")).isPresent();
+    }
+
+    @Test
+    @DisplayName("Should stop serving a deleted customer")
+    void testDeleteInvalidatesLookups() {
+        assertThat(customerService.findByEmail("nina.cache@example.com")).isPresent();
+
+        customerRepository.deleteById(saved.getId());
+        customerService.evict(saved.getId(), null);
+
+        assertThat(customerService.findById(saved.getId())).isEmpty();
+        assertThat(customerService.findByEmail("nina.cache@example.com")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should not cache a row by id that a write replaced while an email lookup read it")
+    void testEmailLookupDoesNotRecacheReplacedRow() {
+        AtomicBoolean raced = new AtomicBoolean();
+        doAnswer(invocation -> {
+            Optional<Customer> found = customerRepository.findByEmailIn(List.of(invocation.<String>getArgument(0)))
+                    .stream().findFirst();
+            if (raced.compareAndSet(false, true)) {
+                // The update commits and evicts between the lookup's read and its cache put
+                customerService.update(saved.getId(), Customer.builder()
+                        .firstName("Renamed")
+                        .lastName("Cache")
+                        .email("nina.cache@example.com")
+                        .phoneNumber("1212121212")
+                        .build(), null);
+            }
+            return found;
+        }).when(customerRepository).findByEmail(anyString());
+
+        assertThat(customerService.findByEmail("nina.cache@example.com")).isPresent();
+
+        assertThat(customerService.findById(saved.getId())).map(Customer::getFirstName).contains("Renamed");
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.customer_api.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MicroBatcherTest {
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final List<List<Integer>> batches = new ArrayList<>();
+    private final ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+    private MicroBatcher<Integer, String> batcher;
+
+    @BeforeEach
+    void setUp() {
+        scheduler.initialize();
+    }
+
+    @AfterEach
+    void tearDown() {
+        batcher.close();
+        scheduler.shutdown();
+    }
+
+    private MicroBatcher<Integer, String> batcher(Duration window, int maxBatchSize,
+                                                  Function<List<Integer>, Map<Integer, String>> loader) {
+        batcher = new MicroBatcher<>("test", keys -> {
+            synchronized (batches) {
+                batches.add(keys);
+            }
+            return loader.apply(keys);
+        }, scheduler, window, maxBatchSize, 2, registry);
+        return batcher;
+    }
+
+    // Resolves even keys only
+    private static Map<Integer, String> evens(List<Integer> keys) {
+        Map<Integer, String> values = new HashMap<>();
+        keys.stream().filter(k -> k % 2 == 0).forEach(k -> values.put(k, "v" + k));
+        return values;
+    }
+
+    @Test
+    @DisplayName("Should serve the keys requested within one window with a single load")
+    void testBatchesWithinWindow() throws Exception {
+        MicroBatcher<Integer, String> batcher = batcher(Duration.ofMillis(200), 100, MicroBatcherTest::evens);
+
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        for (int key : new int[]{1, 2, 3, 4, 2}) {
+            results.add(batcher.load(key));
+        }
+
+        assertThat(results.get(1).get(5, TimeUnit.SECONDS)).isEqualTo("v2");
+        assertThat(results.get(0).get()).isNull();
+        assertThat(results.get(3).get()).isEqualTo("v4");
+        assertThat(results.get(4).get()).isEqualTo("v2");
+        assertThat(batches).containsExactly(List.of(1, 2, 3, 4));
+        assertThat(registry.summary("customer.lookup.batch.size", "lookup", "test").totalAmount()).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("Should send a full batch without waiting for the window")
+    void testFullBatchDispatchesImmediately() throws Exception {
+        MicroBatcher<Integer, String> batcher = batcher(Duration.ofHours(1), 3, MicroBatcherTest::evens);
+
+        CompletableFuture<String> first = batcher.load(2);
+        batcher.load(3);
+        batcher.load(4);
+        CompletableFuture<String> pending = batcher.load(6);
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("v2");
+        assertThat(pending).isNotDone();
+        // A multi-get flushes whatever is pending along with its own keys
+        assertThat(batcher.getAll(List.of(8, 9, 10))).containsExactly(Map.entry(8, "v8"), Map.entry(10, "v10"));
+        assertThat(pending.get(5, TimeUnit.SECONDS)).isEqualTo("v6");
+        // Two loader threads may finish these batches in either order
+        assertThat(batches).containsExactlyInAnyOrder(List.of(2, 3, 4), List.of(6, 8, 9), List.of(10));
+    }
+
+    @Test
+    @DisplayName("Should fail every caller of a batch whose load fails")
+    void testFailurePropagates() {
+        MicroBatcher<Integer, String> batcher = batcher(Duration.ofMillis(1), 100, keys -> {
+            throw new IllegalStateException("database unavailable");
+        });
+
+        CompletableFuture<String> other = batcher.load(1);
+        assertThatThrownBy(() -> batcher.get(2))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("database unavailable");
+        assertThat(other).isCompletedExceptionally();
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.customer_api.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private double requests(String outcome) {
+        return registry.counter("customer.singleflight.requests", "lookup", "test", "outcome", outcome).count();
+    }
+
+    // Waits until the other callers are parked on the leader's call
+    private void awaitCoalesced(int callers) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (requests("coalesced") < callers && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    @DisplayName("Should run one load for concurrent callers of the same key and share its result")
+    void testCoalescesConcurrentCalls() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>("test", 4, 16, registry);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            results.add(executor.submit(() -> flight.execute("hot", () -> {
+                loads.incrementAndGet();
+                await(release);
+                return "value";
+            })));
+        }
+        awaitCoalesced(7);
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("value");
+        }
+        assertThat(loads).hasValue(1);
+        assertThat(requests("leader")).isEqualTo(1);
+        assertThat(requests("coalesced")).isEqualTo(7);
+
+        // Nothing is kept once the call completes
+        assertThat(flight.execute("hot", () -> "next")).isEqualTo("next");
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    @DisplayName("Should hand the leader's exception to every waiter")
+    void testSharesFailure() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>("test", 4, 16, registry);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> leader = executor.submit(() -> flight.execute("key", () -> {
+            await(release);
+            throw new IllegalStateException("database down");
+        }));
+        awaitLeader();
+        Future<String> waiter = executor.submit(() -> flight.execute("key", () -> "unused"));
+        awaitCoalesced(1);
+        release.countDown();
+
+        assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> waiter.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("database down");
+    }
+
+    @Test
+    @DisplayName("Should start a fresh load after forget and not publish the forgotten one")
+    void testForgetRevokesInFlightLoad() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>("test", 4, 16, registry);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicReference<String> published = new AtomicReference<>();
+        Future<String> stale = executor.submit(() -> flight.execute("key", () -> {
+            await(release);
+            return "old";
+        }, published::set));
+        awaitLeader();
+
+        flight.forget("key");
+        assertThat(flight.execute("key", () -> "new", published::set)).isEqualTo("new");
+        assertThat(published).hasValue("new");
+        release.countDown();
+
+        assertThat(stale.get(5, TimeUnit.SECONDS)).isEqualTo("old");
+        assertThat(published).hasValue("new");
+    }
+
+    @Test
+    @DisplayName("Should run calls uncoalesced once a stripe is full")
+    void testBypassesFullStripe() throws Exception {
+        SingleFlight<Integer, Integer> flight = new SingleFlight<>("test", 1, 1, registry);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<Integer> holder = executor.submit(() -> flight.execute(1, () -> {
+            await(release);
+            return 1;
+        }));
+        awaitLeader();
+
+        assertThat(flight.execute(2, () -> 2)).isEqualTo(2);
+        assertThat(requests("bypassed")).isEqualTo(1);
+        release.countDown();
+        assertThat(holder.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should skip a side publish once any key was forgotten during its load")
+    void testPublishIfUnchanged() {
+        SingleFlight<String, String> flight = new SingleFlight<>("test", 4, 16, registry);
+        AtomicInteger published = new AtomicInteger();
+
+        long generation = flight.generation();
+        assertThat(flight.publishIfUnchanged("a", generation, published::incrementAndGet)).isTrue();
+        flight.forget("b");
+        assertThat(flight.publishIfUnchanged("a", generation, published::incrementAndGet)).isFalse();
+        assertThat(flight.publishIfUnchanged("a", flight.generation(), published::incrementAndGet)).isTrue();
+        assertThat(published).hasValue(2);
+    }
+
+    private void awaitLeader() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (requests("leader") < 1 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
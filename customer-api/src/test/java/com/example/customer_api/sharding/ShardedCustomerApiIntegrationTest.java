@@ -0,0 +1,193 @@
+package com.example.customer_api.sharding;
+
+import com.example.customer_api.dto.CustomerBatchResult;
+import com.example.customer_api.dto.CustomerChange;
+import com.example.customer_api.dto.CustomerLookupRequest;
+import com.example.customer_api.entity.Customer;
+import com.example.customer_api.repository.CustomerRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The API with {@code customer.sharding.enabled}: two in-memory H2 shards next to the primary
+ * database, which keeps only the change log. Which database holds a row tells where a write went.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class ShardedCustomerApiIntegrationTest {
+    private static final String RUN = UUID.randomUUID().toString();
+    private static final List<String> SHARD_URLS = List.of(
+            "jdbc:h2:mem:api-shard-0-" + RUN + ";DB_CLOSE_DELAY=-1",
+            "jdbc:h2:mem:api-shard-1-" + RUN + ";DB_CLOSE_DELAY=-1");
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private ShardedCustomerRepository shardedRepository;
+
+    @DynamicPropertySource
+    static void shards(DynamicPropertyRegistry registry) {
+        registry.add("customer.sharding.enabled", () -> "true");
+        registry.add("customer.sharding.urls", () -> String.join(",", SHARD_URLS));
+        registry.add("customer.sharding.username", () -> "sa");
+        registry.add("customer.sharding.password", () -> "");
+    }
+
+    private String base() {
+        return "http://localhost:" + port + "/customers";
+    }
+
+    private static Customer customer(String name, String lastName, String phoneNumber) {
+        return Customer.builder()
+                .firstName(name)
+                .lastName(lastName)
+                .email(name.toLowerCase(Locale.ROOT) + ".sharded@example.com")
+                .phoneNumber(phoneNumber)
+                .build();
+    }
+
+    private static int rowsOnShard(int shard, UUID id) {
+        return new JdbcTemplate(new DriverManagerDataSource(SHARD_URLS.get(shard), "sa", ""))
+                .queryForObject("select count(*) from customers where id = ?", Integer.class,
+                        ShardJdbc.idParam(id, false));
+    }
+
+    @Test
+    void shouldKeepCustomersOnTheirShardsThroughTheApi() {
+        List<Customer> created = new ArrayList<>();
+        for (String name : List.of("Ada", "Bea", "Cal", "Dee", "Eli", "Fay")) {
+            ResponseEntity<Customer> response = restTemplate.postForEntity(base(), customer(name, "Listed", "5550100" + created.size()),
+                    Customer.class);
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+            created.add(response.getBody());
+        }
+        for (Customer customer : created) {
+            int shard = shardedRepository.getRouter().shardFor(customer.getId());
+            assertThat(rowsOnShard(shard, customer.getId())).isEqualTo(1);
+            assertThat(rowsOnShard(1 - shard, customer.getId())).isZero();
+            assertThat(customerRepository.findById(customer.getId())).isEmpty();
+        }
+        assertThat(created).extracting(c -> shardedRepository.getRouter().shardFor(c.getId())).contains(0, 1);
+
+        Customer ada = created.get(0);
+        assertThat(restTemplate.getForObject(base() + "/" + ada.getId(), Customer.class).getEmail())
+                .isEqualTo(ada.getEmail());
+        assertThat(restTemplate.getForObject(base() + "?email=" + ada.getEmail(), Customer.class).getId())
+                .isEqualTo(ada.getId());
+
+        // Cursor pages merge both shards in id order
+        List<UUID> listed = new ArrayList<>();
+        String url = base() + "?limit=4";
+        while (url != null) {
+            ResponseEntity<Customer[]> page = restTemplate.getForEntity(url, Customer[].class);
+            Arrays.stream(page.getBody()).forEach(c -> listed.add(c.getId()));
+            String next = page.getHeaders().getFirst("X-Next-Cursor");
+            url = next == null ? null : base() + "?limit=4&cursor=" + next;
+        }
+        assertThat(listed).isSortedAccordingTo(ShardJdbc.ID_ORDER).doesNotHaveDuplicates();
+        List<UUID> expected = created.stream().map(Customer::getId).sorted(ShardJdbc.ID_ORDER).collect(Collectors.toList());
+        assertThat(listed).containsSubsequence(expected);
+        assertThat(restTemplate.getForEntity(base() + "?sort=email", String.class).getStatusCode())
+                .isEqualTo(HttpStatus.BAD_REQUEST);
+
+        assertThat(restTemplate.getForObject(base() + "/search?q=listed", Customer[].class)).hasSize(6);
+        assertThat(restTemplate.getForObject(base() + "/search?q=55501003", Customer[].class))
+                .extracting(Customer::getId).containsExactly(created.get(3).getId());
+
+        Customer[] looked = restTemplate.postForObject(base() + "/lookup", CustomerLookupRequest.builder()
+                .ids(List.of(created.get(1).getId()))
+                .emails(List.of(created.get(2).getEmail(), "nobody@example.com"))
+                .build(), Customer[].class);
+        assertThat(looked).extracting(Customer::getId).containsExactly(created.get(1).getId(), created.get(2).getId());
+
+        String export = restTemplate.getForObject(base() + "/export", String.class);
+        assertThat(created).allMatch(customer -> export.contains(customer.getEmail()));
+    }
+
+    @Test
+    void shouldWriteThroughTheDirectoryAndRecordChanges() {
+        CustomerChange[] before = restTemplate.getForObject(base() + "/changes?limit=1000", CustomerChange[].class);
+        long since = before.length == 0 ? 0 : before[before.length - 1].getSequence();
+        Customer gil = restTemplate.postForEntity(base(), customer("Gil", "Written", "5550200001"), Customer.class).getBody();
+        Customer hal = restTemplate.postForEntity(base(), customer("Hal", "Written", "5550200002"), Customer.class).getBody();
+
+        // An email already used on either shard is a conflict
+        ResponseEntity<String> duplicate = restTemplate.postForEntity(base(), customer("Gil", "Written", "5550200003"), String.class);
+        assertThat(duplicate.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+        assertThat(duplicate.getBody()).isEqualTo("A customer with this email already exists");
+
+        HttpHeaders ifMatch = new HttpHeaders();
+        ifMatch.setIfMatch("\"0\"");
+        gil.setEmail("gil.renamed@example.com");
+        ResponseEntity<Customer> put = restTemplate.exchange(base() + "/" + gil.getId(), HttpMethod.PUT,
+                new HttpEntity<>(gil, ifMatch), Customer.class);
+        assertThat(put.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(put.getHeaders().getETag()).isEqualTo("\"1\"");
+        assertThat(restTemplate.exchange(base() + "/" + gil.getId(), HttpMethod.PUT,
+                new HttpEntity<>(gil, ifMatch), String.class).getStatusCode()).isEqualTo(HttpStatus.PRECONDITION_FAILED);
+        assertThat(restTemplate.getForEntity(base() + "?email=gil.sharded@example.com", String.class).getStatusCode())
+                .isEqualTo(HttpStatus.NOT_FOUND);
+
+        HttpHeaders mergePatch = new HttpHeaders();
+        mergePatch.setContentType(MediaType.valueOf("application/merge-patch+json"));
+        ResponseEntity<Customer> patched = restTemplate.exchange(base() + "/" + hal.getId(), HttpMethod.PATCH,
+                new HttpEntity<>("{\"email\":\"gil.sharded@example.com\"}", mergePatch), Customer.class);
+        assertThat(patched.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(restTemplate.getForObject(base() + "?email=gil.sharded@example.com", Customer.class).getId())
+                .isEqualTo(hal.getId());
+
+        CustomerBatchResult[] batch = restTemplate.postForObject(base() + "/batch",
+                List.of(customer("Hal", "Written", "5550200009"), customer("Ivy", "Written", "5550200010")), CustomerBatchResult[].class);
+        assertThat(batch).extracting(CustomerBatchResult::getStatus)
+                .containsExactly(CustomerBatchResult.Status.CREATED, CustomerBatchResult.Status.CREATED);
+        Customer ivy = restTemplate.getForObject(base() + "?email=ivy.sharded@example.com", Customer.class);
+        assertThat(ivy.getId()).isEqualTo(batch[1].getId());
+
+        restTemplate.delete(base() + "/" + gil.getId());
+        assertThat(restTemplate.getForEntity(base() + "/" + gil.getId(), String.class).getStatusCode())
+                .isEqualTo(HttpStatus.NOT_FOUND);
+        assertThat(rowsOnShard(shardedRepository.getRouter().shardFor(gil.getId()), gil.getId())).isZero();
+
+        List<String> changes = new ArrayList<>();
+        for (CustomerChange change : restTemplate.getForObject(base() + "/changes?since=" + since + "&limit=1000",
+                CustomerChange[].class)) {
+            changes.add(change.getType() + " " + change.getCustomerId());
+        }
+        assertThat(changes).containsExactly(
+                "CREATED " + gil.getId(),
+                "CREATED " + hal.getId(),
+                "UPDATED " + gil.getId(),
+                "UPDATED " + hal.getId(),
+                "CREATED " + batch[0].getId(),
+                "CREATED " + ivy.getId(),
+                "DELETED " + gil.getId());
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.customer_api.sharding;
+
+import com.example.customer_api.entity.Customer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ShardedCustomerRepositoryTest {
+    private final List<DataSource> shards = new ArrayList<>();
+    private ExecutorService executor;
+    private ShardedCustomerRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        String run = UUID.randomUUID().toString();
+        for (int i = 0; i < 3; i++) {
+            shards.add(new DriverManagerDataSource("jdbc:h2:mem:shard-" + i + "-" + run + ";DB_CLOSE_DELAY=-1", "sa", ""));
+        }
+        executor = Executors.newFixedThreadPool(3);
+        repository = repository(shards.subList(0, 2));
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        for (DataSource shard : shards) {
+            new JdbcTemplate(shard).execute("drop all objects");
+        }
+    }
+
+    private ShardedCustomerRepository repository(List<DataSource> shardList) {
+        for (DataSource shard : shardList) {
+            ShardJdbc.migrate(shard, false);
+        }
+        ShardJdbc.migrate(shardList.get(0), true);
+        return new ShardedCustomerRepository(shardList, shardList.get(0), executor);
+    }
+
+    private static Customer customer(int n) {
+        return Customer.builder()
+                .firstName("First" + n)
+                .lastName("Last" + n)
+                .email("customer" + n + "@example.com")
+                .phoneNumber("555000" + n)
+                .build();
+    }
+
+    private static int rows(DataSource shard) {
+        return new JdbcTemplate(shard).queryForObject("select count(*) from customers", Integer.class);
+    }
+
+    @Test
+    @DisplayName("Should spread customers over the shards and find them by id and email")
+    void testDistributionAndLookup() {
+        List<Customer> saved = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            saved.add(repository.insert(customer(i)));
+        }
+
+        assertThat(rows(shards.get(0))).isPositive();
+        assertThat(rows(shards.get(1))).isPositive();
+        assertThat(repository.count()).isEqualTo(50);
+        for (Customer customer : saved) {
+            assertThat(repository.findById(customer.getId())).get()
+                    .extracting(Customer::getEmail).isEqualTo(customer.getEmail());
+            assertThat(repository.findByEmail(customer.getEmail())).get()
+                    .extracting(Customer::getId).isEqualTo(customer.getId());
+        }
+    }
+
+    @Test
+    @DisplayName("Should reject an email already used on another shard")
+    void testDuplicateEmailAcrossShards() {
+        Customer first = repository.insert(customer(1));
+        // Find an id that lands on the other shard
+        UUID otherShardId;
+        do {
+            otherShardId = UUID.randomUUID();
+        } while (repository.getRouter().shardFor(otherShardId) == repository.getRouter().shardFor(first.getId()));
+        Customer duplicate = customer(2);
+        duplicate.setId(otherShardId);
+        duplicate.setEmail(first.getEmail());
+
+        assertThatThrownBy(() -> repository.insert(duplicate)).isInstanceOf(DuplicateKeyException.class);
+        assertThat(repository.findById(otherShardId)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should free the old email when a customer changes it")
+    void testEmailChange() {
+        Customer saved = repository.insert(customer(1));
+        saved.setEmail("changed@example.com");
+        assertThat(repository.overwrite(saved.getId(), saved.getVersion(), saved)).isTrue();
+        assertThat(saved.getVersion()).isEqualTo(1L);
+        assertThat(repository.overwrite(saved.getId(), 0L, saved)).isFalse();
+
+        assertThat(repository.findByEmail("customer1@example.com")).isEmpty();
+        assertThat(repository.findByEmail("changed@example.com")).get()
+                .extracting(Customer::getId).isEqualTo(saved.getId());
+        assertThat(repository.insert(customer(1)).getEmail()).isEqualTo("customer1@example.com");
+    }
+
+    @Test
+    @DisplayName("Should page across shards in global id order")
+    void testMergedPaging() {
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            ids.add(repository.insert(customer(i)).getId());
+        }
+        ids.sort(ShardJdbc.ID_ORDER);
+
+        List<UUID> paged = new ArrayList<>();
+        UUID after = null;
+        List<Customer> page;
+        do {
+            page = repository.findPageOrderedById(after, 7);
+            page.forEach(c -> paged.add(c.getId()));
+            after = page.isEmpty() ? null : page.get(page.size() - 1).getId();
+        } while (page.size() == 7);
+
+        assertThat(paged).containsExactlyElementsOf(ids);
+    }
+
+    @Test
+    @DisplayName("Should search and batch-load across shards")
+    void testFanOutReads() {
+        List<Customer> saved = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            saved.add(repository.insert(customer(i)));
+        }
+
+        assertThat(repository.searchByLastNamePrefix("last1%", PageRequest.of(0, 50)))
+                .extracting(Customer::getLastName)
+                .containsExactlyInAnyOrder("Last1", "Last10", "Last11", "Last12", "Last13", "Last14", "Last15",
+                        "Last16", "Last17", "Last18", "Last19");
+        assertThat(repository.findAllById(saved.stream().map(Customer::getId).collect(Collectors.toList())))
+                .hasSize(20);
+        assertThat(repository.findByEmailIn(List.of("customer3@example.com", "customer17@example.com", "none@example.com")))
+                .extracting(Customer::getId)
+                .containsExactlyInAnyOrder(saved.get(3).getId(), saved.get(17).getId());
+        try (Stream<Customer> all = repository.streamAll(6)) {
+            assertThat(all.map(Customer::getId)).containsExactlyElementsOf(
+                    saved.stream().map(Customer::getId).sorted(ShardJdbc.ID_ORDER).collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    @DisplayName("Should delete a customer and release its email")
+    void testDelete() {
+        Customer saved = repository.insert(customer(1));
+
+        assertThat(repository.deleteById(saved.getId())).isTrue();
+        assertThat(repository.deleteById(saved.getId())).isFalse();
+        assertThat(repository.findById(saved.getId())).isEmpty();
+        assertThat(repository.findByEmail(saved.getEmail())).isEmpty();
+        assertThat(repository.insert(customer(1)).getId()).isNotEqualTo(saved.getId());
+    }
+
+    @Test
+    @DisplayName("Should move only misplaced customers when a shard is added")
+    void testReshard() {
+        Set<UUID> ids = new HashSet<>();
+        for (int i = 0; i < 60; i++) {
+            ids.add(repository.insert(customer(i)).getId());
+        }
+        // An orphan claim, as left behind by a write that failed after claiming the email
+        new JdbcTemplate(shards.get(0)).update("insert into customer_email_directory (email, customer_id) values (?, ?)",
+                "orphan@example.com", ShardJdbc.idParam(UUID.randomUUID(), false));
+
+        CustomerResharder.Result result = new CustomerResharder(shards, shards.get(0)).reshard();
+
+        int moved = result.getMoved().values().stream().mapToInt(Integer::intValue).sum();
+        assertThat(moved).isPositive().isLessThan(40);
+        assertThat(result.getMoved().keySet()).allMatch(key -> key.endsWith("->2"));
+        assertThat(result.getClaimsRemoved()).isEqualTo(1);
+        ShardedCustomerRepository resharded = repository(shards);
+        assertThat(rows(shards.get(2))).isEqualTo(moved);
+        assertThat(resharded.count()).isEqualTo(60);
+        for (UUID id : ids) {
+            Customer customer = resharded.findById(id).orElseThrow();
+            assertThat(resharded.findByEmail(customer.getEmail())).isPresent();
+        }
+        assertThat(new CustomerResharder(shards, shards.get(0)).reshard().getMoved()).isEmpty();
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.customer_api.snapshot;
+
+import com.example.customer_api.entity.Customer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CustomerSnapshotTest {
+    @TempDir
+    Path directory;
+
+    private static Customer customer(int i, String firstName) {
+        return Customer.builder()
+                .id(UUID.randomUUID())
+                .firstName(firstName)
+                .middleName(i % 2 == 0 ? null : "M")
+                .lastName("Snapshot")
+                .email("customer" + i + "@example.com")
+                .phoneNumber("555" + i)
+                .version((long) i)
+                .createdAt(Customer.now())
+                .updatedAt(Customer.now())
+                .build();
+    }
+
+    private static void write(Path file, List<Customer> customers) throws IOException {
+        try (CustomerSnapshot.Writer writer = new CustomerSnapshot.Writer(file, Instant.now())) {
+            for (Customer customer : customers) {
+                writer.add(customer);
+            }
+            writer.finish();
+        }
+    }
+
+    @Test
+    @DisplayName("Should find every customer by id and by email, and nothing else")
+    void testLookups() throws IOException {
+        List<Customer> customers = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            customers.add(customer(i, i == 7 ? "Zoë" : "First" + i));
+        }
+        Path file = directory.resolve("customers.bin");
+        write(file, customers);
+
+        CustomerSnapshot snapshot = CustomerSnapshot.open(file);
+
+        assertThat(snapshot.size()).isEqualTo(5000);
+        for (Customer customer : customers) {
+            assertThat(snapshot.findById(customer.getId())).contains(customer);
+            assertThat(snapshot.findByEmail(customer.getEmail())).contains(customer);
+        }
+        assertThat(snapshot.findById(UUID.randomUUID())).isEmpty();
+        assertThat(snapshot.findByEmail("nobody@example.com")).isEmpty();
+        assertThat(snapshot.findByEmail("CUSTOMER1@example.com")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should serve an empty snapshot and reject a truncated one")
+    void testEmptyAndCorrupt() throws IOException {
+        Path empty = directory.resolve("empty.bin");
+        write(empty, List.of());
+        assertThat(CustomerSnapshot.open(empty).findById(UUID.randomUUID())).isEmpty();
+
+        Path truncated = directory.resolve("truncated.bin");
+        write(truncated, List.of(customer(1, "Ann"), customer(2, "Ben")));
+        try (var channel = Files.newByteChannel(truncated, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 1);
+        }
+        assertThatThrownBy(() -> CustomerSnapshot.open(truncated)).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    @DisplayName("Should swap in a replaced snapshot and keep serving the old one if the new one is bad")
+    void testStoreHotSwap() throws IOException {
+        Path file = directory.resolve("customers.bin");
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        CustomerSnapshotStore store = new CustomerSnapshotStore(file, registry);
+        assertThat(store.reload()).isFalse();
+        assertThat(store.current()).isNull();
+
+        Customer original = customer(1, "Before");
+        write(file, List.of(original));
+        assertThat(store.reload()).isTrue();
+        CustomerSnapshot first = store.current();
+        assertThat(store.reload()).isFalse();
+
+        Customer renamed = customer(1, "After");
+        renamed.setId(original.getId());
+        Path next = directory.resolve("next.bin");
+        write(next, List.of(renamed));
+        Files.move(next, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        assertThat(store.reload()).isTrue();
+        assertThat(store.current().findById(original.getId())).map(Customer::getFirstName).contains("After");
+        // The replaced mapping stays readable for lookups still holding it
+        assertThat(first.findById(original.getId())).map(Customer::getFirstName).contains("Before");
+
+        Files.write(next, new byte[]{1, 2, 3});
+        Files.move(next, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        assertThatThrownBy(store::reload).isInstanceOf(IOException.class);
+        assertThat(store.reload()).isFalse();
+        assertThat(store.current().findById(original.getId())).isPresent();
+        assertThat(registry.counter("customer.snapshot.loads", "result", "failed").count()).isEqualTo(1);
+    }
+}